@@ -0,0 +1,516 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.matching.RegexPattern;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.matching.UrlPathPattern;
+import com.github.tomakehurst.wiremock.matching.UrlPathTemplatePattern;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Matches requests against the stubs in an order that puts the most frequently matched stubs
+ * first, without changing which stub wins.
+ *
+ * <p>WireMock tries stubs in a fixed order, by priority and then newest first, and stops at the
+ * first match. When a few stubs take most of the traffic, requests to them pay for every stub
+ * declared before them. This class counts the matches of each stub in a {@link LongAdder} and, at
+ * most once per interval, reorders the stubs of each priority: hottest first, by a score that
+ * halves at every reorder so it follows shifts in traffic. The new order is published by replacing
+ * the array that requests walk.
+ *
+ * <p>Moving a stub ahead of another can only change the outcome if both can match the same
+ * request. When the order is built, every pair of stubs of a priority is checked for overlap on
+ * method and URL, URL patterns by the literal text they start with, and a stub is never moved
+ * ahead of an earlier stub it may overlap with, so the
+ * first match in the adaptive order is always WireMock's first match. Stubs whose outcome depends
+ * on scenario state or a named custom matcher are not evaluated here: a request such a stub may
+ * match is left to WireMock.
+ *
+ * <p>As with the {@link ExactMatchIndex}, a request is only answered here if the winning stub has a
+ * static response; WireMock renders it the first time and the response is then reused. Stubs with
+ * responses that vary are only checked on method and URL: a request one of them may match is left
+ * to WireMock before any full match is spent on it, and when no stub has a static response the
+ * adaptive order is not tried at all. Requests no stub matches are answered as unmatched without
+ * WireMock. Requests answered here are not recorded
+ * in the WireMock request journal.
+ */
+class AdaptiveStubOrder {
+  /** Orders stubs by score, highest first, and then in declared order. */
+  private static final Comparator<Slot> HOTTEST_FIRST =
+      Comparator.comparingDouble((Slot slot) -> -slot.score).thenComparingInt(slot -> slot.index);
+
+  /** Answer of requests that match no stub. */
+  private static final Slot UNMATCHED = new Slot(null, -1, false);
+
+  static {
+    UNMATCHED.response = Response.notConfigured();
+  }
+
+  private final StubEngine engine;
+
+  /**
+   * Whether templating or an extension of the application applies to every stub, in which case no
+   * response is kept, see {@link GlobalExtensions}.
+   */
+  private final boolean global;
+
+  private final long intervalNanos;
+
+  private final AtomicBoolean reordering = new AtomicBoolean();
+
+  private final LongAdder reorders = new LongAdder();
+
+  private volatile long nextReorderNanos;
+
+  private volatile Generation generation = new Generation(-1, new Slot[0], Map.of());
+
+  /** The stubs of one version of the stub set and the order they are tried in. */
+  private static final class Generation {
+    private final long version;
+
+    /** Slots in WireMock's matching order. */
+    private final Slot[] declared;
+
+    private final Map<UUID, Slot> byId;
+
+    /** Whether any stub has a response that can be kept; if none has, WireMock matches. */
+    private final boolean anyServable;
+
+    /** Slots in the order requests try them, replaced as a whole by a reorder. */
+    private volatile Slot[] order;
+
+    private Generation(long version, Slot[] declared, Map<UUID, Slot> byId) {
+      this.version = version;
+      this.declared = declared;
+      this.byId = byId;
+      this.anyServable = Arrays.stream(declared).anyMatch(slot -> slot.servable);
+      this.order = declared;
+    }
+  }
+
+  /** A stub with its match count, the response kept for it and its constraints on reordering. */
+  static final class Slot {
+    private final StubMapping stub;
+
+    /** Position in WireMock's matching order. */
+    private final int index;
+
+    /**
+     * Whether the response may be kept and reused: the outcome depends neither on scenario state
+     * nor on a named custom matcher, and the response is static. Other stubs are only checked on
+     * method and URL, since WireMock has to match and render them anyway.
+     */
+    private final boolean servable;
+
+    private final LongAdder hits = new LongAdder();
+
+    /** Indexes of the later stubs of the same priority that may match the same requests. */
+    private int[] overlapping = new int[0];
+
+    /** Number of earlier stubs of the same priority that may match the same requests. */
+    private int blockers;
+
+    /** Decayed match count, only used by the thread reordering. */
+    private double score;
+
+    private volatile Response response;
+
+    private Slot(StubMapping stub, int index, boolean servable) {
+      this.stub = stub;
+      this.index = index;
+      this.servable = servable;
+    }
+
+    /** Returns the stub, null for requests that match no stub. */
+    StubMapping stub() {
+      return stub;
+    }
+
+    /** Returns the kept response, or null until the stub has been matched by WireMock once. */
+    Response response() {
+      return response;
+    }
+
+    /**
+     * Keeps the response WireMock rendered for a request matched to this stub, if WireMock
+     * matched the same stub.
+     *
+     * @param served the stub WireMock matched, may be null
+     * @param rendered the response WireMock rendered
+     */
+    void store(StubMapping served, Response rendered) {
+      if (served != null && stub.getId().equals(served.getId()) && rendered.wasConfigured()) {
+        response = rendered;
+      }
+    }
+  }
+
+  /**
+   * Creates the adaptive order for the stubs of an engine.
+   *
+   * @param engine the engine whose stubs are matched
+   * @param interval the minimum time between reorders
+   * @param globalTemplating whether response templating applies to all stubs, in which case no
+   *     response is kept
+   * @throws IllegalArgumentException if the interval is not positive
+   */
+  AdaptiveStubOrder(StubEngine engine, Duration interval, boolean globalTemplating) {
+    if (interval == null || interval.isZero() || interval.isNegative()) {
+      throw new IllegalArgumentException("Adaptive stub order interval must be positive");
+    }
+    this.engine = engine;
+    this.intervalNanos = interval.toNanos();
+    this.global = globalTemplating || engine.hasGlobalExtensions();
+    this.nextReorderNanos = System.nanoTime() + intervalNanos;
+  }
+
+  /**
+   * Matches a request against the stubs in the adaptive order, reordering them first if the
+   * interval has passed.
+   *
+   * @param request the request to be matched
+   * @return the slot of the matching stub, a slot with an unconfigured response if no stub
+   *     matches, or null if WireMock must match the request
+   */
+  Slot match(Request request) {
+    Generation current = current();
+    if (!current.anyServable) {
+      return null;
+    }
+    long now = System.nanoTime();
+    if (now - nextReorderNanos >= 0 && reordering.compareAndSet(false, true)) {
+      try {
+        reorder(current);
+        nextReorderNanos = now + intervalNanos;
+      } finally {
+        reordering.set(false);
+      }
+    }
+    for (Slot slot : current.order) {
+      RequestPattern pattern = slot.stub.getRequest();
+      if (!slot.servable) {
+        // left to WireMock without a full match here, counted by recordServed once it matched
+        if (mayMatch(pattern, request)) {
+          return null;
+        }
+      } else if (pattern.match(request).isExactMatch()) {
+        slot.hits.increment();
+        return slot;
+      }
+    }
+    return UNMATCHED;
+  }
+
+  /**
+   * Counts a match made by WireMock for a request this class left to it.
+   *
+   * @param served the stub WireMock matched, may be null
+   */
+  void recordServed(StubMapping served) {
+    if (served == null) {
+      return;
+    }
+    Slot slot = current().byId.get(served.getId());
+    if (slot != null) {
+      slot.hits.increment();
+    }
+  }
+
+  /** Reorders the stubs now, whether or not the interval has passed. */
+  void reorder() {
+    Generation current = current();
+    while (!reordering.compareAndSet(false, true)) {
+      Thread.onSpinWait();
+    }
+    try {
+      reorder(current);
+      nextReorderNanos = System.nanoTime() + intervalNanos;
+    } finally {
+      reordering.set(false);
+    }
+  }
+
+  /** Returns the stubs in the order requests try them. */
+  List<StubMapping> order() {
+    return Arrays.stream(current().order).map(Slot::stub).toList();
+  }
+
+  /** Returns the number of reorders so far. */
+  long getReorders() {
+    return reorders.sum();
+  }
+
+  /**
+   * Sorts the stubs of each priority by score, taking a stub only once every earlier stub it may
+   * overlap with has been taken.
+   */
+  private void reorder(Generation current) {
+    Slot[] declared = current.declared;
+    for (Slot slot : declared) {
+      slot.score = slot.score / 2 + slot.hits.sumThenReset();
+    }
+    int[] pending = new int[declared.length];
+    for (Slot slot : declared) {
+      pending[slot.index] = slot.blockers;
+    }
+    Slot[] order = new Slot[declared.length];
+    int placed = 0;
+    PriorityQueue<Slot> ready = new PriorityQueue<>(HOTTEST_FIRST);
+    int start = 0;
+    while (start < declared.length) {
+      int end = start + 1;
+      while (end < declared.length && samePriority(declared[start], declared[end])) {
+        end++;
+      }
+      for (int i = start; i < end; i++) {
+        if (pending[i] == 0) {
+          ready.add(declared[i]);
+        }
+      }
+      while (!ready.isEmpty()) {
+        Slot slot = ready.poll();
+        order[placed++] = slot;
+        for (int later : slot.overlapping) {
+          if (--pending[later] == 0) {
+            ready.add(declared[later]);
+          }
+        }
+      }
+      start = end;
+    }
+    current.order = order;
+    reorders.increment();
+  }
+
+  private Generation current() {
+    Generation current = generation;
+    long version = engine.getStubSetVersion();
+    if (current.version != version) {
+      current = build(version, engine.getStubMappings(), current);
+      generation = current;
+    }
+    return current;
+  }
+
+  /**
+   * Builds the slots of a stub set in matching order and works out which stubs may overlap. Scores
+   * of stubs that were already loaded are carried over, so the first reorder after a change keeps
+   * the hot stubs first.
+   */
+  private Generation build(long version, List<StubMapping> stubs, Generation previous) {
+    List<Slot> slots = new ArrayList<>(stubs.size());
+    for (StubMapping stub : stubs) {
+      RequestPattern pattern = stub.getRequest();
+      if (pattern == null) {
+        continue;
+      }
+      boolean volatileMatch = stub.isInScenario() || pattern.getCustomMatcher() != null;
+      Slot slot =
+          new Slot(stub, slots.size(), !volatileMatch && !global && MatchCache.isStatic(stub));
+      Slot old = previous.byId.get(stub.getId());
+      if (old != null) {
+        slot.score = old.score;
+      }
+      slots.add(slot);
+    }
+    Slot[] declared = slots.toArray(new Slot[0]);
+    int start = 0;
+    while (start < declared.length) {
+      int end = start + 1;
+      while (end < declared.length && samePriority(declared[start], declared[end])) {
+        end++;
+      }
+      findOverlaps(declared, start, end);
+      start = end;
+    }
+    Map<UUID, Slot> byId = new HashMap<>();
+    for (Slot slot : declared) {
+      byId.put(slot.stub.getId(), slot);
+    }
+    return new Generation(version, declared, byId);
+  }
+
+  /**
+   * Records, for the stubs of one priority, which earlier stubs each may overlap with. Stubs with
+   * an exact URL or path only need to be compared with earlier ones on the same path, and stubs
+   * with a URL pattern with earlier ones on a path starting with the pattern's literal prefix.
+   */
+  private static void findOverlaps(Slot[] declared, int start, int end) {
+    TreeMap<String, List<Slot>> exactByPath = new TreeMap<>();
+    List<Slot> others = new ArrayList<>();
+    List<List<Integer>> overlapping = new ArrayList<>(end - start);
+    for (int i = start; i < end; i++) {
+      overlapping.add(new ArrayList<>());
+    }
+    for (int j = start; j < end; j++) {
+      Slot slot = declared[j];
+      String path = exactPath(slot.stub.getRequest());
+      if (path != null) {
+        addOverlaps(exactByPath.getOrDefault(path, List.of()), slot, start, overlapping);
+      } else {
+        String prefix = literalPrefix(slot.stub.getRequest().getUrlMatcher());
+        for (Map.Entry<String, List<Slot>> exact : exactByPath.tailMap(prefix).entrySet()) {
+          if (!exact.getKey().startsWith(prefix)) {
+            break;
+          }
+          addOverlaps(exact.getValue(), slot, start, overlapping);
+        }
+      }
+      addOverlaps(others, slot, start, overlapping);
+      if (path != null) {
+        exactByPath.computeIfAbsent(path, p -> new ArrayList<>()).add(slot);
+      } else {
+        others.add(slot);
+      }
+    }
+    for (int i = start; i < end; i++) {
+      declared[i].overlapping =
+          overlapping.get(i - start).stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+  }
+
+  /** Records which of the earlier stubs given may overlap with a stub. */
+  private static void addOverlaps(
+      List<Slot> earlier, Slot slot, int start, List<List<Integer>> overlapping) {
+    for (Slot before : earlier) {
+      if (mayOverlap(before.stub.getRequest(), slot.stub.getRequest())) {
+        overlapping.get(before.index - start).add(slot.index);
+        slot.blockers++;
+      }
+    }
+  }
+
+  /** Whether two stubs may match the same request, judged by method and URL only. */
+  static boolean mayOverlap(RequestPattern a, RequestPattern b) {
+    RequestMethod methodA = a.getMethod();
+    RequestMethod methodB = b.getMethod();
+    if (methodA != null
+        && methodB != null
+        && !methodA.equals(RequestMethod.ANY)
+        && !methodB.equals(RequestMethod.ANY)
+        && !methodA.equals(methodB)) {
+      return false;
+    }
+    if (a.getUrl() != null) {
+      return urlMayMatch(b, a.getUrl());
+    }
+    if (b.getUrl() != null) {
+      return urlMayMatch(a, b.getUrl());
+    }
+    if (a.getUrlPath() != null) {
+      return pathMayMatch(b, a.getUrlPath());
+    }
+    if (b.getUrlPath() != null) {
+      return pathMayMatch(a, b.getUrlPath());
+    }
+    // two patterns: every URL either accepts starts with its literal prefix
+    String prefixA = literalPrefix(a.getUrlMatcher());
+    String prefixB = literalPrefix(b.getUrlMatcher());
+    return prefixA.startsWith(prefixB) || prefixB.startsWith(prefixA);
+  }
+
+  /** Whether the URL matcher of a stub accepts a URL. */
+  private static boolean urlMayMatch(RequestPattern pattern, String url) {
+    UrlPattern urlPattern = pattern.getUrlMatcher();
+    return urlPattern == null || urlPattern.match(url).isExactMatch();
+  }
+
+  /**
+   * Whether the URL matcher of a stub may accept a URL with the given path and any query. A matcher
+   * on the full URL is assumed to if the path starts with its literal prefix.
+   */
+  private static boolean pathMayMatch(RequestPattern pattern, String path) {
+    if (pattern.getUrlPath() != null) {
+      return Objects.equals(pattern.getUrlPath(), path);
+    }
+    UrlPattern urlPattern = pattern.getUrlMatcher();
+    if (urlPattern instanceof UrlPathPattern) {
+      return urlPattern.match(path).isExactMatch();
+    }
+    return path.startsWith(literalPrefix(urlPattern));
+  }
+
+  /**
+   * Returns the literal text every URL or path accepted by a URL matcher starts with: the text of
+   * a path template before its first parameter, or the leading characters of a regex up to the
+   * first one with a special meaning. Returns an empty string if nothing is known, for other
+   * matchers and for regexes with alternatives. The prefix never includes a {@code ?}, so it is
+   * also a prefix of the path of any URL a full URL regex accepts.
+   */
+  static String literalPrefix(UrlPattern urlPattern) {
+    if (urlPattern instanceof UrlPathTemplatePattern) {
+      String template = urlPattern.getExpected();
+      int parameter = template.indexOf('{');
+      return parameter < 0 ? template : template.substring(0, parameter);
+    }
+    if (urlPattern == null || !(urlPattern.getPattern() instanceof RegexPattern)) {
+      return "";
+    }
+    String regex = urlPattern.getExpected();
+    if (regex.indexOf('|') >= 0) {
+      return "";
+    }
+    int from = regex.startsWith("^") ? 1 : 0;
+    int to = from;
+    while (to < regex.length() && ".[]{}()*+?\\^$".indexOf(regex.charAt(to)) < 0) {
+      to++;
+    }
+    // a character followed by ?, * or a {n,m} quantifier may be missing
+    if (to > from && to < regex.length() && "?*{".indexOf(regex.charAt(to)) >= 0) {
+      to--;
+    }
+    return regex.substring(from, to);
+  }
+
+  /** Whether a stub whose outcome is not decided here may match a request on method and URL. */
+  private static boolean mayMatch(RequestPattern pattern, Request request) {
+    RequestMethod method = pattern.getMethod();
+    UrlPattern urlPattern = pattern.getUrlMatcher();
+    return (method == null || method.match(request.getMethod()).isExactMatch())
+        && (urlPattern == null || urlPattern.match(request.getUrl()).isExactMatch());
+  }
+
+  /** Returns the path of a stub's exact URL or path, or null if it matches a URL pattern. */
+  private static String exactPath(RequestPattern pattern) {
+    if (pattern.getUrl() != null) {
+      int query = pattern.getUrl().indexOf('?');
+      return query < 0 ? pattern.getUrl() : pattern.getUrl().substring(0, query);
+    }
+    return pattern.getUrlPath();
+  }
+
+  private static boolean samePriority(Slot a, Slot b) {
+    return Objects.equals(a.stub.getPriority(), b.stub.getPriority());
+  }
+}
@@ -0,0 +1,395 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import com.github.tomakehurst.wiremock.matching.RequestMatcherExtension;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * WireMock request matcher that matches the request body on its UTF-8 bytes, without decoding it
+ * into a String.
+ *
+ * <p>WireMock's {@code containing}, {@code matches} and {@code equalToJson} body patterns decode
+ * the whole body into a UTF-16 String for every stub that has one, which doubles the memory used
+ * by a multi-megabyte body. Stubs that match large bodies can name this matcher instead:
+ *
+ * <pre>{@code
+ * "customMatcher": {
+ *   "name": "body-bytes",
+ *   "parameters": { "jsonPath": "$.order.items[0].sku", "equalTo": "A-1" }
+ * }
+ * }</pre>
+ *
+ * <p>Parameters, all optional; every one given must match:
+ *
+ * <ul>
+ *   <li>{@code contains}: text the body must contain, searched for as UTF-8 bytes
+ *   <li>{@code jsonPath}: path to a value in a JSON body, {@code $} followed by {@code .name},
+ *       {@code ['name']} and {@code [index]} steps; without {@code equalTo} or {@code equalToJson}
+ *       the value must exist
+ *   <li>{@code equalTo}: text or number the scalar at {@code jsonPath} must be equal to
+ *   <li>{@code equalToJson}: JSON the body, or the value at {@code jsonPath}, must be equal to;
+ *       object members may come in any order, array elements may not
+ * </ul>
+ *
+ * <p>JSON is read as a stream of tokens straight from the bytes. A JSON path stops reading as soon
+ * as the value is found, and siblings of the path are skipped without being materialised, so
+ * matching costs at most one pass over the body.
+ *
+ * <p>Invalid parameters, such as a malformed JSON path, are logged once and the stub then matches
+ * no request.
+ */
+@Slf4j
+class BodyBytesMatcher extends RequestMatcherExtension {
+  static final String NAME = "body-bytes";
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper(JSON_FACTORY);
+
+  /** Bound on {@link #compiled}, which outlives the stubs whose parameters it holds. */
+  static final int MAX_COMPILED = 4096;
+
+  /** Compiled parameters by stub parameters. */
+  private final Map<Parameters, Compiled> compiled = new ConcurrentHashMap<>();
+
+  /** Advanced on every compilation; entries remember the last value they were used at. */
+  private volatile long clock;
+
+  /** Compiled parameters of a stub and when they were last used. */
+  private static final class Compiled {
+    /** Null if the parameters are invalid. */
+    private final Criteria criteria;
+
+    private volatile long used;
+
+    private Compiled(Criteria criteria, long used) {
+      this.criteria = criteria;
+      this.used = used;
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public MatchResult match(Request request, Parameters parameters) {
+    Compiled entry = compiled.get(parameters);
+    if (entry == null) {
+      entry = add(parameters);
+    } else {
+      // written only once per compilation, not on every match
+      long now = clock;
+      if (entry.used != now) {
+        entry.used = now;
+      }
+    }
+    if (entry.criteria == null) {
+      return MatchResult.noMatch();
+    }
+    byte[] body = request.getBody();
+    return MatchResult.of(entry.criteria.matches(body == null ? new byte[0] : body));
+  }
+
+  /**
+   * Compiles and keeps the parameters, first evicting the least recently used half of the entries
+   * if there are {@link #MAX_COMPILED} already.
+   */
+  private Compiled add(Parameters parameters) {
+    synchronized (compiled) {
+      Compiled entry = compiled.get(parameters);
+      if (entry != null) {
+        return entry;
+      }
+      if (compiled.size() >= MAX_COMPILED) {
+        long[] used = compiled.values().stream().mapToLong(c -> c.used).sorted().toArray();
+        long cutoff = used[used.length / 2];
+        compiled.values().removeIf(c -> c.used <= cutoff);
+      }
+      Criteria criteria;
+      try {
+        criteria = compile(parameters);
+      } catch (IllegalArgumentException e) {
+        log.warn(
+            "Invalid {} matcher parameters {}, the stub matches no request", NAME, parameters, e);
+        criteria = null;
+      }
+      entry = new Compiled(criteria, ++clock);
+      compiled.put(parameters, entry);
+      return entry;
+    }
+  }
+
+  /** Returns the number of compiled parameters kept. */
+  int compiledCount() {
+    return compiled.size();
+  }
+
+  /**
+   * Compiles the matcher parameters.
+   *
+   * @throws IllegalArgumentException if the JSON path or the expected JSON is invalid
+   */
+  static Criteria compile(Parameters parameters) {
+    String contains = parameters.getString("contains", null);
+    String jsonPath = parameters.getString("jsonPath", null);
+    String equalToJson = parameters.getString("equalToJson", null);
+    Object equalTo = parameters.get("equalTo");
+    JsonNode expectedJson;
+    try {
+      expectedJson = equalToJson == null ? null : OBJECT_MAPPER.readTree(equalToJson);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Invalid equalToJson of " + NAME + " matcher", e);
+    }
+    return new Criteria(
+        contains == null ? null : contains.getBytes(StandardCharsets.UTF_8),
+        jsonPath == null ? null : parsePath(jsonPath),
+        equalTo == null ? null : equalTo.toString(),
+        expectedJson);
+  }
+
+  /**
+   * Compiled matcher parameters.
+   *
+   * @param contains bytes the body must contain, null if not checked
+   * @param path steps of the JSON path, each a String name or an Integer index, null if not set
+   * @param equalTo expected scalar at the path, null if not checked
+   * @param equalToJson expected JSON of the body or the value at the path, null if not checked
+   */
+  record Criteria(byte[] contains, List<Object> path, String equalTo, JsonNode equalToJson) {
+    boolean matches(byte[] body) {
+      if (contains != null && indexOf(body, contains) < 0) {
+        return false;
+      }
+      if (path == null && equalToJson == null) {
+        return true;
+      }
+      try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+        if (parser.nextToken() == null || !find(parser, path, 0)) {
+          return false;
+        }
+        if (equalTo != null && !scalarEquals(parser, equalTo)) {
+          return false;
+        }
+        if (equalToJson == null) {
+          return true;
+        }
+        // the whole body, unless a path picked a part of it, with nothing after it
+        return jsonEquals(parser, equalToJson) && (path != null || parser.nextToken() == null);
+      } catch (IOException e) {
+        // not JSON
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Finds the first occurrence of {@code needle} in {@code haystack} with the Boyer-Moore-Horspool
+   * algorithm.
+   *
+   * @return the index of the first occurrence, or -1 if there is none
+   */
+  static int indexOf(byte[] haystack, byte[] needle) {
+    int n = needle.length;
+    if (n == 0) {
+      return 0;
+    }
+    int last = n - 1;
+    int[] shift = new int[256];
+    Arrays.fill(shift, n);
+    for (int i = 0; i < last; i++) {
+      shift[needle[i] & 0xff] = last - i;
+    }
+    int pos = 0;
+    while (pos + last < haystack.length) {
+      int i = last;
+      while (haystack[pos + i] == needle[i]) {
+        if (i == 0) {
+          return pos;
+        }
+        i--;
+      }
+      pos += shift[haystack[pos + last] & 0xff];
+    }
+    return -1;
+  }
+
+  /**
+   * Parses a JSON path made of {@code .name}, {@code ['name']} and {@code [index]} steps after the
+   * leading {@code $}.
+   */
+  static List<Object> parsePath(String path) {
+    if (!path.startsWith("$")) {
+      throw new IllegalArgumentException("JSON path must start with $: " + path);
+    }
+    List<Object> steps = new ArrayList<>();
+    int i = 1;
+    while (i < path.length()) {
+      char c = path.charAt(i);
+      if (c == '.') {
+        int end = i + 1;
+        while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+          end++;
+        }
+        if (end == i + 1) {
+          throw new IllegalArgumentException("Empty name in JSON path " + path);
+        }
+        steps.add(path.substring(i + 1, end));
+        i = end;
+      } else if (c == '[') {
+        int end = path.indexOf(']', i);
+        if (end < 0) {
+          throw new IllegalArgumentException("Unclosed [ in JSON path " + path);
+        }
+        String step = path.substring(i + 1, end).trim();
+        if (step.length() >= 2 && (step.startsWith("'") || step.startsWith("\""))) {
+          steps.add(step.substring(1, step.length() - 1));
+        } else {
+          try {
+            steps.add(Integer.valueOf(step));
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid step [" + step + "] in JSON path " + path);
+          }
+        }
+        i = end + 1;
+      } else {
+        throw new IllegalArgumentException("Unexpected '" + c + "' in JSON path " + path);
+      }
+    }
+    return List.copyOf(steps);
+  }
+
+  /**
+   * Moves the parser from the current value to the value at {@code path}, starting at step {@code
+   * step}, skipping everything not on the path.
+   *
+   * @return true if the parser is on the value at the path, false if there is no such value
+   */
+  private static boolean find(JsonParser parser, List<Object> path, int step) throws IOException {
+    if (path == null || step == path.size()) {
+      return true;
+    }
+    Object next = path.get(step);
+    JsonToken token = parser.currentToken();
+    if (next instanceof String name && token == JsonToken.START_OBJECT) {
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        boolean found = name.equals(parser.currentName());
+        parser.nextToken();
+        if (found) {
+          return find(parser, path, step + 1);
+        }
+        parser.skipChildren();
+      }
+    } else if (next instanceof Integer index && token == JsonToken.START_ARRAY) {
+      int i = 0;
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        if (i++ == index) {
+          return find(parser, path, step + 1);
+        }
+        parser.skipChildren();
+      }
+    }
+    return false;
+  }
+
+  /** Compares the scalar the parser is on with the expected text, numbers by numeric value. */
+  private static boolean scalarEquals(JsonParser parser, String expected) throws IOException {
+    JsonToken token = parser.currentToken();
+    if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+      try {
+        return parser.getDecimalValue().compareTo(new BigDecimal(expected)) == 0;
+      } catch (NumberFormatException e) {
+        return false;
+      }
+    }
+    return token.isScalarValue() && expected.equals(parser.getText());
+  }
+
+  /**
+   * Compares the value the parser is on, token by token, with the expected JSON. Object members of
+   * the value are looked up in the expected object, so their order does not matter; a member
+   * repeated in the value is a difference. Reading stops at the first difference.
+   */
+  private static boolean jsonEquals(JsonParser parser, JsonNode expected) throws IOException {
+    JsonToken token = parser.currentToken();
+    switch (token) {
+      case START_OBJECT -> {
+        if (!expected.isObject()) {
+          return false;
+        }
+        Set<String> seen = new HashSet<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String name = parser.currentName();
+          JsonNode member = expected.get(name);
+          parser.nextToken();
+          if (member == null || !seen.add(name) || !jsonEquals(parser, member)) {
+            return false;
+          }
+        }
+        return seen.size() == expected.size();
+      }
+      case START_ARRAY -> {
+        if (!expected.isArray()) {
+          return false;
+        }
+        Iterator<JsonNode> elements = expected.elements();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          if (!elements.hasNext() || !jsonEquals(parser, elements.next())) {
+            return false;
+          }
+        }
+        return !elements.hasNext();
+      }
+      case VALUE_STRING -> {
+        return expected.isTextual() && expected.textValue().equals(parser.getText());
+      }
+      case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+        return expected.isNumber()
+            && expected.decimalValue().compareTo(parser.getDecimalValue()) == 0;
+      }
+      case VALUE_TRUE, VALUE_FALSE -> {
+        return expected.isBoolean() && expected.booleanValue() == parser.getBooleanValue();
+      }
+      case VALUE_NULL -> {
+        return expected.isNull();
+      }
+      default -> {
+        return false;
+      }
+    }
+  }
+}
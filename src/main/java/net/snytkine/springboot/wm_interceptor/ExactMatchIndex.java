@@ -0,0 +1,257 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.matching.UrlPathPattern;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resolves requests to stubs that match on nothing but the method and an exact URL with a single
+ * hash lookup, in front of WireMock's matching.
+ *
+ * <p>WireMock scores every stub against every request. Most stubs of a large catalog only name a
+ * method and a {@code url} or {@code urlPath} to be equal to, and such a stub matches every
+ * request with that method and URL. This index keys those stubs by path. A request is resolved by
+ * the first of them, in matching order, that accepts its method and URL, unless a stub with other
+ * criteria comes earlier in matching order and may match the same method and URL: that stub might
+ * win, so the request is left to WireMock. Requests no exact stub accepts are left to WireMock
+ * too.
+ *
+ * <p>Only stubs with static responses, as defined by the {@link MatchCache}, are answered from the
+ * index: the response WireMock renders the first time the stub is matched is kept with it. Requests
+ * resolved to other stubs still go through WireMock. The index is rebuilt whenever the stub set
+ * changes, see {@link StubSetVersion}. Requests answered from the index are not recorded in the
+ * WireMock request journal.
+ */
+class ExactMatchIndex {
+  private final StubEngine engine;
+
+  /**
+   * Whether templating or an extension of the application applies to every stub, in which case no
+   * response is kept, see {@link GlobalExtensions}.
+   */
+  private final boolean global;
+
+  private volatile Generation generation = new Generation(-1, Map.of());
+
+  /** Exact stubs by path, each path's stubs in matching order. */
+  private record Generation(long version, Map<String, Target[]> byPath) {}
+
+  /** An exact stub a request can be resolved to, with the response kept for it. */
+  static final class Target {
+    private final StubMapping stub;
+
+    private final RequestMethod method;
+
+    /** URL with query the stub accepts, null if it accepts any query on its path. */
+    private final String url;
+
+    /** Whether an earlier stub with other criteria may match the same requests. */
+    private final boolean shadowed;
+
+    /** Whether the response may be kept and reused. */
+    private final boolean servable;
+
+    private volatile Response response;
+
+    private Target(
+        StubMapping stub, RequestMethod method, String url, boolean shadowed, boolean servable) {
+      this.stub = stub;
+      this.method = method;
+      this.url = url;
+      this.shadowed = shadowed;
+      this.servable = servable;
+    }
+
+    StubMapping stub() {
+      return stub;
+    }
+
+    /** Returns the kept response, or null until the stub has been matched by WireMock once. */
+    Response response() {
+      return response;
+    }
+
+    /**
+     * Keeps the response WireMock rendered for a request resolved to this target, if WireMock
+     * matched the same stub.
+     *
+     * @param served the stub WireMock matched, may be null
+     * @param rendered the response WireMock rendered
+     */
+    void store(StubMapping served, Response rendered) {
+      if (served != null && stub.getId().equals(served.getId()) && rendered.wasConfigured()) {
+        response = rendered;
+      }
+    }
+
+    private boolean accepts(RequestMethod requestMethod, String requestUrl) {
+      return (url == null || url.equals(requestUrl))
+          && (method.equals(RequestMethod.ANY) || method.equals(requestMethod));
+    }
+  }
+
+  /**
+   * Creates the index for the stubs of an engine.
+   *
+   * @param engine the engine whose stubs are indexed
+   * @param globalTemplating whether response templating applies to all stubs, in which case no
+   *     response is kept
+   */
+  ExactMatchIndex(StubEngine engine, boolean globalTemplating) {
+    this.engine = engine;
+    this.global = globalTemplating || engine.hasGlobalExtensions();
+  }
+
+  /**
+   * Resolves a request to an exact stub.
+   *
+   * @param request the request to be matched
+   * @return the target to answer the request with, or null if WireMock must match it
+   */
+  Target lookup(Request request) {
+    Generation current = current();
+    if (current.byPath().isEmpty()) {
+      return null;
+    }
+    String url = request.getUrl();
+    Target[] targets = current.byPath().get(pathOf(url));
+    if (targets == null) {
+      return null;
+    }
+    RequestMethod method = request.getMethod();
+    for (Target target : targets) {
+      if (target.accepts(method, url)) {
+        return target.shadowed || !target.servable ? null : target;
+      }
+    }
+    return null;
+  }
+
+  /** Returns the number of indexed stubs. */
+  int size() {
+    return current().byPath().values().stream().mapToInt(targets -> targets.length).sum();
+  }
+
+  private Generation current() {
+    Generation current = generation;
+    long version = engine.getStubSetVersion();
+    if (current.version() != version) {
+      current = build(version, engine.getStubMappings());
+      generation = current;
+    }
+    return current;
+  }
+
+  /** Indexes the exact stubs, walking all stubs in matching order. */
+  private Generation build(long version, List<StubMapping> stubs) {
+    Map<String, List<Target>> byPath = new HashMap<>();
+    List<RequestPattern> others = new ArrayList<>();
+    for (StubMapping stub : stubs) {
+      RequestPattern pattern = stub.getRequest();
+      if (pattern == null) {
+        continue;
+      }
+      if (stub.isInScenario() || !isExact(pattern)) {
+        others.add(pattern);
+        continue;
+      }
+      String url = pattern.getUrl();
+      String path = url != null ? pathOf(url) : pattern.getUrlPath();
+      boolean shadowed =
+          others.stream().anyMatch(other -> mayMatch(other, pattern.getMethod(), url, path));
+      byPath
+          .computeIfAbsent(path, p -> new ArrayList<>())
+          .add(
+              new Target(
+                  stub,
+                  pattern.getMethod(),
+                  url,
+                  shadowed,
+                  !global && MatchCache.isStatic(stub)));
+    }
+    Map<String, Target[]> index = new HashMap<>();
+    byPath.forEach((path, targets) -> index.put(path, targets.toArray(new Target[0])));
+    return new Generation(version, Map.copyOf(index));
+  }
+
+  /** Whether a stub matches on its method and an exact URL or path, and on nothing else. */
+  static boolean isExact(RequestPattern pattern) {
+    boolean exactUrl =
+        pattern.getUrl() != null
+            || (pattern.getUrlPath() != null && isEmpty(pattern.getQueryParameters()));
+    return exactUrl
+        && pattern.getMethod() != null
+        && pattern.getHost() == null
+        && pattern.getPort() == null
+        && pattern.getScheme() == null
+        && isEmpty(pattern.getQueryParameters())
+        && isEmpty(pattern.getHeaders())
+        && isEmpty(pattern.getCookies())
+        && isEmpty(pattern.getFormParameters())
+        && pattern.getBasicAuthCredentials() == null
+        && isEmpty(pattern.getBodyPatterns())
+        && isEmpty(pattern.getMultipartPatterns())
+        && pattern.getCustomMatcher() == null
+        && !pattern.hasInlineCustomMatcher();
+  }
+
+  /**
+   * Whether a stub with other criteria may match requests with the method and URL of an exact
+   * stub. When the exact stub accepts any query, a stub matching on the full URL is assumed to.
+   */
+  private static boolean mayMatch(
+      RequestPattern other, RequestMethod method, String url, String path) {
+    RequestMethod otherMethod = other.getMethod();
+    boolean methodMatches =
+        otherMethod == null
+            || method.equals(RequestMethod.ANY)
+            || otherMethod.match(method).isExactMatch();
+    if (!methodMatches) {
+      return false;
+    }
+    UrlPattern urlPattern = other.getUrlMatcher();
+    if (urlPattern == null) {
+      return true;
+    }
+    if (url != null) {
+      return urlPattern.match(url).isExactMatch();
+    }
+    return !(urlPattern instanceof UrlPathPattern) || urlPattern.match(path).isExactMatch();
+  }
+
+  private static String pathOf(String url) {
+    int query = url.indexOf('?');
+    return query < 0 ? url : url.substring(0, query);
+  }
+
+  private static boolean isEmpty(Map<?, ?> map) {
+    return map == null || map.isEmpty();
+  }
+
+  private static boolean isEmpty(List<?> list) {
+    return list == null || list.isEmpty();
+  }
+}
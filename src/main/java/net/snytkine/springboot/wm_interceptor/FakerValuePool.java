@@ -0,0 +1,275 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.jknack.handlebars.Helper;
+import com.github.tomakehurst.wiremock.extension.TemplateHelperProviderExtension;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import net.datafaker.Faker;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.FakerSettings;
+
+/**
+ * Provides the Faker extension's {@code random} template helper from pools of pre-generated values,
+ * used instead of {@code org.wiremock.RandomExtension} when {@code faker.poolSize} is set.
+ *
+ * <p>Generating a fake name or paragraph is expensive enough to dominate the rendering of templated
+ * responses. Each Faker expression a template uses, such as {@code {{random 'Name.first_name'}}},
+ * gets a ring buffer of {@code poolSize} values. A single background thread fills the rings in
+ * bulk; templates take values from them without locking. Each value is handed out once, so the
+ * values a template sees are as random as when they are generated on demand. When a ring runs
+ * dry the value is generated on the calling thread, and a refill is scheduled once a ring is half
+ * empty.
+ *
+ * <p>Faker is not thread-safe, so the filler has a Faker of its own, and a value generated on a
+ * calling thread comes from a Faker borrowed for that one call from a set of idle ones, created as
+ * needed. Requests never wait for the filler, nor for each other. The filler yields between rings
+ * so a large refill does not keep a core from the request threads.
+ *
+ * <p>A ring is created the first time an expression is used, once a value has been generated for
+ * it successfully, so expressions Faker does not know fail the same way as without pooling.
+ */
+@Slf4j
+class FakerValuePool implements TemplateHelperProviderExtension {
+  static final String NAME = "wm-interceptor-faker-pool";
+
+  /** Name of the helper, the same as the Faker extension's. */
+  static final String HELPER = "random";
+
+  /** Used by the filler thread only. */
+  private final Faker filler;
+
+  /** Fakers for values generated on the calling thread, each used by one thread at a time. */
+  private final Queue<Faker> idle = new ConcurrentLinkedQueue<>();
+
+  private final Locale locale;
+
+  private final Long seed;
+
+  /** Number of Fakers created, each seeded differently from the seed. */
+  private final AtomicLong created = new AtomicLong();
+
+  private final int poolSize;
+
+  private final Map<String, Ring> rings = new ConcurrentHashMap<>();
+
+  private final AtomicBoolean refillScheduled = new AtomicBoolean();
+
+  private final ExecutorService refiller =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, NAME);
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final LongAdder pooled = new LongAdder();
+
+  private final LongAdder generatedInline = new LongAdder();
+
+  /**
+   * Creates the pools.
+   *
+   * @param settings the Faker settings; the seed, if set, seeds the random source, but the values
+   *     a template gets still depend on how requests and refills interleave, so they are not
+   *     repeatable
+   * @throws IllegalArgumentException if the pool size is not positive
+   */
+  FakerValuePool(FakerSettings settings) {
+    if (settings.getPoolSize() == null || settings.getPoolSize() <= 0) {
+      throw new IllegalArgumentException("Faker pool size must be positive");
+    }
+    this.poolSize = settings.getPoolSize();
+    this.locale =
+        settings.getLocale() == null ? Locale.ENGLISH : Locale.forLanguageTag(settings.getLocale());
+    this.seed = settings.getSeed();
+    this.filler = newFaker();
+  }
+
+  private Faker newFaker() {
+    long n = created.getAndIncrement();
+    return new Faker(locale, seed == null ? new Random() : new Random(seed + n));
+  }
+
+  @Override
+  public Map<String, Helper<?>> provideTemplateHelpers() {
+    Helper<Object> helper = (context, options) -> next(String.valueOf(context));
+    return Map.of(HELPER, helper);
+  }
+
+  /**
+   * Returns the next value of a Faker expression, from its ring if one is available.
+   *
+   * @param expression the expression, e.g. {@code Name.first_name}
+   * @return the generated value
+   */
+  String next(String expression) {
+    Ring ring = rings.get(expression);
+    if (ring != null) {
+      String value = ring.take();
+      if (ring.available() < poolSize / 2) {
+        scheduleRefill();
+      }
+      if (value != null) {
+        pooled.increment();
+        return value;
+      }
+    }
+    Faker faker = idle.poll();
+    if (faker == null) {
+      faker = newFaker();
+    }
+    String value;
+    try {
+      value = generate(faker, expression);
+    } finally {
+      idle.offer(faker);
+    }
+    generatedInline.increment();
+    if (ring == null) {
+      rings.computeIfAbsent(expression, e -> new Ring(poolSize));
+      scheduleRefill();
+    }
+    return value;
+  }
+
+  private static String generate(Faker faker, String expression) {
+    return faker.expression("#{" + expression + "}");
+  }
+
+  private void scheduleRefill() {
+    if (refillScheduled.compareAndSet(false, true)) {
+      try {
+        refiller.execute(this::refill);
+      } catch (RejectedExecutionException e) {
+        refillScheduled.set(false);
+      }
+    }
+  }
+
+  /** Tops up every ring, then allows the next refill to be scheduled. */
+  private void refill() {
+    refillScheduled.set(false);
+    rings.forEach(
+        (expression, ring) -> {
+          try {
+            while (ring.available() < poolSize && !Thread.currentThread().isInterrupted()) {
+              ring.put(generate(filler, expression));
+            }
+          } catch (RuntimeException e) {
+            log.warn("Unable to pre-generate values of Faker expression {}", expression, e);
+            rings.remove(expression);
+          }
+          Thread.yield();
+        });
+  }
+
+  /** Returns the number of values served from the pools. */
+  long getPooled() {
+    return pooled.sum();
+  }
+
+  /** Returns the number of values generated on the calling thread because a pool was empty. */
+  long getGeneratedInline() {
+    return generatedInline.sum();
+  }
+
+  /** Returns the number of Fakers created, the filler's included. */
+  long getFakerCount() {
+    return created.get();
+  }
+
+  /** Returns the number of values ready in the ring of an expression, 0 if it has none. */
+  int available(String expression) {
+    Ring ring = rings.get(expression);
+    return ring == null ? 0 : ring.available();
+  }
+
+  @Override
+  public void stop() {
+    refiller.shutdownNow();
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  /**
+   * Ring buffer of values with any number of takers and a single filler. Takers claim slots in
+   * order with an atomic counter and clear them; the filler writes behind them in the same order.
+   */
+  static final class Ring {
+    private final AtomicReferenceArray<String> slots;
+
+    private final AtomicLong takeIndex = new AtomicLong();
+
+    /** Only advanced by the filler thread. */
+    private long putIndex;
+
+    private final AtomicInteger available = new AtomicInteger();
+
+    Ring(int size) {
+      this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    /** Takes the next value, or returns null if the ring is empty. */
+    String take() {
+      while (true) {
+        int ready = available.get();
+        if (ready <= 0) {
+          return null;
+        }
+        if (available.compareAndSet(ready, ready - 1)) {
+          int slot = (int) (takeIndex.getAndIncrement() % slots.length());
+          String value;
+          // the filler publishes the value before making it available
+          while ((value = slots.getAndSet(slot, null)) == null) {
+            Thread.onSpinWait();
+          }
+          return value;
+        }
+      }
+    }
+
+    /** Adds a value; only called by the filler, and only while the ring is not full. */
+    void put(String value) {
+      int slot = (int) (putIndex++ % slots.length());
+      while (!slots.compareAndSet(slot, null, value)) {
+        // a taker has claimed the slot but not cleared it yet
+        Thread.onSpinWait();
+      }
+      available.incrementAndGet();
+    }
+
+    int available() {
+      return available.get();
+    }
+  }
+}
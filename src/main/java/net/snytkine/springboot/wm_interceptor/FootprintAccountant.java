@@ -0,0 +1,302 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.http.LoggedResponse;
+import com.github.tomakehurst.wiremock.matching.MatchResult;
+import com.github.tomakehurst.wiremock.matching.RequestPatternBuilder;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.FootprintLimits;
+
+/**
+ * Estimates the memory held by the parts of a {@link StubEngine} and enforces the engine's {@link
+ * FootprintLimits}.
+ *
+ * <p>Sizes are estimates, not measured retained sizes: stub definitions are sized by their JSON
+ * form, stored bodies exactly, journal entries by their bodies and URL plus a fixed overhead,
+ * compiled templates by their source and scenarios by a fixed overhead each. They are meant to
+ * show which part grows, and to keep it in check, not to add up to the heap in use. The stub
+ * definitions are only serialized again once the {@link StubSetVersion stub set} has changed. A
+ * disabled request journal counts as empty.
+ *
+ * <p>The stub limit is checked whenever stubs are loaded or added. The journal limit is checked at
+ * most once per {@code checkInterval}, triggered by a request but run on a background thread, and
+ * the oldest journal entries are removed until the journal is back under it, in a single pass over
+ * the journal.
+ */
+@Slf4j
+class FootprintAccountant {
+  /** Estimated bytes of a journal entry besides its bodies and URL: headers, timing and ids. */
+  static final int JOURNAL_ENTRY_OVERHEAD = 512;
+
+  /** Estimated bytes of a request header kept in the journal. */
+  static final int JOURNAL_HEADER_BYTES = 64;
+
+  /** Estimated bytes held by a scenario and its state. */
+  static final int SCENARIO_BYTES = 256;
+
+  /** Name of the thread trimming the journal. */
+  static final String TRIM_THREAD = "wm-interceptor-journal-trim";
+
+  private final WireMockServer server;
+
+  private final StubSetVersion stubSetVersion;
+
+  private final ResponseBodyStore bodyStore;
+
+  private final TemplateRenderer templateRenderer;
+
+  private final FootprintLimits limits;
+
+  private final long intervalNanos;
+
+  private final AtomicBoolean checking = new AtomicBoolean();
+
+  /** Runs journal trims off the request threads; its thread is only started by the first trim. */
+  private final ExecutorService trimmer =
+      Executors.newSingleThreadExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, TRIM_THREAD);
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  private final LongAdder journalEvictions = new LongAdder();
+
+  private volatile long nextCheckNanos;
+
+  private volatile StubEngine.Footprint recent;
+
+  private volatile long recentNanos;
+
+  /** Size of the stub definitions at the stub set version it was measured at. */
+  private volatile StubSizes stubSizes;
+
+  private record StubSizes(long version, int count, long bytes) {}
+
+  /**
+   * Creates the accountant of an engine.
+   *
+   * @param server the engine's WireMock server
+   * @param stubSetVersion the version of the engine's stub set
+   * @param bodyStore the engine's body store
+   * @param templateRenderer the engine's template renderer, null if the fast path is off
+   * @param limits the limits to enforce
+   * @throws IllegalArgumentException if the check interval is not positive
+   */
+  FootprintAccountant(
+      WireMockServer server,
+      StubSetVersion stubSetVersion,
+      ResponseBodyStore bodyStore,
+      TemplateRenderer templateRenderer,
+      FootprintLimits limits) {
+    if (limits.getCheckInterval() == null
+        || limits.getCheckInterval().isZero()
+        || limits.getCheckInterval().isNegative()) {
+      throw new IllegalArgumentException("Footprint check interval must be positive");
+    }
+    this.server = server;
+    this.stubSetVersion = stubSetVersion;
+    this.bodyStore = bodyStore;
+    this.templateRenderer = templateRenderer;
+    this.limits = limits;
+    this.intervalNanos = limits.getCheckInterval().toNanos();
+    this.nextCheckNanos = System.nanoTime() + intervalNanos;
+  }
+
+  /** Measures the footprint of the engine now. */
+  StubEngine.Footprint measure() {
+    StubSizes stubs = stubSizes();
+    long stubBytes = stubs.bytes();
+    List<ServeEvent> journal = journal();
+    long journalBytes = journal.stream().mapToLong(FootprintAccountant::estimate).sum();
+    int scenarios = server.getAllScenarios().getScenarios().size();
+    int templates = templateRenderer == null ? 0 : templateRenderer.compiledCount();
+    long templateBytes = templateRenderer == null ? 0 : templateRenderer.estimatedBytes();
+    long scenarioBytes = (long) scenarios * SCENARIO_BYTES;
+    long storedBytes = bodyStore.storedBytes();
+    long offHeapBytes = bodyStore.offHeapBytes();
+    StubEngine.Footprint footprint =
+        new StubEngine.Footprint(
+            stubs.count(),
+            stubBytes,
+            storedBytes,
+            offHeapBytes,
+            bodyStore.savedBytes(),
+            journal.size(),
+            journalBytes,
+            templates,
+            templateBytes,
+            scenarios,
+            scenarioBytes,
+            stubBytes + storedBytes - offHeapBytes + journalBytes + templateBytes + scenarioBytes);
+    recent = footprint;
+    recentNanos = System.nanoTime();
+    return footprint;
+  }
+
+  /** Returns the size of the stub definitions, serializing them only if the stub set changed. */
+  private StubSizes stubSizes() {
+    StubSizes sizes = stubSizes;
+    // read before the stubs, so a change made while they are serialized is seen next time
+    long version = stubSetVersion.current();
+    if (sizes == null || sizes.version() != version) {
+      List<StubMapping> stubs = server.getStubMappings();
+      sizes =
+          new StubSizes(
+              version,
+              stubs.size(),
+              stubs.stream().mapToLong(stub -> Json.write(stub).length()).sum());
+      stubSizes = sizes;
+    }
+    return sizes;
+  }
+
+  /** Returns the request journal, newest first, or an empty list if the journal is disabled. */
+  private List<ServeEvent> journal() {
+    return server.getOptions().requestJournalDisabled() ? List.of() : server.getAllServeEvents();
+  }
+
+  /** Returns the footprint measured within the last check interval, measuring it if needed. */
+  StubEngine.Footprint recent() {
+    StubEngine.Footprint footprint = recent;
+    if (footprint == null || System.nanoTime() - recentNanos >= intervalNanos) {
+      footprint = measure();
+    }
+    return footprint;
+  }
+
+  /**
+   * Checks that adding stubs keeps the engine within the stub limit.
+   *
+   * @param loaded the number of stubs loaded
+   * @param added the number of stubs that would be added, not counting replaced ones
+   * @throws IllegalStateException if the limit would be exceeded
+   */
+  void checkStubLimit(int loaded, int added) {
+    Integer max = limits.getMaxStubs();
+    if (max != null && loaded + added > max) {
+      throw new IllegalStateException(
+          "Refusing to load " + added + " stubs, " + loaded + " loaded, limit is " + max);
+    }
+  }
+
+  /**
+   * Schedules a trim of the journal on the background thread if the check interval has passed and
+   * no trim is running. Returns at once.
+   */
+  void maybeEnforce() {
+    if (limits.getMaxJournalBytes() == null) {
+      return;
+    }
+    long now = System.nanoTime();
+    if (now - nextCheckNanos >= 0 && checking.compareAndSet(false, true)) {
+      nextCheckNanos = now + intervalNanos;
+      try {
+        trimmer.execute(
+            () -> {
+              try {
+                trimJournal();
+              } catch (RuntimeException e) {
+                log.warn("Unable to trim the request journal", e);
+              } finally {
+                checking.set(false);
+              }
+            });
+      } catch (RejectedExecutionException e) {
+        // stopped
+        checking.set(false);
+      }
+    }
+  }
+
+  /** Stops the background thread trimming the journal. */
+  void stop() {
+    trimmer.shutdownNow();
+  }
+
+  /**
+   * Removes the oldest journal entries until the journal is within its limit.
+   *
+   * @return the number of entries removed
+   */
+  int trimJournal() {
+    Long max = limits.getMaxJournalBytes();
+    if (max == null) {
+      return 0;
+    }
+    // newest first
+    List<ServeEvent> journal = journal();
+    long bytes = journal.stream().mapToLong(FootprintAccountant::estimate).sum();
+    Set<LoggedRequest> evicted = Collections.newSetFromMap(new IdentityHashMap<>());
+    for (int i = journal.size() - 1; i >= 0 && bytes > max; i--) {
+      ServeEvent event = journal.get(i);
+      if (event.getRequest() != null) {
+        evicted.add(event.getRequest());
+        bytes -= estimate(event);
+      }
+    }
+    int removed = evicted.size();
+    if (removed > 0) {
+      // one pass over the journal, rather than one per entry as removeServeEvent(id) would take
+      server.removeServeEventsMatching(
+          RequestPatternBuilder.allRequests()
+              .andMatching(request -> MatchResult.of(evicted.contains(request)))
+              .build());
+      journalEvictions.add(removed);
+      log.debug("Removed {} journal entries to stay within {} bytes", removed, max);
+    }
+    return removed;
+  }
+
+  /** Returns the number of journal entries removed to enforce the limit. */
+  long getJournalEvictions() {
+    return journalEvictions.sum();
+  }
+
+  /** Estimates the memory held by a journal entry. */
+  static long estimate(ServeEvent event) {
+    long bytes = JOURNAL_ENTRY_OVERHEAD;
+    LoggedRequest request = event.getRequest();
+    if (request != null) {
+      bytes += 2L * request.getUrl().length();
+      bytes += request.getBody() == null ? 0 : request.getBody().length;
+      bytes +=
+          request.getHeaders() == null
+              ? 0
+              : (long) request.getHeaders().size() * JOURNAL_HEADER_BYTES;
+    }
+    LoggedResponse response = event.getResponse();
+    if (response != null && response.getBody() != null) {
+      bytes += response.getBody().length;
+    }
+    return bytes;
+  }
+}
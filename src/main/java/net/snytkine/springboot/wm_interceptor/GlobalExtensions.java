@@ -0,0 +1,96 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.extension.ExtensionFactory;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformer;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformer;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Finds the extensions WireMock applies to every stub: response transformers and serve event
+ * listeners declared with {@code applyGlobally()}.
+ *
+ * <p>Responses served from the match cache, the exact match index or the adaptive stub order do
+ * not go through WireMock, so these extensions would be skipped for them. The engine registers
+ * this factory to get hold of the extensions WireMock actually loaded, including those found by
+ * extension scanning; WireMock's own extensions and the interceptor's are left out, global
+ * templating being covered by its own setting.
+ */
+final class GlobalExtensions implements ExtensionFactory {
+  /** The interceptor's own extensions, which never change what WireMock serves. */
+  private static final Set<Class<?>> OWN_EXTENSIONS =
+      Set.of(
+          ServedStubTracker.class,
+          StubSetVersion.class,
+          ResponseBodyStore.class,
+          BodyBytesMatcher.class,
+          TemplateRenderer.class,
+          FakerValuePool.class);
+
+  private volatile WireMockServices services;
+
+  @Override
+  public List<Extension> create(WireMockServices services) {
+    this.services = services;
+    return List.of();
+  }
+
+  /**
+   * Returns the names of the global extensions loaded by WireMock.
+   *
+   * @return the extension names, empty if there are none or WireMock has not loaded them yet
+   */
+  TreeSet<String> names() {
+    TreeSet<String> names = new TreeSet<>();
+    if (services == null) {
+      return names;
+    }
+    for (Extension extension : services.getExtensions().ofType(Extension.class).values()) {
+      if (isGlobal(extension)
+          && !extension.getClass().getName().startsWith("com.github.tomakehurst.wiremock.")
+          && !OWN_EXTENSIONS.contains(extension.getClass())) {
+        names.add(extension.getName());
+      }
+    }
+    return names;
+  }
+
+  /** Returns whether WireMock applies the extension to every stub. */
+  @SuppressWarnings("deprecation")
+  static boolean isGlobal(Extension extension) {
+    if (extension instanceof ResponseDefinitionTransformerV2 transformer) {
+      return transformer.applyGlobally();
+    }
+    if (extension instanceof ResponseTransformerV2 transformer) {
+      return transformer.applyGlobally();
+    }
+    if (extension instanceof ResponseDefinitionTransformer transformer) {
+      return transformer.applyGlobally();
+    }
+    if (extension instanceof ResponseTransformer transformer) {
+      return transformer.applyGlobally();
+    }
+    return extension instanceof ServeEventListener listener && listener.applyGlobally();
+  }
+}
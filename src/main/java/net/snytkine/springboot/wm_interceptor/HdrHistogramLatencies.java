@@ -0,0 +1,73 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.EncodableHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.springframework.util.ResourceUtils;
+
+/**
+ * Reads latency distributions recorded as HdrHistogram logs. Kept apart from {@link
+ * LatencySimulator} so HdrHistogram is only needed on the classpath when a profile uses a
+ * histogram file.
+ */
+final class HdrHistogramLatencies {
+
+  private HdrHistogramLatencies() {}
+
+  /**
+   * Reads all interval histograms of a log, merges them, and returns the latencies at evenly
+   * spaced quantiles.
+   *
+   * @param location the log location, a file path or a {@code classpath:} URL
+   * @param unit unit of the recorded values
+   * @param quantiles number of quantiles to return
+   * @return latencies in nanoseconds
+   * @throws IllegalStateException if the log cannot be read or contains no values
+   */
+  static long[] quantiles(String location, TimeUnit unit, int quantiles) {
+    Histogram merged = null;
+    try (InputStream in = ResourceUtils.getURL(location).openStream()) {
+      HistogramLogReader reader = new HistogramLogReader(in);
+      EncodableHistogram interval;
+      while ((interval = reader.nextIntervalHistogram()) != null) {
+        if (interval instanceof AbstractHistogram histogram) {
+          if (merged == null) {
+            merged = new Histogram(histogram.getNumberOfSignificantValueDigits());
+          }
+          merged.add(histogram);
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to read latency histogram " + location, e);
+    }
+    if (merged == null || merged.getTotalCount() == 0) {
+      throw new IllegalStateException("Latency histogram " + location + " has no values");
+    }
+
+    long[] latencies = new long[quantiles];
+    for (int i = 0; i < quantiles; i++) {
+      double percentile = (i + 0.5) * 100.0 / quantiles;
+      latencies[i] = unit.toNanos(merged.getValueAtPercentile(percentile));
+    }
+    return latencies;
+  }
+}
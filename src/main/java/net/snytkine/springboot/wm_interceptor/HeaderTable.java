@@ -0,0 +1,183 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-only, case-insensitive table of the headers of one request, built once so header matchers
+ * that run for every stub do not allocate.
+ *
+ * <p>Names are hashed case-insensitively character by character into an open-addressing table, so
+ * a lookup needs no lower case copy of the name and allocates nothing. The absent {@link
+ * HttpHeader}s returned for missing headers are shared between requests, up to {@value
+ * #MAX_SHARED_NAMES} names so arbitrary header names cannot exhaust memory. {@link HttpHeader}
+ * instances are created on first use and then reused for the rest of the request.
+ */
+final class HeaderTable {
+  private static final int MAX_SHARED_NAMES = 1024;
+
+  private static final Map<String, HttpHeader> ABSENT_HEADERS = new ConcurrentHashMap<>();
+
+  private final String[] names;
+
+  private final List<String>[] values;
+
+  /** Headers holding the first value only, as returned by {@link #header(String)}. */
+  private final HttpHeader[] firstValueHeaders;
+
+  /** Index + 1 of the header in each slot, 0 for an empty slot. */
+  private final int[] slots;
+
+  private Set<String> nameSet;
+
+  private HttpHeaders httpHeaders;
+
+  @SuppressWarnings("unchecked")
+  private HeaderTable(int size) {
+    this.names = new String[size];
+    this.values = new List[size];
+    this.firstValueHeaders = new HttpHeader[size];
+    // power of two at least twice the size, so probe sequences stay short
+    this.slots = new int[Integer.highestOneBit(Math.max(1, size) * 2 - 1) << 1];
+  }
+
+  /**
+   * Builds the table from Spring request headers.
+   *
+   * @param headers the request headers
+   * @return the table
+   */
+  static HeaderTable of(org.springframework.http.HttpHeaders headers) {
+    HeaderTable table = new HeaderTable(headers.size());
+    int i = 0;
+    for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+      String name = entry.getKey();
+      table.names[i] = name;
+      table.values[i] = entry.getValue() == null ? List.of() : entry.getValue();
+      int slot = hash(name) & (table.slots.length - 1);
+      while (table.slots[slot] != 0) {
+        slot = (slot + 1) & (table.slots.length - 1);
+      }
+      table.slots[slot] = i + 1;
+      i++;
+    }
+    return table;
+  }
+
+  private static int hash(String name) {
+    int h = 0;
+    for (int i = 0; i < name.length(); i++) {
+      h = 31 * h + Character.toLowerCase(name.charAt(i));
+    }
+    return h ^ (h >>> 16);
+  }
+
+  /** Returns the index of a header, -1 if the request does not have it. */
+  int indexOf(String name) {
+    if (name == null || names.length == 0) {
+      return -1;
+    }
+    int mask = slots.length - 1;
+    int slot = hash(name) & mask;
+    int entry;
+    while ((entry = slots[slot]) != 0) {
+      if (names[entry - 1].equalsIgnoreCase(name)) {
+        return entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /** Returns true if the request has the header. */
+  boolean contains(String name) {
+    return indexOf(name) >= 0;
+  }
+
+  /** Returns the first value of a header, null if the request does not have it. */
+  String first(String name) {
+    int i = indexOf(name);
+    return i < 0 || values[i].isEmpty() ? null : values[i].get(0);
+  }
+
+  /** Returns all values of a header, null if the request does not have it. */
+  List<String> values(String name) {
+    int i = indexOf(name);
+    return i < 0 ? null : values[i];
+  }
+
+  /**
+   * Returns a header with its first value only. Missing headers, and headers whose first value is
+   * empty, are returned as a shared absent header.
+   */
+  HttpHeader header(String name) {
+    int i = indexOf(name);
+    if (i < 0 || values[i].isEmpty() || values[i].get(0).isEmpty()) {
+      return absent(name);
+    }
+    HttpHeader header = firstValueHeaders[i];
+    if (header == null) {
+      header = new HttpHeader(names[i], List.of(values[i].get(0)));
+      firstValueHeaders[i] = header;
+    }
+    return header;
+  }
+
+  private static HttpHeader absent(String name) {
+    HttpHeader header = ABSENT_HEADERS.get(name);
+    if (header == null) {
+      header = new HttpHeader(name, Collections.emptyList());
+      if (ABSENT_HEADERS.size() < MAX_SHARED_NAMES) {
+        ABSENT_HEADERS.putIfAbsent(name, header);
+      }
+    }
+    return header;
+  }
+
+  /** Returns the header names as sent. */
+  Set<String> names() {
+    Set<String> set = nameSet;
+    if (set == null) {
+      set = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(names)));
+      nameSet = set;
+    }
+    return set;
+  }
+
+  /** Returns all headers with all their values. */
+  HttpHeaders httpHeaders() {
+    HttpHeaders all = httpHeaders;
+    if (all == null) {
+      List<HttpHeader> headers = new ArrayList<>(names.length);
+      for (int i = 0; i < names.length; i++) {
+        headers.add(new HttpHeader(names[i], values[i]));
+      }
+      all = new HttpHeaders(headers);
+      httpHeaders = all;
+    }
+    return all;
+  }
+}
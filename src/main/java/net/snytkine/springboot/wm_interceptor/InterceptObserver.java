@@ -0,0 +1,73 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import org.springframework.http.HttpRequest;
+
+/**
+ * Observes the requests handled by {@link WMInterceptor#intercept}, for tracing.
+ *
+ * <p>An observer is attached with {@link WMInterceptor#setObserver(InterceptObserver)}; without one
+ * the interceptor does no observation work at all. The Micrometer Observation implementation is
+ * attached automatically when the application has an {@code ObservationRegistry} with handlers.
+ */
+public interface InterceptObserver {
+
+  /**
+   * Starts observing a request.
+   *
+   * @param request the intercepted request
+   * @return the observation of the request, or null to leave it unobserved
+   */
+  Scope start(HttpRequest request);
+
+  /** Observation of a single request. Methods are called on the thread handling the request. */
+  interface Scope {
+
+    /** The request was sent to the real service because of a sampling rule. */
+    void sampledOut();
+
+    /**
+     * The request matched no stub.
+     *
+     * @param matchNanos time spent matching the request against the stubs
+     */
+    void unmatched(long matchNanos);
+
+    /**
+     * The request was answered with a mock response.
+     *
+     * @param stubId id of the matched stub, null if not known
+     * @param status status of the mock response
+     * @param matchNanos time spent matching the request against the stubs
+     * @param responseNanos time spent building the mock response, without simulated latency
+     */
+    void mocked(String stubId, int status, long matchNanos, long responseNanos);
+
+    /** The request is about to be sent to the real service, within this observation. */
+    void passThrough();
+
+    /**
+     * Handling the request failed.
+     *
+     * @param error the failure
+     */
+    void error(Throwable error);
+
+    /** Ends the observation. */
+    void stop();
+  }
+}
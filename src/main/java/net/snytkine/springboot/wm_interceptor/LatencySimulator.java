@@ -0,0 +1,209 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.LatencyProfile;
+
+/**
+ * Applies the configured {@link LatencyProfile latency profiles} to mock responses.
+ *
+ * <p>Each profile's latency distribution is turned into a table of {@value #QUANTILES} quantiles
+ * when the interceptor is created, so drawing a latency for a request is a single random array
+ * lookup. Delays are spent with {@link Thread#sleep(long, int)} on the calling thread: no extra
+ * threads are involved, and on a virtual thread the sleep parks it without holding on to a platform
+ * thread.
+ */
+class LatencySimulator {
+  /** Metadata key naming the latency profile of a stub. */
+  static final String STUB_METADATA_KEY = "latencyProfile";
+
+  static final int QUANTILES = 1000;
+
+  private final Map<String, Profile> profiles = new HashMap<>();
+
+  private final Map<String, Profile> byHost = new HashMap<>();
+
+  /**
+   * A compiled latency profile.
+   *
+   * @param name the profile name
+   * @param latencies latencies in nanoseconds at evenly spaced quantiles, null for no delay
+   * @param bandwidthBytesPerSecond cap on the rate the body can be read at, null for no cap
+   * @param errorRate fraction of responses replaced with an error
+   * @param errorStatus status of injected error responses
+   */
+  record Profile(
+      String name,
+      long[] latencies,
+      Long bandwidthBytesPerSecond,
+      double errorRate,
+      int errorStatus) {
+
+    /** Draws a latency from the profile, in nanoseconds. */
+    long sampleLatencyNanos() {
+      if (latencies == null) {
+        return 0;
+      }
+      return latencies[ThreadLocalRandom.current().nextInt(latencies.length)];
+    }
+
+    /** Waits for a latency drawn from the profile. */
+    void delay() throws InterruptedIOException {
+      sleepNanos(sampleLatencyNanos());
+    }
+
+    /** Decides whether this response should be replaced with an error. */
+    boolean shouldFail() {
+      return errorRate > 0.0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+  }
+
+  /**
+   * Compiles the latency profiles in the properties.
+   *
+   * @param properties the interceptor properties
+   * @throws IllegalArgumentException if a profile is invalid or a host refers to an unknown profile
+   * @throws IllegalStateException if a histogram file cannot be read
+   */
+  LatencySimulator(WireMockProperties properties) {
+    properties
+        .getLatencyProfiles()
+        .forEach((name, profile) -> profiles.put(name, compile(name, profile)));
+    properties
+        .getHostLatencyProfiles()
+        .forEach(
+            (host, name) -> {
+              Profile profile = profiles.get(name);
+              if (profile == null) {
+                throw new IllegalArgumentException(
+                    "Host " + host + " refers to unknown latency profile " + name);
+              }
+              byHost.put(host.toLowerCase(Locale.ROOT), profile);
+            });
+  }
+
+  /**
+   * Returns the profile to apply to a mock response: the one named in the matched stub's metadata,
+   * otherwise the one attached to the request host.
+   *
+   * @param host the request host
+   * @param stub the matched stub, may be null
+   * @return the profile, or null if none applies
+   */
+  Profile profileFor(String host, StubMapping stub) {
+    if (profiles.isEmpty()) {
+      return null;
+    }
+    if (stub != null && stub.getMetadata() != null) {
+      Object name = stub.getMetadata().get(STUB_METADATA_KEY);
+      if (name != null && profiles.containsKey(name.toString())) {
+        return profiles.get(name.toString());
+      }
+    }
+    return host == null ? null : byHost.get(host.toLowerCase(Locale.ROOT));
+  }
+
+  private static Profile compile(String name, LatencyProfile profile) {
+    if (profile.getErrorRate() < 0.0 || profile.getErrorRate() > 1.0) {
+      throw new IllegalArgumentException(
+          "Error rate of latency profile " + name + " must be between 0.0 and 1.0");
+    }
+    if (profile.getBandwidthBytesPerSecond() != null && profile.getBandwidthBytesPerSecond() <= 0) {
+      throw new IllegalArgumentException(
+          "Bandwidth of latency profile " + name + " must be positive");
+    }
+    long[] latencies = null;
+    if (profile.getHistogramFile() != null) {
+      latencies =
+          HdrHistogramLatencies.quantiles(
+              profile.getHistogramFile(), profile.getHistogramUnit(), QUANTILES);
+    } else if (!profile.getPercentiles().isEmpty()) {
+      latencies = fromPercentiles(name, profile.getPercentiles());
+    }
+    return new Profile(
+        name,
+        latencies,
+        profile.getBandwidthBytesPerSecond(),
+        profile.getErrorRate(),
+        profile.getErrorStatus());
+  }
+
+  /**
+   * Builds the quantile table from percentile targets, interpolating linearly between them. Below
+   * the lowest target the lowest latency is used, above the highest the highest.
+   */
+  static long[] fromPercentiles(String name, Map<String, Duration> percentiles) {
+    TreeMap<Double, Long> targets = new TreeMap<>();
+    percentiles.forEach(
+        (percentile, latency) -> {
+          double p;
+          try {
+            p = Double.parseDouble(percentile);
+          } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(
+                "Invalid percentile " + percentile + " in latency profile " + name, e);
+          }
+          if (p < 0.0 || p > 100.0) {
+            throw new IllegalArgumentException(
+                "Percentile " + percentile + " in latency profile " + name + " is out of range");
+          }
+          targets.put(p, latency.toNanos());
+        });
+
+    long[] latencies = new long[QUANTILES];
+    for (int i = 0; i < QUANTILES; i++) {
+      double p = (i + 0.5) * 100.0 / QUANTILES;
+      Map.Entry<Double, Long> below = targets.floorEntry(p);
+      Map.Entry<Double, Long> above = targets.ceilingEntry(p);
+      if (below == null) {
+        latencies[i] = above.getValue();
+      } else if (above == null || above.getKey().equals(below.getKey())) {
+        latencies[i] = below.getValue();
+      } else {
+        double fraction = (p - below.getKey()) / (above.getKey() - below.getKey());
+        latencies[i] =
+            below.getValue() + Math.round(fraction * (above.getValue() - below.getValue()));
+      }
+    }
+    return latencies;
+  }
+
+  /**
+   * Sleeps on the calling thread, restoring the interrupt flag and failing the request if the
+   * thread is interrupted.
+   */
+  static void sleepNanos(long nanos) throws InterruptedIOException {
+    if (nanos <= 0) {
+      return;
+    }
+    try {
+      TimeUnit.NANOSECONDS.sleep(nanos);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while simulating latency");
+    }
+  }
+}
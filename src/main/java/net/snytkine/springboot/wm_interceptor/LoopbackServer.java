@@ -0,0 +1,176 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.lang.NonNull;
+
+/**
+ * HTTP/1.1 listener on the loopback interface that serves the stubs of an interceptor to clients
+ * that cannot use it, such as Netty or gRPC-transcoded clients.
+ *
+ * <p>Requests are handled by the JDK HTTP server, one virtual thread per request, and go through
+ * the same matching path as intercepted requests: one stub set, one request journal and the same
+ * match cache, latency profiles and statistics. A request that is not mocked has no real service
+ * to go to and is answered with {@code 404}.
+ */
+@Slf4j
+class LoopbackServer {
+  /** Matches a request, returning the mock response or null if it is not mocked. */
+  @FunctionalInterface
+  interface MockHandler {
+    ClientHttpResponse mock(HttpRequest request, byte[] body) throws IOException;
+  }
+
+  private static final byte[] NOT_MATCHED =
+      "No stub matched the request".getBytes(StandardCharsets.UTF_8);
+
+  private final HttpServer server;
+
+  private final ExecutorService executor;
+
+  private final MockHandler handler;
+
+  /**
+   * Starts the listener.
+   *
+   * @param port port to listen on, 0 for any free port
+   * @param handler matches the received requests
+   * @throws IOException if the port cannot be bound
+   */
+  LoopbackServer(int port, MockHandler handler) throws IOException {
+    this.handler = handler;
+    this.server =
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+    log.info("Serving stubs on http://{}:{}", server.getAddress().getHostString(), getPort());
+  }
+
+  /** Returns the port the listener is bound to. */
+  int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops accepting requests and waits up to the given time for requests being served.
+   *
+   * @param delaySeconds maximum time to wait for requests being served, in seconds
+   */
+  void stop(int delaySeconds) {
+    server.stop(delaySeconds);
+    executor.shutdownNow();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      byte[] body;
+      try (InputStream in = exchange.getRequestBody()) {
+        body = in.readAllBytes();
+      }
+      ClientHttpResponse response = handler.mock(new ExchangeRequest(exchange), body);
+      boolean noBody = "HEAD".equals(exchange.getRequestMethod());
+      if (response == null) {
+        exchange.sendResponseHeaders(404, noBody ? -1 : NOT_MATCHED.length);
+        if (!noBody) {
+          exchange.getResponseBody().write(NOT_MATCHED);
+        }
+        return;
+      }
+      try (response) {
+        byte[] responseBody;
+        try (InputStream in = response.getBody()) {
+          responseBody = in.readAllBytes();
+        }
+        response
+            .getHeaders()
+            .forEach(
+                (name, values) -> {
+                  if (!"Content-Length".equalsIgnoreCase(name)
+                      && !"Transfer-Encoding".equalsIgnoreCase(name)) {
+                    exchange.getResponseHeaders().put(name, values);
+                  }
+                });
+        int status = response.getStatusCode().value();
+        noBody |= status == 204 || status == 304 || responseBody.length == 0;
+        exchange.sendResponseHeaders(status, noBody ? -1 : responseBody.length);
+        if (!noBody) {
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(responseBody);
+          }
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Failed to serve {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+      throw e;
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /** A received request seen as a Spring {@link HttpRequest}, addressed to its Host header. */
+  private static class ExchangeRequest implements HttpRequest {
+    private final HttpExchange exchange;
+
+    private final org.springframework.http.HttpHeaders headers;
+
+    ExchangeRequest(HttpExchange exchange) {
+      this.exchange = exchange;
+      this.headers = new org.springframework.http.HttpHeaders();
+      for (Map.Entry<String, List<String>> header : exchange.getRequestHeaders().entrySet()) {
+        headers.addAll(header.getKey(), header.getValue());
+      }
+    }
+
+    @Override
+    public @NonNull HttpMethod getMethod() {
+      return HttpMethod.valueOf(exchange.getRequestMethod());
+    }
+
+    @Override
+    public @NonNull URI getURI() {
+      String host = headers.getFirst(org.springframework.http.HttpHeaders.HOST);
+      if (host == null || host.isBlank()) {
+        InetSocketAddress local = exchange.getLocalAddress();
+        host = local.getHostString() + ":" + local.getPort();
+      }
+      return URI.create("http://" + host + exchange.getRequestURI().toString());
+    }
+
+    @Override
+    public @NonNull org.springframework.http.HttpHeaders getHeaders() {
+      return headers;
+    }
+  }
+}
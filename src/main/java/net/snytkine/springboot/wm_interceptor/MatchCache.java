@@ -0,0 +1,306 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the stub matched by a request and its rendered response, so repeated identical requests
+ * skip WireMock matching.
+ *
+ * <p>A request is identified by its method, absolute URL, body and the values of the headers that
+ * any stub matches on; the header names are collected from the stub set, so the key always covers
+ * everything a stub can look at. Only matches to stubs whose outcome cannot change between
+ * identical requests are cached: the stub must not be part of a scenario, have a custom matcher
+ * other than the {@link BodyBytesMatcher}, a transformer, a delay, a fault, a proxy or serve
+ * actions, and no stub that can change outcome (scenarios, custom matchers) may come before it in
+ * matching order. Requests with bodies over {@value #MAX_BODY_BYTES} bytes are not cached, and
+ * neither are unmatched requests.
+ *
+ * <p>The cache holds at most {@code maxEntries} entries, and at most {@code maxBytes} of estimated
+ * memory, and evicts the oldest first. An entry is sized by its key; the response shares its body
+ * with the stub definition. It is emptied whenever the stub set changes, see {@link
+ * StubSetVersion}. Cache hits are not recorded in the WireMock request journal.
+ */
+class MatchCache {
+  static final int MAX_BODY_BYTES = 16 * 1024;
+
+  /** Estimated bytes of an entry besides its URL, header values and body. */
+  static final int ENTRY_OVERHEAD = 256;
+
+  private final StubEngine engine;
+
+  private final int maxEntries;
+
+  private final long maxBytes;
+
+  /**
+   * Whether templating or an extension of the application applies to every stub, in which case no
+   * match is cached, see {@link GlobalExtensions}.
+   */
+  private final boolean global;
+
+  private volatile Generation generation;
+
+  /**
+   * A matched stub with its rendered response.
+   *
+   * @param stub the matched stub
+   * @param response the response WireMock rendered for it
+   */
+  record Entry(StubMapping stub, Response response) {}
+
+  /**
+   * Cache contents built from one version of the stub set.
+   *
+   * @param version the stub set version
+   * @param headers lower case names of the headers stubs match on, sorted
+   * @param cacheable ids of the stubs whose matches may be cached
+   * @param entries cached entries
+   * @param order keys in insertion order, for eviction
+   * @param bytes estimated size of the entries
+   */
+  private record Generation(
+      long version,
+      String[] headers,
+      Set<UUID> cacheable,
+      Map<Key, Entry> entries,
+      Queue<Key> order,
+      AtomicLong bytes) {}
+
+  /** Identity of a request, with its hash computed once. */
+  private record Key(String method, String url, Object[] headers, byte[] body, int hash) {
+    static Key of(Request request, String[] headerNames) {
+      Object[] headers = new Object[headerNames.length];
+      for (int i = 0; i < headerNames.length; i++) {
+        HttpHeader header = request.header(headerNames[i]);
+        headers[i] = header.isPresent() ? header.values() : null;
+      }
+      String method = request.getMethod().getName();
+      String url = request.getAbsoluteUrl();
+      byte[] body = request.getBody() == null ? new byte[0] : request.getBody();
+      int hash = method.hashCode();
+      hash = 31 * hash + url.hashCode();
+      hash = 31 * hash + Arrays.hashCode(headers);
+      hash = 31 * hash + Arrays.hashCode(body);
+      return new Key(method, url, headers, body, hash);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key other
+          && hash == other.hash
+          && method.equals(other.method)
+          && url.equals(other.url)
+          && Arrays.equals(headers, other.headers)
+          && Arrays.equals(body, other.body);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    long estimatedBytes() {
+      long bytes = ENTRY_OVERHEAD + 2L * (method.length() + url.length()) + body.length;
+      for (Object values : headers) {
+        bytes += values == null ? 0 : 2L * values.toString().length();
+      }
+      return bytes;
+    }
+  }
+
+  /** Result of looking a request up; a miss can be filled in once the request has been matched. */
+  final class Lookup {
+    private final Generation generation;
+
+    private final Key key;
+
+    private final Entry entry;
+
+    private Lookup(Generation generation, Key key, Entry entry) {
+      this.generation = generation;
+      this.key = key;
+      this.entry = entry;
+    }
+
+    /** Returns the cached entry, or null on a miss. */
+    Entry entry() {
+      return entry;
+    }
+
+    /**
+     * Caches the outcome of matching the request, if the matched stub allows it.
+     *
+     * @param stub the matched stub, may be null
+     * @param response the rendered response
+     */
+    void store(StubMapping stub, Response response) {
+      if (key == null || stub == null || !generation.cacheable().contains(stub.getId())) {
+        return;
+      }
+      if (generation.entries().putIfAbsent(key, new Entry(stub, response)) == null) {
+        generation.order().add(key);
+        generation.bytes().addAndGet(key.estimatedBytes());
+        while (generation.entries().size() > maxEntries || generation.bytes().get() > maxBytes) {
+          Key eldest = generation.order().poll();
+          if (eldest == null) {
+            break;
+          }
+          if (generation.entries().remove(eldest) != null) {
+            generation.bytes().addAndGet(-eldest.estimatedBytes());
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the cache for the stubs of an engine.
+   *
+   * @param engine the engine whose stubs are matched
+   * @param maxEntries maximum number of cached requests
+   * @param maxBytes maximum estimated size of the cached entries, null for no limit
+   * @param globalTemplating whether response templating applies to all stubs, in which case no
+   *     match is cached
+   * @throws IllegalArgumentException if maxEntries is not positive
+   */
+  MatchCache(StubEngine engine, int maxEntries, Long maxBytes, boolean globalTemplating) {
+    if (maxEntries <= 0) {
+      throw new IllegalArgumentException("Match cache size must be positive");
+    }
+    this.engine = engine;
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes == null ? Long.MAX_VALUE : maxBytes;
+    this.global = globalTemplating || engine.hasGlobalExtensions();
+    this.generation = build(-1, List.of());
+  }
+
+  /**
+   * Looks a request up.
+   *
+   * @param request the request to be matched
+   * @return the lookup, with the cached entry on a hit
+   */
+  Lookup lookup(Request request) {
+    Generation current = current();
+    if (current.cacheable().isEmpty()
+        || request.isMultipart()
+        || (request.getBody() != null && request.getBody().length > MAX_BODY_BYTES)) {
+      return new Lookup(current, null, null);
+    }
+    Key key = Key.of(request, current.headers());
+    return new Lookup(current, key, current.entries().get(key));
+  }
+
+  /** Returns the number of cached requests. */
+  int size() {
+    return current().entries().size();
+  }
+
+  /** Returns the estimated size of the cached entries. */
+  long estimatedBytes() {
+    return current().bytes().get();
+  }
+
+  private Generation current() {
+    Generation current = generation;
+    long version = engine.getStubSetVersion();
+    if (current.version() != version) {
+      current = build(version, engine.getStubMappings());
+      generation = current;
+    }
+    return current;
+  }
+
+  /** Works out the headers to key on and the cacheable stubs, walking stubs in matching order. */
+  private Generation build(long version, List<StubMapping> stubs) {
+    Set<String> headers = new TreeSet<>();
+    Set<UUID> cacheable = new HashSet<>();
+    boolean volatileBefore = false;
+    for (StubMapping stub : stubs) {
+      RequestPattern pattern = stub.getRequest();
+      if (pattern == null) {
+        continue;
+      }
+      if (pattern.getHeaders() != null) {
+        pattern.getHeaders().keySet().forEach(name -> headers.add(name.toLowerCase(Locale.ROOT)));
+      }
+      if (pattern.getCookies() != null && !pattern.getCookies().isEmpty()) {
+        headers.add("cookie");
+      }
+      if (pattern.getBasicAuthCredentials() != null) {
+        headers.add("authorization");
+      }
+      boolean volatileMatch =
+          stub.isInScenario()
+              || (pattern.getCustomMatcher() != null
+                  && !BodyBytesMatcher.NAME.equals(pattern.getCustomMatcher().getName()))
+              || pattern.hasInlineCustomMatcher();
+      if (!volatileBefore && !volatileMatch && !global && isStatic(stub)) {
+        cacheable.add(stub.getId());
+      }
+      volatileBefore |= volatileMatch;
+    }
+    // form and multipart matchers read the body according to its content type
+    headers.add("content-type");
+    return new Generation(
+        version,
+        headers.toArray(new String[0]),
+        Set.copyOf(cacheable),
+        new ConcurrentHashMap<>(),
+        new ConcurrentLinkedQueue<>(),
+        new AtomicLong());
+  }
+
+  /**
+   * Whether the response of a stub is the same for every request it matches: it has no
+   * transformers, fault, proxy, delay, or serve actions.
+   */
+  static boolean isStatic(StubMapping stub) {
+    ResponseDefinition response = stub.getResponse();
+    return response != null
+        && (response.getTransformers() == null || response.getTransformers().isEmpty())
+        && response.getFault() == null
+        && response.getProxyBaseUrl() == null
+        && response.getFixedDelayMilliseconds() == null
+        && response.getDelayDistribution() == null
+        && response.getChunkedDribbleDelay() == null
+        && isEmpty(stub.getPostServeActions())
+        && isEmpty(stub.getServeEventListeners());
+  }
+
+  private static boolean isEmpty(List<?> list) {
+    return list == null || list.isEmpty();
+  }
+}
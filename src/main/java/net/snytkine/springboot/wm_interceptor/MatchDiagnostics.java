@@ -0,0 +1,425 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.matching.EqualToPattern;
+import com.github.tomakehurst.wiremock.matching.RegexPattern;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.matching.StringValuePattern;
+import com.github.tomakehurst.wiremock.matching.UrlPathTemplatePattern;
+import com.github.tomakehurst.wiremock.matching.UrlPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cheap diagnostics of requests that matched no stub, kept in a bounded ring buffer.
+ *
+ * <p>WireMock's near-miss analysis runs every matcher of every stub against the request, including
+ * body matchers, which is too expensive to leave on under load. This only looks at the method and
+ * URL of each stub: it records the first matching stage that rejected the request, see {@link
+ * Stage}, and the {@value #CANDIDATES} stubs closest to it by a score built from those two. Only
+ * unmatched requests are diagnosed, and recording is lock-free: the newest entries overwrite the
+ * oldest.
+ *
+ * <p>Stubs are indexed by the first segment of the literal prefix of their URL, for example {@code
+ * /orders} for {@code /orders/\d+}, whenever that prefix is known. The URL matchers, regexes
+ * included, only run for the stubs of the request's first segment and for the few stubs whose URL
+ * has no such prefix; no other stub can match the URL. When those yield fewer than {@value
+ * #CANDIDATES} candidates, the stubs whose URLs sort next to the request URL fill the list.
+ */
+public class MatchDiagnostics {
+  static final int CANDIDATES = 3;
+
+  /** The matching stage that rejected a request. */
+  public enum Stage {
+    /** No stubs are loaded. */
+    NO_STUBS,
+    /** No stub accepts the request method. */
+    METHOD,
+    /** Stubs accept the method, but none of them the URL. */
+    URL,
+    /**
+     * At least one stub accepts the method and the URL; the request failed on headers, query
+     * parameters, cookies, body or scenario state.
+     */
+    OTHER_CRITERIA
+  }
+
+  /**
+   * A stub close to an unmatched request.
+   *
+   * @param id the stub id
+   * @param name the stub name, may be null
+   * @param method the method the stub accepts
+   * @param url the URL or URL pattern the stub accepts, null if it accepts any URL
+   * @param score closeness to the request: 1 for the method, 2 for the URL, and the shared prefix
+   *     fraction of the URL when it does not match
+   */
+  public record Candidate(UUID id, String name, String method, String url, double score) {}
+
+  /**
+   * Diagnosis of one unmatched request.
+   *
+   * @param time when the request was diagnosed
+   * @param method the request method
+   * @param url the request URL
+   * @param rejectedAt the stage that rejected the request
+   * @param candidates the closest stubs, closest first
+   */
+  public record Diagnosis(
+      Instant time, String method, String url, Stage rejectedAt, List<Candidate> candidates) {}
+
+  /**
+   * A stub prepared for diagnosis.
+   *
+   * @param order position of the stub in matching order
+   * @param stub the stub
+   * @param expectedUrl the URL or URL pattern the stub accepts, null if it accepts any URL
+   */
+  private record Indexed(int order, StubMapping stub, String expectedUrl) {}
+
+  /**
+   * The stubs of one stub set version, indexed.
+   *
+   * @param version the stub set version
+   * @param empty whether no stubs are loaded
+   * @param methods names of the methods stubs accept, empty if some stub accepts any method
+   * @param bySegment stubs whose URL has a known first segment, by that segment
+   * @param wide stubs whose URL may start with any segment, in matching order
+   * @param byUrl stubs by expected URL, for finding neighbours of a request URL
+   */
+  private record Snapshot(
+      long version,
+      boolean empty,
+      Set<String> methods,
+      Map<String, List<Indexed>> bySegment,
+      List<Indexed> wide,
+      TreeMap<String, List<Indexed>> byUrl) {}
+
+  private final StubEngine engine;
+
+  private final AtomicReferenceArray<Diagnosis> entries;
+
+  private final AtomicLong recorded = new AtomicLong();
+
+  private volatile Snapshot snapshot =
+      new Snapshot(-1, true, Set.of(), Map.of(), List.of(), new TreeMap<>());
+
+  /**
+   * Creates the diagnostics for the stubs of an engine.
+   *
+   * @param engine the engine whose stubs requests are compared with
+   * @param capacity number of diagnoses kept
+   * @throws IllegalArgumentException if capacity is not positive
+   */
+  MatchDiagnostics(StubEngine engine, int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Match diagnostics capacity must be positive");
+    }
+    this.engine = engine;
+    this.entries = new AtomicReferenceArray<>(capacity);
+  }
+
+  /**
+   * Diagnoses an unmatched request and records the result.
+   *
+   * @param request the request that matched no stub
+   * @return the diagnosis
+   */
+  Diagnosis record(Request request) {
+    Diagnosis diagnosis = diagnose(request);
+    long slot = recorded.getAndIncrement();
+    entries.set((int) (slot % entries.length()), diagnosis);
+    return diagnosis;
+  }
+
+  private Diagnosis diagnose(Request request) {
+    Snapshot stubs = stubs();
+    String url = request.getUrl();
+    String requestMethod = request.getMethod().getName();
+    Stage stage = Stage.NO_STUBS;
+    if (!stubs.empty()) {
+      stage =
+          stubs.methods().isEmpty() || stubs.methods().contains(requestMethod)
+              ? Stage.URL
+              : Stage.METHOD;
+    }
+    List<Candidate> top = new ArrayList<>(CANDIDATES + 1);
+    Set<StubMapping> scored = new HashSet<>();
+    for (Indexed indexed :
+        merge(stubs.bySegment().getOrDefault(firstSegment(url), List.of()), stubs.wide())) {
+      StubMapping stub = indexed.stub();
+      RequestPattern pattern = stub.getRequest();
+      boolean methodMatches = methodMatches(pattern, request);
+      UrlPattern urlPattern = pattern.getUrlMatcher();
+      boolean urlMatches = urlPattern == null || urlPattern.match(url).isExactMatch();
+      if (urlMatches && methodMatches) {
+        stage = Stage.OTHER_CRITERIA;
+      }
+      double score = (methodMatches ? 1.0 : 0.0) + (urlMatches ? 2.0 : 0.0);
+      if (!urlMatches) {
+        score += sharedPrefix(url, indexed.expectedUrl());
+      }
+      offer(top, stub, indexed.expectedUrl(), score);
+      scored.add(stub);
+    }
+    if (top.size() < CANDIDATES) {
+      // none of these stubs can match the URL, so only the method and the prefix count
+      for (Indexed indexed : neighbours(stubs.byUrl(), url)) {
+        if (scored.add(indexed.stub())) {
+          double score =
+              (methodMatches(indexed.stub().getRequest(), request) ? 1.0 : 0.0)
+                  + sharedPrefix(url, indexed.expectedUrl());
+          offer(top, indexed.stub(), indexed.expectedUrl(), score);
+        }
+      }
+    }
+    return new Diagnosis(Instant.now(), requestMethod, url, stage, List.copyOf(top));
+  }
+
+  private static boolean methodMatches(RequestPattern pattern, Request request) {
+    RequestMethod method = pattern.getMethod();
+    return method == null || method.match(request.getMethod()).isExactMatch();
+  }
+
+  /** Merges two lists of stubs in matching order. */
+  private static List<Indexed> merge(List<Indexed> a, List<Indexed> b) {
+    if (b.isEmpty()) {
+      return a;
+    }
+    if (a.isEmpty()) {
+      return b;
+    }
+    List<Indexed> merged = new ArrayList<>(a.size() + b.size());
+    int i = 0;
+    int j = 0;
+    while (i < a.size() || j < b.size()) {
+      if (j == b.size() || (i < a.size() && a.get(i).order() < b.get(j).order())) {
+        merged.add(a.get(i++));
+      } else {
+        merged.add(b.get(j++));
+      }
+    }
+    return merged;
+  }
+
+  /** Returns up to {@code 2 * CANDIDATES} stubs whose expected URLs sort next to the URL. */
+  private static List<Indexed> neighbours(TreeMap<String, List<Indexed>> byUrl, String url) {
+    List<Indexed> result = new ArrayList<>(2 * CANDIDATES);
+    String lower = byUrl.floorKey(url);
+    String higher = byUrl.higherKey(url);
+    while (result.size() < 2 * CANDIDATES && (lower != null || higher != null)) {
+      if (lower != null) {
+        result.addAll(byUrl.get(lower));
+        lower = byUrl.lowerKey(lower);
+      }
+      if (higher != null) {
+        result.addAll(byUrl.get(higher));
+        higher = byUrl.higherKey(higher);
+      }
+    }
+    return result;
+  }
+
+  /** Keeps the best {@value #CANDIDATES} candidates, earlier stubs winning ties. */
+  private static void offer(List<Candidate> top, StubMapping stub, String url, double score) {
+    if (top.size() == CANDIDATES && top.get(CANDIDATES - 1).score() >= score) {
+      return;
+    }
+    RequestMethod method = stub.getRequest().getMethod();
+    top.add(
+        new Candidate(
+            stub.getId(), stub.getName(), method == null ? null : method.getName(), url, score));
+    top.sort(Comparator.comparingDouble(Candidate::score).reversed());
+    if (top.size() > CANDIDATES) {
+      top.remove(CANDIDATES);
+    }
+  }
+
+  private static String expectedUrl(UrlPattern urlPattern) {
+    if (urlPattern == null || urlPattern.getPattern() == null) {
+      return null;
+    }
+    return urlPattern.getPattern().getExpected();
+  }
+
+  /** Fraction of the expected URL shared as a prefix by the request URL, from 0 to 1. */
+  static double sharedPrefix(String url, String expected) {
+    if (expected == null || expected.isEmpty()) {
+      return 0.0;
+    }
+    int max = Math.min(url.length(), expected.length());
+    int i = 0;
+    while (i < max && url.charAt(i) == expected.charAt(i)) {
+      i++;
+    }
+    return (double) i / expected.length();
+  }
+
+  private Snapshot stubs() {
+    Snapshot current = snapshot;
+    long version = engine.getStubSetVersion();
+    if (current.version() != version) {
+      current = index(version, engine.getStubMappings());
+      snapshot = current;
+    }
+    return current;
+  }
+
+  private static Snapshot index(long version, List<StubMapping> stubs) {
+    Set<String> methods = new HashSet<>();
+    boolean anyMethod = false;
+    Map<String, List<Indexed>> bySegment = new HashMap<>();
+    List<Indexed> wide = new ArrayList<>();
+    TreeMap<String, List<Indexed>> byUrl = new TreeMap<>();
+    int order = 0;
+    for (StubMapping stub : stubs) {
+      RequestPattern pattern = stub.getRequest();
+      if (pattern == null) {
+        continue;
+      }
+      RequestMethod method = pattern.getMethod();
+      if (method == null || RequestMethod.ANY.equals(method)) {
+        anyMethod = true;
+      } else {
+        methods.add(method.getName());
+      }
+      Indexed indexed = new Indexed(order++, stub, expectedUrl(pattern.getUrlMatcher()));
+      String segment = segmentOf(pattern.getUrlMatcher());
+      if (segment == null) {
+        wide.add(indexed);
+      } else {
+        bySegment.computeIfAbsent(segment, k -> new ArrayList<>()).add(indexed);
+      }
+      if (indexed.expectedUrl() != null) {
+        byUrl.computeIfAbsent(indexed.expectedUrl(), k -> new ArrayList<>()).add(indexed);
+      }
+    }
+    return new Snapshot(
+        version, order == 0, anyMethod ? Set.of() : methods, bySegment, wide, byUrl);
+  }
+
+  /**
+   * Returns the first segment every URL the pattern accepts starts with, for example {@code
+   * /orders} for {@code /orders/\d+}, or null if it is not known.
+   */
+  static String segmentOf(UrlPattern urlPattern) {
+    if (urlPattern == null) {
+      return null;
+    }
+    StringValuePattern pattern = urlPattern.getPattern();
+    String prefix;
+    boolean exact = false;
+    if (urlPattern instanceof UrlPathTemplatePattern) {
+      String template = pattern.getExpected();
+      int brace = template.indexOf('{');
+      prefix = brace < 0 ? template : template.substring(0, brace);
+      exact = brace < 0;
+    } else if (pattern instanceof RegexPattern) {
+      prefix = regexPrefix(pattern.getExpected());
+    } else if (pattern instanceof EqualToPattern equalTo
+        && !Boolean.TRUE.equals(equalTo.getCaseInsensitive())) {
+      prefix = equalTo.getExpected();
+      exact = true;
+    } else {
+      return null;
+    }
+    if (!prefix.startsWith("/")) {
+      return null;
+    }
+    int end = segmentEnd(prefix);
+    if (end < prefix.length()) {
+      return prefix.substring(0, end);
+    }
+    // the prefix may continue the segment unless it is the whole URL
+    return exact ? prefix : null;
+  }
+
+  /** Returns the first segment of a request URL, e.g. {@code /orders} for {@code /orders/1?a}. */
+  static String firstSegment(String url) {
+    return url.substring(0, segmentEnd(url));
+  }
+
+  private static int segmentEnd(String url) {
+    for (int i = 1; i < url.length(); i++) {
+      char c = url.charAt(i);
+      if (c == '/' || c == '?') {
+        return i;
+      }
+    }
+    return url.length();
+  }
+
+  /** Returns the literal text every match of a regex starts with, possibly empty. */
+  static String regexPrefix(String regex) {
+    if (regex.indexOf('|') >= 0) {
+      return "";
+    }
+    StringBuilder prefix = new StringBuilder();
+    for (int i = regex.startsWith("^") ? 1 : 0; i < regex.length(); i++) {
+      char c = regex.charAt(i);
+      if ("*+?{".indexOf(c) >= 0) {
+        // the quantifier makes the previous character optional or repeated
+        if (!prefix.isEmpty()) {
+          prefix.setLength(prefix.length() - 1);
+        }
+        break;
+      }
+      if ("\\.[]()^$}".indexOf(c) >= 0) {
+        break;
+      }
+      prefix.append(c);
+    }
+    return prefix.toString();
+  }
+
+  /** Returns the number of unmatched requests diagnosed so far. */
+  public long getRecorded() {
+    return recorded.get();
+  }
+
+  /** Returns the maximum number of diagnoses kept. */
+  public int getCapacity() {
+    return entries.length();
+  }
+
+  /** Returns the diagnoses kept, newest first. */
+  public List<Diagnosis> recent() {
+    long end = recorded.get();
+    long start = Math.max(0, end - entries.length());
+    List<Diagnosis> result = new ArrayList<>((int) (end - start));
+    for (long i = end - 1; i >= start; i--) {
+      Diagnosis diagnosis = entries.get((int) (i % entries.length()));
+      if (diagnosis != null) {
+        result.add(diagnosis);
+      }
+    }
+    return result;
+  }
+}
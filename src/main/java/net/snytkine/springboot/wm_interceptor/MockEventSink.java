@@ -0,0 +1,315 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.EventLog;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.EventLogFormat;
+
+/**
+ * Writes a structured record of every routing decision of the interceptor to a file, off the
+ * request path.
+ *
+ * <p>Trace logging and WireMock's stub request logging are too slow to leave on in load runs. This
+ * sink instead hands each {@link Event} to a lock-free queue, bounded to {@code queueCapacity}
+ * events, and a background thread writes them out as JSON lines or fixed binary records. When the
+ * queue is full the event is dropped and counted in {@link WMInterceptorStats#getEventsDropped()};
+ * recording an event never blocks the request.
+ */
+@Slf4j
+class MockEventSink {
+  static final String THREAD_NAME = "wm-interceptor-event-sink";
+
+  /** Version written at the start of binary files, changed when the record layout changes. */
+  static final int BINARY_VERSION = 1;
+
+  /** How long {@link #close(long)} waits for the writer when given no positive timeout. */
+  static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = 5000;
+
+  /** How long the writer sleeps when the queue is empty. */
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+  /** Routing decision recorded by an event. */
+  enum Outcome {
+    MOCKED,
+    UNMATCHED,
+    SAMPLED_OUT
+  }
+
+  /**
+   * A routing decision of the interceptor.
+   *
+   * @param timestampMillis when the request was intercepted, in epoch milliseconds
+   * @param outcome what the interceptor did with the request
+   * @param stubId id of the matched stub, null unless mocked
+   * @param method the request method
+   * @param host the request host
+   * @param path the request path
+   * @param status status of the mock response, 0 unless mocked
+   * @param matchNanos time spent matching the request against the stubs
+   * @param requestBytes size of the request body
+   * @param responseBytes size of the mock response body, -1 unless mocked
+   */
+  record Event(
+      long timestampMillis,
+      Outcome outcome,
+      String stubId,
+      String method,
+      String host,
+      String path,
+      int status,
+      long matchNanos,
+      int requestBytes,
+      long responseBytes) {}
+
+  private final ConcurrentLinkedQueue<Event> queue = new ConcurrentLinkedQueue<>();
+
+  /** Number of events queued, kept apart because the queue's own size is not constant-time. */
+  private final AtomicInteger queued = new AtomicInteger();
+
+  private final int capacity;
+
+  private final EventLogFormat format;
+
+  private final OutputStream out;
+
+  private final WMInterceptorStats stats;
+
+  private final Thread writer;
+
+  private volatile boolean closed;
+
+  /** Set when close gave up waiting: the writer drops what is left and closes the file. */
+  private volatile boolean abandoned;
+
+  /**
+   * Opens the event file and starts the writer thread. The file is appended to if it exists.
+   *
+   * @param settings the event log settings
+   * @param stats the statistics dropped events are counted in
+   * @throws IllegalArgumentException if the queue capacity is not positive
+   * @throws IllegalStateException if the file cannot be opened
+   */
+  MockEventSink(EventLog settings, WMInterceptorStats stats) {
+    if (settings.getQueueCapacity() <= 0) {
+      throw new IllegalArgumentException("Event log queue capacity must be positive");
+    }
+    this.capacity = settings.getQueueCapacity();
+    this.format = settings.getFormat();
+    this.stats = stats;
+    Path file = Path.of(settings.getFile());
+    try {
+      if (file.getParent() != null) {
+        Files.createDirectories(file.getParent());
+      }
+      boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+      this.out =
+          new BufferedOutputStream(
+              Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND),
+              64 * 1024);
+      if (fresh && format == EventLogFormat.BINARY) {
+        new DataOutputStream(out).writeInt(BINARY_VERSION);
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to open event log " + file, e);
+    }
+    this.writer = new Thread(this::drain, THREAD_NAME);
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /**
+   * Queues an event for writing, or drops it if the queue is full.
+   *
+   * @return true if the event was queued
+   */
+  boolean record(Event event) {
+    if (closed) {
+      stats.recordEventDropped();
+      return false;
+    }
+    if (queued.incrementAndGet() > capacity) {
+      queued.decrementAndGet();
+      stats.recordEventDropped();
+      return false;
+    }
+    queue.offer(event);
+    return true;
+  }
+
+  private void drain() {
+    try {
+      write();
+    } finally {
+      try {
+        out.close();
+      } catch (IOException e) {
+        log.warn("Unable to close event log", e);
+      }
+    }
+  }
+
+  /** Writes queued events until the sink is closed and the queue empty, or close gives up. */
+  private void write() {
+    // binary records are assembled here and written whole, so a record that fails half way, such
+    // as a path longer than writeUTF allows, leaves nothing behind in the file
+    ByteArrayOutputStream record = new ByteArrayOutputStream(128);
+    DataOutputStream data = new DataOutputStream(record);
+    while (true) {
+      if (abandoned) {
+        while (queue.poll() != null) {
+          queued.decrementAndGet();
+          stats.recordEventDropped();
+        }
+        return;
+      }
+      Event event = queue.poll();
+      if (event == null) {
+        try {
+          out.flush();
+        } catch (IOException e) {
+          log.warn("Unable to flush event log", e);
+        }
+        if (closed) {
+          return;
+        }
+        LockSupport.parkNanos(IDLE_PARK_NANOS);
+        continue;
+      }
+      queued.decrementAndGet();
+      try {
+        if (format == EventLogFormat.BINARY) {
+          record.reset();
+          writeBinary(data, event);
+          record.writeTo(out);
+        } else {
+          out.write(toJson(event).getBytes(StandardCharsets.UTF_8));
+        }
+      } catch (IOException e) {
+        stats.recordEventDropped();
+        log.warn("Unable to write event log", e);
+      }
+    }
+  }
+
+  /** Formats an event as a single line of JSON, ending with a newline. */
+  static String toJson(Event event) {
+    StringBuilder json = new StringBuilder(192);
+    json.append("{\"ts\":").append(event.timestampMillis());
+    json.append(",\"outcome\":\"").append(event.outcome()).append('"');
+    json.append(",\"stubId\":");
+    appendString(json, event.stubId());
+    json.append(",\"method\":");
+    appendString(json, event.method());
+    json.append(",\"host\":");
+    appendString(json, event.host());
+    json.append(",\"path\":");
+    appendString(json, event.path());
+    json.append(",\"status\":").append(event.status());
+    json.append(",\"matchNanos\":").append(event.matchNanos());
+    json.append(",\"requestBytes\":").append(event.requestBytes());
+    json.append(",\"responseBytes\":").append(event.responseBytes());
+    return json.append("}\n").toString();
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    if (value == null) {
+      json.append("null");
+      return;
+    }
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '"' -> json.append("\\\"");
+        case '\\' -> json.append("\\\\");
+        case '\n' -> json.append("\\n");
+        case '\r' -> json.append("\\r");
+        case '\t' -> json.append("\\t");
+        default -> {
+          if (c < 0x20) {
+            json.append(String.format("\\u%04x", (int) c));
+          } else {
+            json.append(c);
+          }
+        }
+      }
+    }
+    json.append('"');
+  }
+
+  /**
+   * Writes an event as a binary record: timestamp, outcome ordinal, stub id, method, host and path
+   * as modified UTF-8 (empty for null), status, match nanoseconds, request and response bytes.
+   */
+  static void writeBinary(DataOutputStream data, Event event) throws IOException {
+    data.writeLong(event.timestampMillis());
+    data.writeByte(event.outcome().ordinal());
+    data.writeUTF(event.stubId() == null ? "" : event.stubId());
+    data.writeUTF(event.method() == null ? "" : event.method());
+    data.writeUTF(event.host() == null ? "" : event.host());
+    data.writeUTF(event.path() == null ? "" : event.path());
+    data.writeShort(event.status());
+    data.writeLong(event.matchNanos());
+    data.writeInt(event.requestBytes());
+    data.writeLong(event.responseBytes());
+  }
+
+  /** Returns the number of events waiting to be written. */
+  int getQueued() {
+    return queued.get();
+  }
+
+  /**
+   * Stops accepting events, writes those still queued and closes the file. If the writer has not
+   * finished within the timeout, it is left to drop the events still queued and close the file
+   * once its current write returns, so a stuck write never holds up the caller.
+   *
+   * @param timeoutMillis how long to wait for queued events to be written, {@value
+   *     #DEFAULT_CLOSE_TIMEOUT_MILLIS} ms if not positive
+   */
+  void close(long timeoutMillis) {
+    closed = true;
+    LockSupport.unpark(writer);
+    long timeout = timeoutMillis > 0 ? timeoutMillis : DEFAULT_CLOSE_TIMEOUT_MILLIS;
+    try {
+      writer.join(timeout);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    if (writer.isAlive()) {
+      abandoned = true;
+      LockSupport.unpark(writer);
+      log.warn(
+          "Event log writer did not finish within {} ms, {} events not written",
+          timeout,
+          queued.get());
+    }
+  }
+}
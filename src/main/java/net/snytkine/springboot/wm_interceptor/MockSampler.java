@@ -0,0 +1,90 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.SamplingRule;
+
+/**
+ * Decides, before any stub matching, whether a request may be mocked at all, according to the
+ * configured {@link SamplingRule sampling rules}.
+ *
+ * <p>The decision is random per request and uses {@link ThreadLocalRandom}, so concurrent callers
+ * never contend on a shared generator.
+ */
+class MockSampler {
+  private final Rule[] rules;
+
+  private record Rule(String host, String pathPrefix, double rate) {
+
+    boolean appliesTo(String requestHost, String requestPath) {
+      return (host == null || host.equalsIgnoreCase(requestHost))
+          && (pathPrefix == null || (requestPath != null && requestPath.startsWith(pathPrefix)));
+    }
+  }
+
+  /**
+   * Creates a sampler for the given rules.
+   *
+   * @param rules the sampling rules, in order of precedence
+   * @throws IllegalArgumentException if a rate is outside of 0.0 to 1.0
+   */
+  MockSampler(List<SamplingRule> rules) {
+    this.rules =
+        rules.stream()
+            .map(
+                rule -> {
+                  if (rule.getRate() < 0.0 || rule.getRate() > 1.0) {
+                    throw new IllegalArgumentException(
+                        "Sampling rate must be between 0.0 and 1.0, got " + rule.getRate());
+                  }
+                  return new Rule(rule.getHost(), rule.getPathPrefix(), rule.getRate());
+                })
+            .toArray(Rule[]::new);
+  }
+
+  /**
+   * Decides whether a request should be matched against the stubs.
+   *
+   * @param uri the request URI
+   * @return false if the request is sampled out and should go to the real service
+   */
+  boolean shouldMatch(URI uri) {
+    if (rules.length == 0) {
+      return true;
+    }
+    String host = uri.getHost();
+    String path = uri.getPath();
+    for (Rule rule : rules) {
+      if (rule.appliesTo(host, path)) {
+        return sample(rule.rate());
+      }
+    }
+    return true;
+  }
+
+  private static boolean sample(double rate) {
+    if (rate >= 1.0) {
+      return true;
+    }
+    if (rate <= 0.0) {
+      return false;
+    }
+    return ThreadLocalRandom.current().nextDouble() < rate;
+  }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.FallbackToMock;
+
+/**
+ * Circuit breaker over the real calls the interceptor passes through, with one circuit per host.
+ *
+ * <p>A saturated dependency slows down or fails every call the application under load sends it,
+ * and the threads waiting on it back up into the application itself. Each circuit counts the calls
+ * to its host in tumbling windows of {@code windowSize} calls; a call fails if it throws, returns a
+ * 5xx status or takes longer than {@code slowCallThreshold}. When the share of failed calls in a
+ * window reaches {@code failureRateThreshold} the circuit opens, and for {@code openDuration} the
+ * interceptor answers requests to the host itself. Once that time is up, requests are sent again
+ * and the first call to complete decides: a failure opens the circuit for another period, a
+ * success closes it and starts a new window.
+ */
+@Slf4j
+class PassThroughBreaker {
+  private final long slowCallNanos;
+
+  private final double failureRateThreshold;
+
+  private final int windowSize;
+
+  private final long openNanos;
+
+  private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+  /**
+   * Creates the breaker.
+   *
+   * @param settings the fallback settings
+   * @throws IllegalArgumentException if a setting is missing or out of range
+   */
+  PassThroughBreaker(FallbackToMock settings) {
+    if (settings.getWindowSize() <= 0) {
+      throw new IllegalArgumentException("Fallback window size must be positive");
+    }
+    if (settings.getFailureRateThreshold() <= 0.0 || settings.getFailureRateThreshold() > 1.0) {
+      throw new IllegalArgumentException("Fallback failure rate threshold must be in (0.0, 1.0]");
+    }
+    if (settings.getSlowCallThreshold() == null || settings.getOpenDuration() == null) {
+      throw new IllegalArgumentException("Fallback slow call threshold and open duration required");
+    }
+    this.slowCallNanos = settings.getSlowCallThreshold().toNanos();
+    this.failureRateThreshold = settings.getFailureRateThreshold();
+    this.windowSize = settings.getWindowSize();
+    this.openNanos = settings.getOpenDuration().toNanos();
+  }
+
+  /**
+   * Returns true if requests to a host must not be sent to the real service.
+   *
+   * @param host the request host, may be null
+   */
+  boolean isOpen(String host) {
+    Circuit circuit = circuits.get(host == null ? "" : host);
+    return circuit != null && circuit.open && System.nanoTime() - circuit.openUntilNanos < 0;
+  }
+
+  /**
+   * Records the outcome of a real call.
+   *
+   * @param host the request host, may be null
+   * @param nanos how long the call took to return a response or fail
+   * @param failed true if the call threw or returned a 5xx status
+   */
+  void record(String host, long nanos, boolean failed) {
+    String key = host == null ? "" : host;
+    Circuit circuit = circuits.computeIfAbsent(key, h -> new Circuit());
+    boolean failure = failed || nanos > slowCallNanos;
+    long now = System.nanoTime();
+    if (circuit.open) {
+      if (now - circuit.openUntilNanos < 0) {
+        // sent before the circuit opened
+        return;
+      }
+      synchronized (circuit) {
+        if (circuit.open && now - circuit.openUntilNanos >= 0) {
+          if (failure) {
+            circuit.openUntilNanos = now + openNanos;
+            log.debug("Real calls to {} still failing, falling back to mocks again", key);
+          } else {
+            circuit.calls.set(0);
+            circuit.failures.set(0);
+            circuit.open = false;
+            log.info("Real calls to {} recovered, passing requests through again", key);
+          }
+        }
+      }
+      return;
+    }
+    int calls = circuit.calls.incrementAndGet();
+    if (failure) {
+      circuit.failures.incrementAndGet();
+    }
+    if (calls < windowSize) {
+      return;
+    }
+    synchronized (circuit) {
+      if (circuit.open || circuit.calls.get() < windowSize) {
+        return;
+      }
+      int total = circuit.calls.getAndSet(0);
+      int failures = circuit.failures.getAndSet(0);
+      if ((double) failures / total >= failureRateThreshold) {
+        circuit.openUntilNanos = now + openNanos;
+        circuit.open = true;
+        log.warn(
+            "{} of {} real calls to {} failed, falling back to mocks for {} ms",
+            failures,
+            total,
+            key,
+            openNanos / 1_000_000);
+      }
+    }
+  }
+
+  /** State of the real calls to one host. */
+  private static final class Circuit {
+    /** Calls in the current window. */
+    private final AtomicInteger calls = new AtomicInteger();
+
+    /** Failed calls in the current window. */
+    private final AtomicInteger failures = new AtomicInteger();
+
+    private volatile boolean open;
+
+    /** When the open period ends, meaningful only while {@link #open} is set. */
+    private volatile long openUntilNanos;
+  }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.net.URI;
+
+/**
+ * Opens connections to a service the interceptor stops mocking, before the application's requests
+ * need them.
+ *
+ * <p>While a host is mocked, the HTTP client's connection pool holds no connections to it. When
+ * requests to the host start going to the real service again, because its stubs were removed or
+ * the interceptor was stopped, the first burst of requests would each pay for connection setup and
+ * the TLS handshake. The interceptor owns neither the client nor its pool, so it calls this hook
+ * instead: the first time a request to an origin it mocked before is passed through, the origin is
+ * warmed on a background thread while that request is sent.
+ *
+ * <p>A warmer bean in the application context is attached to the interceptor automatically; {@link
+ * RequestFactoryWarmer} warms the pool of a {@code ClientHttpRequestFactory}.
+ */
+@FunctionalInterface
+public interface PassThroughWarmer {
+
+  /**
+   * Warms the connections to an origin. Called on a background thread; failures are logged and
+   * otherwise ignored.
+   *
+   * @param origin scheme, host and port, if the request named one, of the service, e.g. {@code
+   *     https://api.example.com}
+   * @throws Exception if warming fails
+   */
+  void warm(URI origin) throws Exception;
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * {@link PassThroughWarmer} that opens connections in the pool of a {@link
+ * ClientHttpRequestFactory} by sending {@code HEAD} requests to the origin at the same time, one
+ * per connection wanted. The requests are sent through the factory directly, not through the
+ * interceptor; their responses are read and discarded, and a pooling factory keeps the connections
+ * open for the requests that follow.
+ *
+ * <pre>{@code
+ * @Bean
+ * PassThroughWarmer passThroughWarmer(ClientHttpRequestFactory requestFactory) {
+ *   return new RequestFactoryWarmer(requestFactory, 8, "/health");
+ * }
+ * }</pre>
+ */
+@Slf4j
+public class RequestFactoryWarmer implements PassThroughWarmer {
+  static final String THREAD_NAME = "wm-interceptor-warmup";
+
+  private final ClientHttpRequestFactory requestFactory;
+
+  private final int connections;
+
+  private final String path;
+
+  /**
+   * Creates the warmer.
+   *
+   * @param requestFactory the factory whose connection pool is warmed
+   * @param connections number of connections opened to each origin
+   * @param path path the {@code HEAD} requests are sent to, e.g. {@code /}
+   * @throws IllegalArgumentException if the number of connections is not positive
+   */
+  public RequestFactoryWarmer(
+      ClientHttpRequestFactory requestFactory, int connections, String path) {
+    if (connections <= 0) {
+      throw new IllegalArgumentException("Number of warmed connections must be positive");
+    }
+    this.requestFactory = requestFactory;
+    this.connections = connections;
+    this.path = path;
+  }
+
+  @Override
+  public void warm(URI origin) throws InterruptedException {
+    URI target = origin.resolve(path);
+    List<Thread> threads = new ArrayList<>(connections);
+    for (int i = 0; i < connections; i++) {
+      threads.add(Thread.ofPlatform().daemon().name(THREAD_NAME).start(() -> send(target)));
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+  }
+
+  private void send(URI target) {
+    try (ClientHttpResponse response =
+        requestFactory.createRequest(target, HttpMethod.HEAD).execute()) {
+      response.getStatusCode();
+    } catch (IOException | RuntimeException e) {
+      log.debug("Unable to warm connection to {}", target, e);
+    }
+  }
+}
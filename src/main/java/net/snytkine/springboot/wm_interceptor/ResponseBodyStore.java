@@ -0,0 +1,588 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.extension.StubLifecycleListener;
+import com.github.tomakehurst.wiremock.http.Body;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+
+/**
+ * Takes ownership of static response bodies so they can be stored more cheaply than WireMock
+ * stores them.
+ *
+ * <p>{@link #load(WireMockServer)} scans the loaded stubs and copies eligible {@code bodyFileName}
+ * bodies into the store, keyed by stub id. The interceptor streams the body of a matched stub from
+ * the store instead of the body of WireMock's response; WireMock still renders that response, and
+ * reads the file when something asks it for the body, such as the request journal. Inline bodies
+ * are never copied: the stub, which admin listings and exported stubs read, has to keep them, so a
+ * stored copy would only add to the heap. Depending on {@link WireMockProperties} a file body is:
+ *
+ * <ul>
+ *   <li>kept in a direct, off-heap buffer when it is at least {@code offHeapBodyThreshold} bytes
+ *   <li>shared with every other stub returning the same bytes when {@code
+ *       bodyDeduplicationEnabled} is set; bodies are keyed by their SHA-256 digest
+ *   <li>kept gzip-compressed and decompressed while streaming when it is at least {@code
+ *       compressedBodyThreshold} bytes
+ * </ul>
+ *
+ * <p>With {@code bodyDeduplicationEnabled}, inline bodies are deduplicated in the stubs instead:
+ * every stub returning the same bytes is given the same {@link Body} instance, so the stubs share
+ * one copy and listings still show each stub's body.
+ *
+ * <p>When {@code precompressedBodiesEnabled} is set, the store also loads pre-compressed sidecars
+ * of {@code bodyFileName} bodies, for example {@code body.json.gz} and {@code body.json.br} next to
+ * {@code body.json}. {@link #encoded(UUID, String)} then hands out the encoded bytes as they are to
+ * clients that accept that encoding, as it does for bodies that are stored gzip-compressed anyway.
+ * Without that option responses are never encoded, and gzip is never used when {@code
+ * gzipDisabled} is set.
+ *
+ * <p>Only stubs whose response does not depend on the request are eligible: stubs with
+ * transformers, faults or proxying keep their bodies in WireMock, and so do all stubs when a
+ * response transformer of the application applies to every stub. Entries are dropped when the stub
+ * is edited or removed at runtime.
+ */
+@Slf4j
+class ResponseBodyStore implements StubLifecycleListener {
+  static final String NAME = "wm-interceptor-response-body-store";
+
+  private static final String FILES_ROOT = "__files";
+
+  /** Supported content encodings in order of preference, with their sidecar file extension. */
+  private static final Map<String, String> SIDECAR_EXTENSIONS = sidecarExtensions();
+
+  private final Integer offHeapThreshold;
+
+  private final Integer compressionThreshold;
+
+  private final boolean deduplicate;
+
+  private final boolean precompressed;
+
+  private final boolean gzipDisabled;
+
+  private final boolean globalTemplating;
+
+  /** Whether WireMock applies extensions of the application to every stub, see {@link #load}. */
+  private volatile boolean globalExtensions;
+
+  private final Map<UUID, StoredBody> bodies = new ConcurrentHashMap<>();
+
+  /** Encoded variants by stub id, each keyed by content encoding. */
+  private final Map<UUID, Map<String, StoredBody>> encodedBodies = new ConcurrentHashMap<>();
+
+  /** Stored bodies by SHA-256 digest of their content, used when deduplicating. */
+  private final Map<ByteBuffer, SharedBody> byDigest = new HashMap<>();
+
+  /** Digest of the body of each stub whose body is shared through {@link #byDigest}. */
+  private final Map<UUID, ByteBuffer> stubDigests = new HashMap<>();
+
+  /** Inline bodies by SHA-256 digest of their content, used when deduplicating. */
+  private final Map<ByteBuffer, SharedInlineBody> inlineByDigest = new HashMap<>();
+
+  /** Digest of the inline body of each stub sharing it through {@link #inlineByDigest}. */
+  private final Map<UUID, ByteBuffer> inlineDigests = new HashMap<>();
+
+  private FileSource files;
+
+  /**
+   * A body held by the store. The same instance is shared by every stub that returns the same
+   * bytes when deduplication is enabled.
+   *
+   * @param content the stored bytes, gzip-compressed if {@code gzipped} is true
+   * @param gzipped whether {@code content} is gzip-compressed
+   * @param length size of the uncompressed body in bytes
+   */
+  record StoredBody(ByteBuffer content, boolean gzipped, int length) {
+
+    /** Opens a new stream over the uncompressed body. */
+    InputStream open() throws IOException {
+      InputStream in = new ByteBufferInputStream(content.duplicate());
+      return gzipped ? new GZIPInputStream(in) : in;
+    }
+
+    /** Returns the number of bytes this body occupies in the store. */
+    int storedSize() {
+      return content.capacity();
+    }
+  }
+
+  /** A deduplicated body with the number of stubs returning it. */
+  private static final class SharedBody {
+    private final StoredBody body;
+
+    private int references;
+
+    private SharedBody(StoredBody body) {
+      this.body = body;
+    }
+  }
+
+  /** An inline body shared by the stubs returning it, with their number. */
+  private static final class SharedInlineBody {
+    private final Body body;
+
+    private int references;
+
+    private SharedInlineBody(Body body) {
+      this.body = body;
+    }
+
+    /** Returns the bytes no longer held because other stubs share this body's copy. */
+    private long savedBytes() {
+      return (long) (references - 1) * body.asBytes().length;
+    }
+  }
+
+  /**
+   * A body variant to be sent as it is together with a {@code Content-Encoding} header.
+   *
+   * @param encoding the content encoding of the bytes, for example {@code gzip}
+   * @param body the encoded bytes
+   */
+  record EncodedBody(String encoding, StoredBody body) {}
+
+  private static Map<String, String> sidecarExtensions() {
+    Map<String, String> extensions = new LinkedHashMap<>();
+    extensions.put("br", ".br");
+    extensions.put("gzip", ".gz");
+    return Collections.unmodifiableMap(extensions);
+  }
+
+  ResponseBodyStore(WireMockProperties properties) {
+    this.offHeapThreshold = properties.getOffHeapBodyThreshold();
+    this.compressionThreshold = properties.getCompressedBodyThreshold();
+    this.deduplicate = properties.isBodyDeduplicationEnabled();
+    this.precompressed = properties.isPrecompressedBodiesEnabled();
+    this.gzipDisabled = Boolean.TRUE.equals(properties.getGzipDisabled());
+    this.globalTemplating = Boolean.TRUE.equals(properties.getGlobalTemplating());
+  }
+
+  private boolean enabled() {
+    return offHeapThreshold != null || compressionThreshold != null || deduplicate || precompressed;
+  }
+
+  /**
+   * Copies the bodies of all eligible stubs currently loaded in the server into the store and logs
+   * how much memory that saved. Does nothing when none of the storage options are configured.
+   *
+   * @param wireMockServer the server whose stubs should be scanned
+   */
+  void load(WireMockServer wireMockServer) {
+    load(wireMockServer, false);
+  }
+
+  /**
+   * Same as {@link #load(WireMockServer)}, for a server that may apply extensions to every stub.
+   *
+   * @param wireMockServer the server whose stubs should be scanned
+   * @param globalExtensions whether a response transformer or listener of the application applies
+   *     to every stub, see {@link GlobalExtensions}; no body is then stored, since the transformed
+   *     body only comes with WireMock's response
+   */
+  void load(WireMockServer wireMockServer, boolean globalExtensions) {
+    if (!enabled()) {
+      return;
+    }
+    this.globalExtensions = globalExtensions;
+    this.files = wireMockServer.getOptions().filesRoot().child(FILES_ROOT);
+    addAll(wireMockServer.getStubMappings());
+  }
+
+  /**
+   * Copies the bodies of the given stubs into the store, and shares their inline bodies with equal
+   * ones of other stubs, for stubs added after {@link #load(WireMockServer)}. Deduplication also
+   * applies against bodies that are already stored or shared.
+   *
+   * @param stubs stubs that have just been added to the server
+   */
+  synchronized void addAll(Collection<StubMapping> stubs) {
+    if (!enabled() || files == null) {
+      return;
+    }
+    for (StubMapping stub : stubs) {
+      if (precompressed) {
+        loadSidecars(stub, files);
+      }
+      if (deduplicate) {
+        shareInlineBody(stub);
+      }
+      byte[] bytes = eligibleBody(stub, files);
+      if (bytes == null) {
+        continue;
+      }
+      // a stub added again under the same id no longer returns its previous body
+      releaseShared(stub.getId());
+      StoredBody body;
+      if (deduplicate) {
+        ByteBuffer digest = digest(bytes);
+        SharedBody shared = byDigest.computeIfAbsent(digest, d -> new SharedBody(store(bytes)));
+        shared.references++;
+        stubDigests.put(stub.getId(), digest);
+        body = shared.body;
+      } else {
+        body = store(bytes);
+      }
+      bodies.put(stub.getId(), body);
+      if (body.gzipped() && precompressed && !gzipDisabled) {
+        encodedBodies
+            .computeIfAbsent(stub.getId(), id -> new ConcurrentHashMap<>())
+            .putIfAbsent("gzip", new StoredBody(body.content(), false, body.storedSize()));
+      }
+    }
+    log.info(
+        "Stored {} response bodies ({} distinct): {} bytes as loaded, {} bytes stored,"
+            + " {} bytes off-heap, {} bytes saved",
+        bodies.size(),
+        distinctBodies().size(),
+        loadedBytes(),
+        storedBytes(),
+        offHeapBytes(),
+        loadedBytes() - storedBytes());
+    if (deduplicate) {
+      log.info(
+          "{} stubs share {} distinct inline bodies, {} bytes saved",
+          inlineDigests.size(),
+          inlineByDigest.size(),
+          sharedInlineBytes());
+    }
+    if (precompressed) {
+      log.info("Loaded pre-compressed bodies for {} stubs", encodedBodies.size());
+    }
+  }
+
+  /**
+   * Replaces the inline body of a stub with the {@link Body} of the first loaded stub returning the
+   * same bytes, so that the duplicate can be garbage collected. The stub still has its body, only
+   * its copy of the bytes is shared.
+   */
+  private void shareInlineBody(StubMapping stub) {
+    // a stub added again under the same id no longer returns its previous body
+    releaseInline(stub.getId());
+    ResponseDefinition response = stub.getResponse();
+    if (response == null
+        || response.specifiesBodyFile()
+        || !response.specifiesBodyContent()
+        || response.isProxyResponse()) {
+      return;
+    }
+    Body body = response.getReponseBody();
+    ByteBuffer digest = digest(body.asBytes());
+    SharedInlineBody shared =
+        inlineByDigest.computeIfAbsent(digest, d -> new SharedInlineBody(body));
+    if (shared.body.isBinary() != body.isBinary() || shared.body.isJson() != body.isJson()) {
+      // same bytes in another form, sharing them would change how the stub is listed
+      return;
+    }
+    shared.references++;
+    inlineDigests.put(stub.getId(), digest);
+    if (shared.body != body) {
+      stub.setResponse(
+          ResponseDefinitionBuilder.like(response).withResponseBody(shared.body).build());
+    }
+  }
+
+  private void loadSidecars(StubMapping stub, FileSource files) {
+    ResponseDefinition response = stub.getResponse();
+    if (!isStatic(response) || !response.specifiesBodyFile()) {
+      return;
+    }
+    for (Map.Entry<String, String> sidecar : SIDECAR_EXTENSIONS.entrySet()) {
+      if (gzipDisabled && "gzip".equals(sidecar.getKey())) {
+        continue;
+      }
+      String fileName = response.getBodyFileName() + sidecar.getValue();
+      byte[] encoded;
+      try {
+        encoded = files.getBinaryFileNamed(fileName).readContents();
+      } catch (Exception e) {
+        log.trace("No pre-compressed body {} for stub {}", fileName, stub.getId());
+        continue;
+      }
+      encodedBodies
+          .computeIfAbsent(stub.getId(), id -> new ConcurrentHashMap<>())
+          .put(sidecar.getKey(), new StoredBody(ByteBuffer.wrap(encoded), false, encoded.length));
+    }
+  }
+
+  private byte[] eligibleBody(StubMapping stub, FileSource files) {
+    ResponseDefinition response = stub.getResponse();
+    if (!isStatic(response) || !response.specifiesBodyFile()) {
+      return null;
+    }
+    byte[] bytes;
+    try {
+      bytes = files.getBinaryFileNamed(response.getBodyFileName()).readContents();
+    } catch (Exception e) {
+      log.warn("Unable to read body of stub {}, leaving it to WireMock", stub.getId(), e);
+      return null;
+    }
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    boolean offHeap = offHeapThreshold != null && bytes.length >= offHeapThreshold;
+    boolean compress = compressionThreshold != null && bytes.length >= compressionThreshold;
+    return offHeap || compress || deduplicate ? bytes : null;
+  }
+
+  private boolean isStatic(ResponseDefinition response) {
+    return response != null
+        && response.wasConfigured()
+        && !globalTemplating
+        && !globalExtensions
+        && (response.getTransformers() == null || response.getTransformers().isEmpty())
+        && response.getFault() == null
+        && response.getProxyBaseUrl() == null;
+  }
+
+  private StoredBody store(byte[] bytes) {
+    byte[] content = bytes;
+    boolean gzipped = false;
+    if (compressionThreshold != null && bytes.length >= compressionThreshold) {
+      byte[] compressed = gzip(bytes);
+      if (compressed.length < bytes.length) {
+        content = compressed;
+        gzipped = true;
+      }
+    }
+    ByteBuffer buffer;
+    if (offHeapThreshold != null && bytes.length >= offHeapThreshold) {
+      buffer = ByteBuffer.allocateDirect(content.length);
+      buffer.put(content).flip();
+    } else {
+      buffer = ByteBuffer.wrap(content);
+    }
+    return new StoredBody(buffer.asReadOnlyBuffer(), gzipped, bytes.length);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 32);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static ByteBuffer digest(byte[] bytes) {
+    try {
+      return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * Returns the stored body of a stub.
+   *
+   * @param stubId id of the matched stub
+   * @return the stored body, or null if the body of this stub is left to WireMock
+   */
+  StoredBody get(UUID stubId) {
+    return bodies.get(stubId);
+  }
+
+  /**
+   * Returns the body of a stub in the most preferred encoding the client accepts, if the store has
+   * one ready.
+   *
+   * @param stubId id of the matched stub
+   * @param acceptEncoding value of the request's {@code Accept-Encoding} header, may be null
+   * @return the encoded body, or null if the client does not accept any of the stored encodings
+   */
+  EncodedBody encoded(UUID stubId, String acceptEncoding) {
+    if (acceptEncoding == null || encodedBodies.isEmpty()) {
+      return null;
+    }
+    Map<String, StoredBody> variants = encodedBodies.get(stubId);
+    if (variants == null) {
+      return null;
+    }
+    for (String encoding : SIDECAR_EXTENSIONS.keySet()) {
+      StoredBody body = variants.get(encoding);
+      if (body != null && accepts(acceptEncoding, encoding)) {
+        return new EncodedBody(encoding, body);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Checks whether an {@code Accept-Encoding} header value allows the given encoding with a
+   * non-zero quality. An entry naming the encoding takes precedence over {@code *}, so {@code
+   * *;q=0, gzip} allows gzip and {@code gzip;q=0, *} does not.
+   */
+  static boolean accepts(String acceptEncoding, String encoding) {
+    Boolean wildcard = null;
+    for (String part : acceptEncoding.split(",")) {
+      int semicolon = part.indexOf(';');
+      String coding = (semicolon < 0 ? part : part.substring(0, semicolon)).trim();
+      boolean named = coding.equalsIgnoreCase(encoding);
+      if (!named && !"*".equals(coding)) {
+        continue;
+      }
+      boolean allowed =
+          semicolon < 0
+              || !part.substring(semicolon + 1)
+                  .replace(" ", "")
+                  .toLowerCase(Locale.ROOT)
+                  .matches("q=0(\\.0*)?");
+      if (named) {
+        return allowed;
+      }
+      if (wildcard == null) {
+        wildcard = allowed;
+      }
+    }
+    return Boolean.TRUE.equals(wildcard);
+  }
+
+  /** Returns the number of stubs whose body is held by the store. */
+  int size() {
+    return bodies.size();
+  }
+
+  private Set<StoredBody> distinctBodies() {
+    Set<StoredBody> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+    distinct.addAll(bodies.values());
+    return distinct;
+  }
+
+  /** Returns the number of bytes held by the store, counting shared bodies once. */
+  long storedBytes() {
+    return distinctBodies().stream().mapToLong(StoredBody::storedSize).sum();
+  }
+
+  /** Returns the uncompressed size of all stored bodies, as if every stub had its own copy. */
+  long loadedBytes() {
+    return bodies.values().stream().mapToLong(StoredBody::length).sum();
+  }
+
+  /**
+   * Returns the number of bytes saved by deduplication and compression: of stored bodies compared
+   * to a copy per stub, and of inline bodies shared by several stubs.
+   */
+  long savedBytes() {
+    return loadedBytes() - storedBytes() + sharedInlineBytes();
+  }
+
+  /** Returns the number of bytes of inline bodies no longer held because stubs share them. */
+  synchronized long sharedInlineBytes() {
+    return inlineByDigest.values().stream().mapToLong(SharedInlineBody::savedBytes).sum();
+  }
+
+  /** Returns the number of bytes held off-heap, counting shared bodies once. */
+  long offHeapBytes() {
+    return distinctBodies().stream()
+        .filter(b -> b.content().isDirect())
+        .mapToLong(StoredBody::storedSize)
+        .sum();
+  }
+
+  @Override
+  public void afterStubEdited(StubMapping oldStub, StubMapping newStub) {
+    remove(oldStub.getId());
+  }
+
+  @Override
+  public void afterStubRemoved(StubMapping stub) {
+    remove(stub.getId());
+  }
+
+  /** Drops the bodies of a stub, and its deduplicated body once no other stub returns it. */
+  private synchronized void remove(UUID stubId) {
+    bodies.remove(stubId);
+    encodedBodies.remove(stubId);
+    releaseShared(stubId);
+    releaseInline(stubId);
+  }
+
+  private void releaseShared(UUID stubId) {
+    ByteBuffer digest = stubDigests.remove(stubId);
+    if (digest == null) {
+      return;
+    }
+    SharedBody shared = byDigest.get(digest);
+    if (shared != null && --shared.references <= 0) {
+      byDigest.remove(digest);
+    }
+  }
+
+  private void releaseInline(UUID stubId) {
+    ByteBuffer digest = inlineDigests.remove(stubId);
+    if (digest == null) {
+      return;
+    }
+    SharedInlineBody shared = inlineByDigest.get(digest);
+    if (shared != null && --shared.references <= 0) {
+      inlineByDigest.remove(digest);
+    }
+  }
+
+  /** Returns the number of distinct deduplicated bodies held by the store. */
+  synchronized int sharedBodies() {
+    return byDigest.size();
+  }
+
+  @Override
+  public void afterStubsReset() {
+    clear();
+  }
+
+  /**
+   * Drops all stored bodies. Off-heap buffers are freed once they are garbage collected, which
+   * this makes possible as soon as no response still streams from them.
+   */
+  synchronized void clear() {
+    bodies.clear();
+    encodedBodies.clear();
+    byDigest.clear();
+    stubDigests.clear();
+    inlineByDigest.clear();
+    inlineDigests.clear();
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
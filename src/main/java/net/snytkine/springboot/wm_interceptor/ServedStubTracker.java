@@ -0,0 +1,61 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ServeEventListener;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+
+/**
+ * WireMock extension that remembers which stub was matched for a request served on the current
+ * thread.
+ *
+ * <p>{@link com.github.tomakehurst.wiremock.direct.DirectCallHttpServer#stubRequest} only returns
+ * the rendered response, but several interceptor features need to know which stub produced it.
+ * The direct call server matches on the calling thread, so the matched stub is kept in a {@link
+ * ThreadLocal} until the interceptor picks it up with {@link #take()}.
+ */
+class ServedStubTracker implements ServeEventListener {
+  static final String NAME = "wm-interceptor-served-stub-tracker";
+
+  private final ThreadLocal<StubMapping> servedStub = new ThreadLocal<>();
+
+  @Override
+  public void afterMatch(ServeEvent serveEvent, Parameters parameters) {
+    if (serveEvent.getWasMatched()) {
+      servedStub.set(serveEvent.getStubMapping());
+    } else {
+      servedStub.remove();
+    }
+  }
+
+  /**
+   * Returns the stub matched by the last request served on this thread and clears it.
+   *
+   * @return the matched stub, or null if the last request was not matched
+   */
+  StubMapping take() {
+    StubMapping stub = servedStub.get();
+    servedStub.remove();
+    return stub;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.direct.DirectCallHttpServer;
+import com.github.tomakehurst.wiremock.direct.DirectCallHttpServerFactory;
+import com.github.tomakehurst.wiremock.matching.RequestPattern;
+import com.github.tomakehurst.wiremock.stubbing.StubImport;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+
+/**
+ * The in-process WireMock engine behind a {@link WMInterceptor}.
+ *
+ * <p>Owns the {@link WireMockServer}, the {@link DirectCallHttpServer} used to match requests
+ * without network I/O, and the interceptor's own stores and indexes built from the stub set. Stubs
+ * can be listed, added and removed at runtime through this class; every change goes through here
+ * so the derived stores stay consistent with WireMock.
+ */
+@Slf4j
+public class StubEngine {
+  private final WireMockServer wireMockServer;
+
+  private final DirectCallHttpServer directCallHttpServer;
+
+  private final ServedStubTracker servedStubTracker = new ServedStubTracker();
+
+  private final StubSetVersion stubSetVersion = new StubSetVersion();
+
+  private final ResponseBodyStore bodyStore;
+
+  /** Templating fast path, null unless enabled. */
+  private final TemplateRenderer templateRenderer;
+
+  private final FootprintAccountant accountant;
+
+  /** Extensions WireMock applies to every stub, see {@link GlobalExtensions}. */
+  private final Set<String> globalExtensions;
+
+  /** Whether stubs match requests to an origin, by origin, at the stub set version computed at. */
+  private volatile OriginStubs originStubs = new OriginStubs(-1, new ConcurrentHashMap<>());
+
+  private record OriginStubs(long version, Map<String, Boolean> byOrigin) {}
+
+  /**
+   * Approximate memory used by the engine, see {@link FootprintAccountant} for how each part is
+   * estimated.
+   *
+   * @param stubCount number of stubs loaded
+   * @param estimatedStubBytes size of the stub definitions, approximated by their JSON form
+   * @param storedBodyBytes bytes held by the response body store, shared bodies counted once
+   * @param offHeapBodyBytes the part of {@code storedBodyBytes} held off-heap
+   * @param savedBodyBytes bytes saved by body deduplication and compression
+   * @param journalEntries number of requests in the request journal
+   * @param estimatedJournalBytes size of the request journal
+   * @param compiledTemplates number of stubs with templates compiled by the templating fast path
+   * @param estimatedTemplateBytes size of the compiled templates
+   * @param scenarioCount number of scenarios
+   * @param estimatedScenarioBytes size of the scenarios
+   * @param estimatedHeapBytes sum of the estimates of the parts held on the heap
+   */
+  public record Footprint(
+      int stubCount,
+      long estimatedStubBytes,
+      long storedBodyBytes,
+      long offHeapBodyBytes,
+      long savedBodyBytes,
+      int journalEntries,
+      long estimatedJournalBytes,
+      int compiledTemplates,
+      long estimatedTemplateBytes,
+      int scenarioCount,
+      long estimatedScenarioBytes,
+      long estimatedHeapBytes) {}
+
+  /**
+   * Creates the engine and loads the stubs found by the configuration.
+   *
+   * @param wireMockConfiguration the WireMock configuration used to set up the underlying WireMock
+   *     server; its HTTP server factory is replaced with a direct call one
+   * @param properties the interceptor properties
+   */
+  public StubEngine(WireMockConfiguration wireMockConfiguration, WireMockProperties properties) {
+    this.bodyStore = new ResponseBodyStore(properties);
+    DirectCallHttpServerFactory serverFactory = new DirectCallHttpServerFactory();
+    wireMockConfiguration.httpServerFactory(serverFactory);
+    wireMockConfiguration.extensions(
+        servedStubTracker, stubSetVersion, bodyStore, new BodyBytesMatcher());
+    GlobalExtensions globalExtensionFinder = new GlobalExtensions();
+    wireMockConfiguration.extensions(globalExtensionFinder);
+    if (properties.isTemplateFastPathEnabled()
+        && wireMockConfiguration.getResponseTemplatingEnabled()) {
+      this.templateRenderer =
+          new TemplateRenderer(
+              wireMockConfiguration.getDeclaredExtensions(),
+              Boolean.TRUE.equals(properties.getGlobalTemplating()));
+      // the fast path takes over the response-template transformer name
+      wireMockConfiguration.templatingEnabled(false);
+      wireMockConfiguration.extensions(templateRenderer.factory());
+    } else {
+      this.templateRenderer = null;
+    }
+    this.wireMockServer = new WireMockServer(wireMockConfiguration);
+    wireMockServer.start(); // no-op, not required
+    this.directCallHttpServer = serverFactory.getHttpServer();
+    this.globalExtensions = globalExtensionFinder.names();
+    if (!globalExtensions.isEmpty()) {
+      log.info(
+          "Extensions {} apply to every stub, responses are not served from caches or stored",
+          globalExtensions);
+    }
+    this.accountant =
+        new FootprintAccountant(
+            wireMockServer, stubSetVersion, bodyStore, templateRenderer, properties.getLimits());
+    try {
+      accountant.checkStubLimit(0, getStubCount());
+    } catch (IllegalStateException e) {
+      wireMockServer.stop();
+      throw e;
+    }
+    bodyStore.load(wireMockServer, hasGlobalExtensions());
+    if (templateRenderer != null) {
+      templateRenderer.load(wireMockServer);
+    }
+  }
+
+  DirectCallHttpServer getDirectCallHttpServer() {
+    return directCallHttpServer;
+  }
+
+  ResponseBodyStore getBodyStore() {
+    return bodyStore;
+  }
+
+  TemplateRenderer getTemplateRenderer() {
+    return templateRenderer;
+  }
+
+  /**
+   * Returns the stub matched by the last request served on the current thread and clears it.
+   *
+   * @return the matched stub, or null if the last request was not matched
+   */
+  StubMapping takeServedStub() {
+    return servedStubTracker.take();
+  }
+
+  /**
+   * Returns whether WireMock applies a response transformer or serve event listener of the
+   * application to every stub. Responses must then always be served by WireMock.
+   */
+  boolean hasGlobalExtensions() {
+    return !globalExtensions.isEmpty();
+  }
+
+  /** Returns the current version of the stub set, see {@link StubSetVersion}. */
+  long getStubSetVersion() {
+    return stubSetVersion.current();
+  }
+
+  /**
+   * Returns whether any stub may match requests to an origin: a stub matches requests to every
+   * origin unless it names a scheme, host or port they do not have. The answer is computed once per
+   * origin and version of the stub set.
+   *
+   * @param origin the scheme, host and port of requests
+   */
+  boolean hasStubsFor(URI origin) {
+    // read before the stubs, so a change made while they are checked is seen next time
+    long version = stubSetVersion.current();
+    OriginStubs cached = originStubs;
+    if (cached.version() != version) {
+      cached = new OriginStubs(version, new ConcurrentHashMap<>());
+      originStubs = cached;
+    }
+    return cached
+        .byOrigin()
+        .computeIfAbsent(
+            origin.toString(),
+            key ->
+                getStubMappings().stream().anyMatch(stub -> mayMatch(stub.getRequest(), origin)));
+  }
+
+  private static boolean mayMatch(RequestPattern pattern, URI origin) {
+    if (pattern.getScheme() != null && !pattern.getScheme().equalsIgnoreCase(origin.getScheme())) {
+      return false;
+    }
+    if (pattern.getPort() != null) {
+      int port = origin.getPort();
+      if (port < 0) {
+        port = "https".equalsIgnoreCase(origin.getScheme()) ? 443 : 80;
+      }
+      if (pattern.getPort() != port) {
+        return false;
+      }
+    }
+    return pattern.getHost() == null || pattern.getHost().match(origin.getHost()).isExactMatch();
+  }
+
+  /** Returns all stubs currently loaded. */
+  public List<StubMapping> getStubMappings() {
+    return wireMockServer.getStubMappings();
+  }
+
+  /** Returns the number of stubs currently loaded. */
+  public int getStubCount() {
+    return wireMockServer.getStubMappings().size();
+  }
+
+  /**
+   * Returns a stub by id.
+   *
+   * @param id the stub id
+   * @return the stub, or null if there is no stub with this id
+   */
+  public StubMapping getStub(UUID id) {
+    return wireMockServer.getStubMappings().stream()
+        .filter(stub -> id.equals(stub.getId()))
+        .findFirst()
+        .orElse(null);
+  }
+
+  /**
+   * Adds stubs as a single change of the stub set. Stubs with the id of an existing stub replace
+   * it. Indexes and caches derived from the stub set are rebuilt once for the whole batch.
+   *
+   * @param stubs the stubs to add
+   * @throws IllegalStateException if the stubs would take the engine over its stub limit; none of
+   *     them is added then
+   */
+  public void importStubs(List<StubMapping> stubs) {
+    Set<UUID> loaded =
+        getStubMappings().stream().map(StubMapping::getId).collect(Collectors.toSet());
+    accountant.checkStubLimit(
+        loaded.size(),
+        (int)
+            stubs.stream()
+                .map(StubMapping::getId)
+                .filter(id -> id == null || !loaded.contains(id))
+                .count());
+    stubSetVersion.batch(
+        () -> {
+          wireMockServer.importStubs(new StubImport(stubs, StubImport.Options.DEFAULTS));
+          bodyStore.addAll(stubs);
+        });
+    log.debug("Imported {} stubs, {} stubs loaded", stubs.size(), getStubCount());
+  }
+
+  /**
+   * Removes a stub.
+   *
+   * @param id the stub id
+   * @return true if the stub existed and was removed
+   */
+  public boolean removeStub(UUID id) {
+    StubMapping stub = getStub(id);
+    if (stub == null) {
+      return false;
+    }
+    wireMockServer.removeStubMapping(stub);
+    return true;
+  }
+
+  /**
+   * Stops the WireMock server and releases the stored response bodies. The engine serves no
+   * requests afterwards.
+   */
+  void stop() {
+    long storedBytes = bodyStore.storedBytes();
+    accountant.stop();
+    wireMockServer.stop();
+    bodyStore.clear();
+    log.debug("Stub engine stopped, released {} bytes of stored bodies", storedBytes);
+  }
+
+  /** Measures the approximate memory used by stubs, bodies, journal, templates and scenarios. */
+  public Footprint getFootprint() {
+    return accountant.measure();
+  }
+
+  /**
+   * Returns the footprint measured within the last {@code limits.checkInterval}, measuring it only
+   * if it is older. Cheap enough to be polled by metrics.
+   */
+  public Footprint getRecentFootprint() {
+    return accountant.recent();
+  }
+
+  /** Returns the number of journal entries removed to keep the journal within its limit. */
+  public long getJournalEvictions() {
+    return accountant.getJournalEvictions();
+  }
+
+  /**
+   * Enforces the journal limit, if set and the check interval has passed, on a background thread.
+   */
+  void enforceLimits() {
+    accountant.maybeEnforce();
+  }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.core.Options;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.ExtensionDeclarations;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeSet;
+import lombok.extern.slf4j.Slf4j;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+
+/**
+ * JVM-wide registry of {@link StubEngine}s shared between interceptors, for example those of
+ * several Spring contexts in one test JVM, so the mappings are loaded once.
+ *
+ * <p>Engines are keyed by a digest of the settings that shape them: the WireMock files root,
+ * threads, journal, asynchronous responses, logging, proxying, templating, not matched renderer and
+ * extensions, the body storage properties and the engine limits.
+ * Interceptors with the same key share an engine. Each {@link #acquire} must be paired with a
+ * {@link #release(StubEngine)}; the engine is stopped when the last interceptor using it releases
+ * it.
+ */
+@Slf4j
+final class StubEngineRegistry {
+  private static final Map<String, Registration> ENGINES = new HashMap<>();
+
+  private static final class Registration {
+    private final String key;
+
+    private final StubEngine engine;
+
+    private int references;
+
+    private Registration(String key, StubEngine engine) {
+      this.key = key;
+      this.engine = engine;
+    }
+  }
+
+  private StubEngineRegistry() {}
+
+  /**
+   * Returns the engine registered for the configuration, creating it if there is none.
+   *
+   * @param wireMockConfiguration the WireMock configuration
+   * @param properties the interceptor properties
+   * @return the shared engine
+   */
+  static synchronized StubEngine acquire(
+      WireMockConfiguration wireMockConfiguration, WireMockProperties properties) {
+    String key = key(wireMockConfiguration, properties);
+    Registration registration = ENGINES.get(key);
+    if (registration == null) {
+      registration = new Registration(key, new StubEngine(wireMockConfiguration, properties));
+      ENGINES.put(key, registration);
+      log.debug("Created shared stub engine {}", key);
+    }
+    registration.references++;
+    return registration.engine;
+  }
+
+  /**
+   * Releases an engine obtained from {@link #acquire}, stopping it when no interceptor uses it any
+   * more.
+   *
+   * @param engine the engine to release
+   * @return true if the engine was stopped
+   */
+  static synchronized boolean release(StubEngine engine) {
+    for (Registration registration : ENGINES.values()) {
+      if (registration.engine == engine) {
+        if (--registration.references == 0) {
+          ENGINES.remove(registration.key);
+          engine.stop();
+          log.debug("Stopped shared stub engine {}", registration.key);
+          return true;
+        }
+        return false;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the number of engines registered. */
+  static synchronized int size() {
+    return ENGINES.size();
+  }
+
+  /** Digest of the settings that shape an engine. */
+  static String key(WireMockConfiguration wireMockConfiguration, WireMockProperties properties) {
+    Options options = wireMockConfiguration;
+    StringBuilder settings = new StringBuilder();
+    settings
+        .append("filesRoot=")
+        .append(options.filesRoot().getPath())
+        .append("\ncontainerThreads=")
+        .append(options.containerThreads())
+        .append("\njournalDisabled=")
+        .append(options.requestJournalDisabled())
+        .append("\nmaxJournalEntries=")
+        .append(options.maxRequestJournalEntries())
+        .append("\nasynchronousResponses=")
+        .append(options.getAsynchronousResponseSettings().isEnabled())
+        .append("\nasynchronousResponseThreads=")
+        .append(options.getAsynchronousResponseSettings().getThreads())
+        .append("\nstubRequestLoggingDisabled=")
+        .append(options.getStubRequestLoggingDisabled())
+        .append("\nproxyPassThrough=")
+        .append(properties.isProxyPassThrough())
+        .append("\nnotMatchedRenderer=")
+        .append(options.getNotMatchedRendererFactory().getClass().getName())
+        .append("\ngzipDisabled=")
+        .append(options.getGzipDisabled())
+        .append("\nstubCors=")
+        .append(options.getStubCorsEnabled())
+        .append("\ntemplating=")
+        .append(options.getResponseTemplatingEnabled())
+        .append("\nglobalTemplating=")
+        .append(options.getResponseTemplatingGlobal())
+        .append("\nmaxTemplateCacheEntries=")
+        .append(options.getMaxTemplateCacheEntries())
+        .append("\nextensions=")
+        .append(extensions(options.getDeclaredExtensions()))
+        .append("\noffHeapBodyThreshold=")
+        .append(properties.getOffHeapBodyThreshold())
+        .append("\nbodyDeduplication=")
+        .append(properties.isBodyDeduplicationEnabled())
+        .append("\ncompressedBodyThreshold=")
+        .append(properties.getCompressedBodyThreshold())
+        .append("\nprecompressedBodies=")
+        .append(properties.isPrecompressedBodiesEnabled())
+        .append("\nfaker=")
+        .append(properties.getFaker())
+        .append("\ntemplateFastPath=")
+        .append(properties.isTemplateFastPathEnabled())
+        .append("\npropertiesGlobalTemplating=")
+        .append(properties.getGlobalTemplating())
+        .append("\nmaxStubs=")
+        .append(properties.getLimits().getMaxStubs())
+        .append("\nmaxJournalBytes=")
+        .append(properties.getLimits().getMaxJournalBytes())
+        .append("\nfootprintCheckInterval=")
+        .append(properties.getLimits().getCheckInterval());
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256")
+              .digest(settings.toString().getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * The declared extensions, leaving out those a previous engine registered itself. Extensions
+   * declared by name or class are created by WireMock with their default configuration, so their
+   * name is enough; extension instances and factories may be configured, so they are identified by
+   * the object itself.
+   */
+  private static TreeSet<String> extensions(ExtensionDeclarations extensions) {
+    TreeSet<String> names = new TreeSet<>(extensions.getClassNames());
+    extensions.getClasses().forEach(type -> names.add(type.getName()));
+    extensions.getInstances().values().forEach(instance -> names.add(identity(instance)));
+    extensions.getFactories().forEach(factory -> names.add(identity(factory)));
+    names.removeIf(name -> name.startsWith(StubEngine.class.getPackageName() + "."));
+    return names;
+  }
+
+  private static String identity(Object object) {
+    return object.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(object));
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.tomakehurst.wiremock.extension.StubLifecycleListener;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version number of the stub set of a {@link StubEngine}, incremented whenever a stub is added,
+ * edited or removed.
+ *
+ * <p>Indexes and caches built from the stub set remember the version they were built from and
+ * rebuild lazily once it has moved on. Changes made inside {@link #batch(Runnable)} increment the
+ * version only once, when the outermost batch completes, so a bulk import causes one rebuild
+ * rather than one per stub.
+ */
+class StubSetVersion implements StubLifecycleListener {
+  static final String NAME = "wm-interceptor-stub-set-version";
+
+  private final AtomicLong version = new AtomicLong();
+
+  private final AtomicInteger batchDepth = new AtomicInteger();
+
+  /** Returns the current version of the stub set. */
+  long current() {
+    return version.get();
+  }
+
+  /**
+   * Runs a series of stub changes as a single change of the stub set.
+   *
+   * @param changes the changes to apply
+   */
+  void batch(Runnable changes) {
+    batchDepth.incrementAndGet();
+    try {
+      changes.run();
+    } finally {
+      batchDepth.decrementAndGet();
+      version.incrementAndGet();
+    }
+  }
+
+  private void changed() {
+    if (batchDepth.get() == 0) {
+      version.incrementAndGet();
+    }
+  }
+
+  @Override
+  public void afterStubCreated(StubMapping stub) {
+    changed();
+  }
+
+  @Override
+  public void afterStubEdited(StubMapping oldStub, StubMapping newStub) {
+    changed();
+  }
+
+  @Override
+  public void afterStubRemoved(StubMapping stub) {
+    changed();
+  }
+
+  @Override
+  public void afterStubsReset() {
+    changed();
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
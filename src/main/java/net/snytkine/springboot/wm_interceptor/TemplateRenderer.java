@@ -0,0 +1,802 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import com.github.jknack.handlebars.Context;
+import com.github.jknack.handlebars.EscapingStrategy;
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.HandlebarsException;
+import com.github.jknack.handlebars.TagType;
+import com.github.jknack.handlebars.Template;
+import com.github.jknack.handlebars.context.FieldValueResolver;
+import com.github.jknack.handlebars.context.JavaBeanValueResolver;
+import com.github.jknack.handlebars.context.MapValueResolver;
+import com.github.jknack.handlebars.helper.ConditionalHelpers;
+import com.github.jknack.handlebars.helper.NumberHelper;
+import com.github.jknack.handlebars.helper.StringHelpers;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.common.FileSource;
+import com.github.tomakehurst.wiremock.common.ListOrSingle;
+import com.github.tomakehurst.wiremock.common.Urls;
+import com.github.tomakehurst.wiremock.common.url.PathTemplate;
+import com.github.tomakehurst.wiremock.extension.Extension;
+import com.github.tomakehurst.wiremock.extension.ExtensionDeclarations;
+import com.github.tomakehurst.wiremock.extension.ExtensionFactory;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.extension.StubLifecycleListener;
+import com.github.tomakehurst.wiremock.extension.TemplateHelperProviderExtension;
+import com.github.tomakehurst.wiremock.extension.TemplateModelDataProviderExtension;
+import com.github.tomakehurst.wiremock.extension.WireMockServices;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.ResponseTemplateTransformer;
+import com.github.tomakehurst.wiremock.extension.responsetemplating.helpers.WireMockHelpers;
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import com.github.tomakehurst.wiremock.http.HttpHeaders;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.matching.UrlPathTemplatePattern;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fast path for response templating in the in-process engine, used in place of WireMock's {@code
+ * response-template} transformer when {@code templateFastPathEnabled} is set.
+ *
+ * <p>WireMock's transformer builds the whole request model and a context map for every response,
+ * renders into a String that grows as it goes, and converts the String to bytes. This transformer
+ * instead:
+ *
+ * <ul>
+ *   <li>compiles the body and header templates of each stub once, when the stub is loaded, and
+ *       drops them when it is edited or removed
+ *   <li>exposes the request as a lazy model whose parts are only worked out when a template refers
+ *       to them
+ *   <li>renders the body as UTF-8 straight into a pooled byte buffer, so the body is copied once
+ *       into the response
+ * </ul>
+ *
+ * <p>It registers the same Handlebars helpers as WireMock (string, number, conditional and
+ * WireMock helpers, and those of extensions such as the Faker extension), except {@code
+ * systemValue}, {@code assign} and {@code include}, and like WireMock it does not HTML-escape
+ * values. The request model offers {@code url}, {@code path} (with its segments by index and the
+ * parameters of a {@code urlPathTemplate}), {@code pathSegments}, {@code method}, {@code scheme},
+ * {@code host}, {@code port}, {@code baseUrl}, {@code query}, {@code headers} (looked up ignoring
+ * case), {@code cookies}, {@code body} and {@code bodyAsBase64}; transformer parameters are
+ * available as {@code parameters}. Like WireMock, only text bodies and body files are templated,
+ * and body files are served as they are with the {@code disableBodyFileTemplating} parameter.
+ *
+ * <p>Stubs this transformer cannot render as WireMock would are handed to WireMock's own {@code
+ * response-template} transformer: stubs whose templates fail to compile, use a helper it lacks or
+ * refer to a part of the request outside its model, whose body file name or proxy base URL is a
+ * template, or whose body file cannot be read, and all stubs when an extension adds data to the
+ * template model.
+ */
+@Slf4j
+class TemplateRenderer implements ResponseDefinitionTransformerV2, StubLifecycleListener {
+  static final String NAME = "response-template";
+
+  private static final String FILES_ROOT = "__files";
+
+  /** Estimated bytes held by a compiled template per character of its source. */
+  static final int BYTES_PER_SOURCE_CHAR = 8;
+
+  /** Buffers larger than this are not returned to the pool. */
+  static final int MAX_POOLED_BUFFER = 1024 * 1024;
+
+  private final Handlebars handlebars;
+
+  private final boolean global;
+
+  private final Map<UUID, Compiled> templates = new ConcurrentHashMap<>();
+
+  private final BufferPool buffers =
+      new BufferPool(2 * Runtime.getRuntime().availableProcessors());
+
+  /** Helpers of WireMock's transformer this one does not register. */
+  private static final Set<String> UNSUPPORTED_HELPERS = Set.of("systemValue", "assign", "include");
+
+  /** Stands in for the templates of stubs rendered by WireMock's transformer. */
+  private static final Compiled WIREMOCK = new Compiled(null, Map.of(), null);
+
+  private volatile WireMockServices services;
+
+  private volatile FileSource files;
+
+  /** WireMock's transformer, rendering the stubs this one cannot; created when the stubs load. */
+  private volatile ResponseTemplateTransformer wireMock;
+
+  /** Whether an extension adds data to the template model, so all stubs go to WireMock. */
+  private volatile boolean extraModelData;
+
+  /**
+   * Templates of a stub's response.
+   *
+   * @param body the body template, null if the body is not templated
+   * @param headers header templates by name, one per value, null for values without expressions
+   * @param pathTemplate the {@code urlPathTemplate} of the stub, null if it has none
+   */
+  record Compiled(Template body, Map<String, Template[]> headers, PathTemplate pathTemplate) {}
+
+  /**
+   * Creates the renderer.
+   *
+   * @param extensions the extensions declared in the WireMock configuration; the template helpers
+   *     of those providing them are registered
+   * @param global whether all stubs are templated, not only those naming the transformer
+   */
+  TemplateRenderer(ExtensionDeclarations extensions, boolean global) {
+    this.handlebars = handlebars(extensions);
+    this.global = global;
+  }
+
+  private static Handlebars handlebars(ExtensionDeclarations extensions) {
+    // WireMock disables HTML escaping by default, responses are rarely HTML
+    Handlebars handlebars = new Handlebars().with(EscapingStrategy.NOOP);
+    for (StringHelpers helper : StringHelpers.values()) {
+      if (!"now".equals(helper.name())) {
+        handlebars.registerHelper(helper.name(), helper);
+      }
+    }
+    for (NumberHelper helper : NumberHelper.values()) {
+      handlebars.registerHelper(helper.name(), helper);
+    }
+    for (ConditionalHelpers helper : ConditionalHelpers.values()) {
+      handlebars.registerHelper(helper.name(), helper);
+    }
+    for (WireMockHelpers helper : WireMockHelpers.values()) {
+      handlebars.registerHelper(helper.name(), helper);
+    }
+    for (TemplateHelperProviderExtension provider : helperProviders(extensions)) {
+      provider.provideTemplateHelpers().forEach(handlebars::registerHelper);
+    }
+    return handlebars;
+  }
+
+  /** Instantiates the declared extensions that provide template helpers. */
+  private static List<TemplateHelperProviderExtension> helperProviders(
+      ExtensionDeclarations extensions) {
+    List<TemplateHelperProviderExtension> providers = new ArrayList<>();
+    for (Extension instance : extensions.getInstances().values()) {
+      if (instance instanceof TemplateHelperProviderExtension provider) {
+        providers.add(provider);
+      }
+    }
+    List<Class<?>> classes = new ArrayList<>(extensions.getClasses());
+    for (String className : extensions.getClassNames()) {
+      try {
+        classes.add(Class.forName(className));
+      } catch (ClassNotFoundException e) {
+        log.warn("Extension {} not found, its template helpers are not available", className);
+      }
+    }
+    for (Class<?> type : classes) {
+      if (!TemplateHelperProviderExtension.class.isAssignableFrom(type)) {
+        continue;
+      }
+      try {
+        providers.add(
+            (TemplateHelperProviderExtension) type.getDeclaredConstructor().newInstance());
+      } catch (ReflectiveOperationException e) {
+        log.warn("Unable to create extension {} for its template helpers", type.getName(), e);
+      }
+    }
+    return providers;
+  }
+
+  /**
+   * Returns the factory to register with WireMock in place of this transformer. It gives the
+   * transformer the WireMock services it needs to create WireMock's own transformer.
+   */
+  ExtensionFactory factory() {
+    return services -> {
+      this.services = services;
+      return List.of(this);
+    };
+  }
+
+  /**
+   * Creates WireMock's transformer for the stubs this one cannot render, then compiles the
+   * templates of all stubs currently loaded in the server.
+   *
+   * @param wireMockServer the server whose stubs should be compiled
+   * @throws IllegalStateException if the transformer was not registered through {@link #factory()}
+   */
+  void load(WireMockServer wireMockServer) {
+    if (services == null) {
+      throw new IllegalStateException("Template renderer was not registered through its factory");
+    }
+    List<TemplateModelDataProviderExtension> modelProviders =
+        new ArrayList<>(
+            services.getExtensions().ofType(TemplateModelDataProviderExtension.class).values());
+    this.extraModelData = !modelProviders.isEmpty();
+    this.wireMock =
+        new ResponseTemplateTransformer(
+            services.getTemplateEngine(), global, services.getFiles(), modelProviders);
+    if (extraModelData) {
+      log.info("Extensions add template model data, templates are rendered by WireMock");
+    }
+    this.files = wireMockServer.getOptions().filesRoot().child(FILES_ROOT);
+    for (StubMapping stub : wireMockServer.getStubMappings()) {
+      if (isTemplated(stub.getResponse())) {
+        templates.put(stub.getId(), compile(stub));
+      }
+    }
+    log.debug("Compiled response templates of {} stubs", compiledCount());
+  }
+
+  private boolean isTemplated(ResponseDefinition response) {
+    return response != null
+        && response.wasConfigured()
+        && (global
+            || (response.getTransformers() != null && response.getTransformers().contains(NAME)));
+  }
+
+  /**
+   * Compiles the body and header templates of a stub's response, or returns {@link #WIREMOCK} if
+   * the stub is left to WireMock's transformer.
+   */
+  Compiled compile(StubMapping stub) {
+    ResponseDefinition response = stub.getResponse();
+    if (extraModelData
+        || (response.specifiesBodyFile() && response.getBodyFileName().contains("{{"))
+        || (response.isProxyResponse() && response.getProxyBaseUrl().contains("{{"))) {
+      return WIREMOCK;
+    }
+    try {
+      Template body = null;
+      if (response.specifiesTextBodyContent()) {
+        body = handlebars.compileInline(response.getBody());
+      } else if (response.specifiesBodyFile() && !bodyFileTemplatingDisabled(response)) {
+        body =
+            handlebars.compileInline(
+                files.getTextFileNamed(response.getBodyFileName()).readContentsAsString());
+      }
+      if (body != null && !modelled(body)) {
+        return WIREMOCK;
+      }
+      Map<String, Template[]> headers = new LinkedHashMap<>();
+      if (response.getHeaders() != null) {
+        for (HttpHeader header : response.getHeaders().all()) {
+          List<String> values = header.values();
+          Template[] compiled = new Template[values.size()];
+          boolean any = false;
+          for (int i = 0; i < compiled.length; i++) {
+            if (values.get(i).contains("{{")) {
+              compiled[i] = handlebars.compileInline(values.get(i));
+              if (!modelled(compiled[i])) {
+                return WIREMOCK;
+              }
+              any = true;
+            }
+          }
+          if (any) {
+            headers.put(header.key(), compiled);
+          }
+        }
+      }
+      PathTemplate pathTemplate =
+          stub.getRequest() != null
+                  && stub.getRequest().getUrlMatcher() instanceof UrlPathTemplatePattern template
+              ? new PathTemplate(template.getPattern().getExpected())
+              : null;
+      return new Compiled(body, headers, pathTemplate);
+    } catch (IOException | RuntimeException e) {
+      // a parse error, or a body file that cannot be read; WireMock reports it when serving
+      log.debug("Response of stub {} is rendered by WireMock: {}", stub.getId(), e.toString());
+      return WIREMOCK;
+    }
+  }
+
+  private static boolean bodyFileTemplatingDisabled(ResponseDefinition response) {
+    Parameters parameters = response.getTransformerParameters();
+    return parameters != null
+        && Boolean.TRUE.equals(parameters.getBoolean("disableBodyFileTemplating", false));
+  }
+
+  /**
+   * Returns whether a template only uses helpers this transformer registers and parts of the
+   * request its model offers. The request as a whole, passed to a block helper such as {@code
+   * with}, counts as unmodelled since the parts used inside the block are not known.
+   */
+  private static boolean modelled(Template template) {
+    List<String> names = new ArrayList<>(template.collect(TagType.values()));
+    names.addAll(template.collectReferenceParameters());
+    for (String name : names) {
+      if (UNSUPPORTED_HELPERS.contains(name) || "request".equals(name)) {
+        return false;
+      }
+      if (name.startsWith("request.")) {
+        int end = name.indexOf('.', "request.".length());
+        String key = name.substring("request.".length(), end < 0 ? name.length() : end);
+        if (key.startsWith("[") && key.endsWith("]")) {
+          key = key.substring(1, key.length() - 1);
+        }
+        if (!RequestModel.KEYS.contains(key)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public ResponseDefinition transform(ServeEvent serveEvent) {
+    ResponseDefinition response = serveEvent.getResponseDefinition();
+    StubMapping stub = serveEvent.getStubMapping();
+    if (response == null || stub == null || !response.wasConfigured()) {
+      return response;
+    }
+    Compiled compiled = templates.computeIfAbsent(stub.getId(), id -> compile(stub));
+    if (compiled == WIREMOCK) {
+      return wireMock.transform(serveEvent);
+    }
+
+    Map<String, Object> model = new HashMap<>(4);
+    model.put("request", new RequestModel(serveEvent.getRequest(), compiled.pathTemplate()));
+    model.put("parameters", serveEvent.getTransformerParameters());
+    Context context =
+        Context.newBuilder(model)
+            .resolver(
+                MapValueResolver.INSTANCE,
+                JavaBeanValueResolver.INSTANCE,
+                FieldValueResolver.INSTANCE)
+            .build();
+    try {
+      ResponseDefinitionBuilder builder = ResponseDefinitionBuilder.like(response);
+      if (compiled.body() != null) {
+        builder.withBodyFile(null).withBody(render(compiled.body(), context));
+      }
+      if (!compiled.headers().isEmpty()) {
+        builder.withHeaders(renderHeaders(response.getHeaders(), compiled.headers(), context));
+      }
+      return builder.build();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to render response of stub " + stub.getId(), e);
+    } finally {
+      context.destroy();
+    }
+  }
+
+  private byte[] render(Template template, Context context) throws IOException {
+    Utf8Buffer buffer = buffers.acquire();
+    try {
+      template.apply(context, buffer);
+      return buffer.toByteArray();
+    } finally {
+      buffers.release(buffer);
+    }
+  }
+
+  private static HttpHeaders renderHeaders(
+      HttpHeaders headers, Map<String, Template[]> templates, Context context) throws IOException {
+    List<HttpHeader> rendered = new ArrayList<>();
+    for (HttpHeader header : headers.all()) {
+      Template[] compiled = templates.get(header.key());
+      if (compiled == null) {
+        rendered.add(header);
+        continue;
+      }
+      List<String> values = new ArrayList<>(header.values());
+      for (int i = 0; i < compiled.length; i++) {
+        if (compiled[i] != null) {
+          values.set(i, compiled[i].apply(context));
+        }
+      }
+      rendered.add(new HttpHeader(header.key(), values));
+    }
+    return new HttpHeaders(rendered);
+  }
+
+  @Override
+  public boolean applyGlobally() {
+    return global;
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public void afterStubCreated(StubMapping stub) {
+    precompile(stub);
+  }
+
+  @Override
+  public void afterStubEdited(StubMapping oldStub, StubMapping newStub) {
+    templates.remove(oldStub.getId());
+    precompile(newStub);
+  }
+
+  @Override
+  public void afterStubRemoved(StubMapping stub) {
+    templates.remove(stub.getId());
+    if (wireMock != null) {
+      wireMock.afterStubRemoved(stub);
+    }
+  }
+
+  @Override
+  public void afterStubsReset() {
+    templates.clear();
+    if (wireMock != null) {
+      wireMock.afterStubsReset();
+    }
+  }
+
+  private void precompile(StubMapping stub) {
+    if (files != null && isTemplated(stub.getResponse())) {
+      templates.put(stub.getId(), compile(stub));
+    }
+  }
+
+  /** Returns the number of stubs whose templates are compiled, not those left to WireMock. */
+  int compiledCount() {
+    return (int) templates.values().stream().filter(compiled -> compiled != WIREMOCK).count();
+  }
+
+  /** Returns the number of stubs whose responses are rendered by WireMock's transformer. */
+  int wireMockCount() {
+    return templates.size() - compiledCount();
+  }
+
+  /**
+   * Returns the approximate memory held by the compiled templates. A compiled template keeps its
+   * source and a tree of nodes over it, estimated at {@value #BYTES_PER_SOURCE_CHAR} bytes per
+   * source character.
+   */
+  long estimatedBytes() {
+    long chars = 0;
+    for (Compiled compiled : templates.values()) {
+      if (compiled.body() != null) {
+        chars += compiled.body().text().length();
+      }
+      for (Template[] values : compiled.headers().values()) {
+        for (Template value : values) {
+          if (value != null) {
+            chars += value.text().length();
+          }
+        }
+      }
+    }
+    return chars * BYTES_PER_SOURCE_CHAR;
+  }
+
+  /**
+   * The request as seen by templates. Each part is worked out the first time a template refers to
+   * it; the model belongs to a single render, so it needs no synchronisation.
+   */
+  static final class RequestModel extends AbstractMap<String, Object> {
+    private static final List<String> KEYS =
+        List.of(
+            "url",
+            "path",
+            "pathSegments",
+            "method",
+            "scheme",
+            "host",
+            "port",
+            "baseUrl",
+            "query",
+            "headers",
+            "cookies",
+            "body",
+            "bodyAsBase64");
+
+    private final Request request;
+
+    private final PathTemplate pathTemplate;
+
+    private final Map<String, Object> resolved = new HashMap<>();
+
+    /**
+     * Creates the model of a request.
+     *
+     * @param request the request
+     * @param pathTemplate the {@code urlPathTemplate} of the matched stub, null if it has none
+     */
+    RequestModel(Request request, PathTemplate pathTemplate) {
+      this.request = request;
+      this.pathTemplate = pathTemplate;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (!(key instanceof String name) || !KEYS.contains(name)) {
+        return null;
+      }
+      Object value = resolved.get(name);
+      if (value == null) {
+        value = resolve(name);
+        resolved.put(name, value);
+      }
+      return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return key instanceof String name && KEYS.contains(name);
+    }
+
+    private Object resolve(String name) {
+      return switch (name) {
+        case "url" -> request.getUrl();
+        case "path" -> pathModel();
+        case "pathSegments" -> pathSegments();
+        case "method" -> request.getMethod().getName();
+        case "scheme" -> request.getScheme();
+        case "host" -> request.getHost();
+        case "port" -> request.getPort();
+        case "baseUrl" -> baseUrl();
+        case "query" -> query();
+        case "headers" -> headers();
+        case "cookies" -> cookies();
+        case "body" -> request.getBodyAsString();
+        case "bodyAsBase64" -> request.getBodyAsBase64();
+        default -> null;
+      };
+    }
+
+    private String path() {
+      String url = request.getUrl();
+      int query = url.indexOf('?');
+      return query < 0 ? url : url.substring(0, query);
+    }
+
+    private List<String> pathSegments() {
+      return Arrays.stream(path().split("/")).filter(s -> !s.isEmpty()).toList();
+    }
+
+    private PathModel pathModel() {
+      String path = path();
+      Map<String, String> parameters =
+          pathTemplate != null && pathTemplate.matches(path) ? pathTemplate.parse(path) : Map.of();
+      return new PathModel(path, pathSegments(), parameters);
+    }
+
+    private String baseUrl() {
+      String absolute = request.getAbsoluteUrl();
+      String url = request.getUrl();
+      return absolute.endsWith(url)
+          ? absolute.substring(0, absolute.length() - url.length())
+          : absolute;
+    }
+
+    private Map<String, ListOrSingle<String>> query() {
+      // split from the URL, as WireMock's model does
+      Map<String, ListOrSingle<String>> query = new LinkedHashMap<>();
+      Urls.splitQueryFromUrl(request.getUrl())
+          .forEach((name, parameter) -> query.put(name, ListOrSingle.of(parameter.values())));
+      return query;
+    }
+
+    private Map<String, ListOrSingle<String>> headers() {
+      // header names are looked up ignoring case, as in WireMock
+      Map<String, ListOrSingle<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+      for (HttpHeader header : request.getHeaders().all()) {
+        headers.put(header.key(), ListOrSingle.of(header.values()));
+      }
+      return headers;
+    }
+
+    private Map<String, ListOrSingle<String>> cookies() {
+      Map<String, ListOrSingle<String>> cookies = new LinkedHashMap<>();
+      request
+          .getCookies()
+          .forEach((name, cookie) -> cookies.put(name, ListOrSingle.of(cookie.values())));
+      return cookies;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+      Set<Entry<String, Object>> entries = new LinkedHashSet<>();
+      for (String key : KEYS) {
+        entries.add(new SimpleImmutableEntry<>(key, get(key)));
+      }
+      return entries;
+    }
+  }
+
+  /**
+   * The request path as seen by templates: renders as the path, and gives the path segments by
+   * index, as in {@code request.path.[0]}, and the path parameters of a stub matching a {@code
+   * urlPathTemplate} by name, as in {@code request.path.id}.
+   */
+  static final class PathModel extends LinkedHashMap<String, String> {
+    private final String path;
+
+    PathModel(String path, List<String> segments, Map<String, String> parameters) {
+      this.path = path;
+      for (int i = 0; i < segments.size(); i++) {
+        put(String.valueOf(i), segments.get(i));
+      }
+      putAll(parameters);
+    }
+
+    @Override
+    public String toString() {
+      return path;
+    }
+  }
+
+  /**
+   * A growable byte buffer that is also a {@link Writer}, encoding the characters written to it as
+   * UTF-8. Surrogate pairs split across writes are handled.
+   */
+  static final class Utf8Buffer extends Writer {
+    private byte[] bytes = new byte[1024];
+
+    private int count;
+
+    /** High surrogate written last, waiting for its low surrogate, 0 if none. */
+    private char pendingHigh;
+
+    @Override
+    public void write(int c) {
+      writeChar((char) c);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) {
+      ensureCapacity(count + length);
+      for (int i = offset; i < offset + length; i++) {
+        char c = chars[i];
+        if (c < 0x80 && pendingHigh == 0) {
+          if (count == bytes.length) {
+            ensureCapacity(count + 1);
+          }
+          bytes[count++] = (byte) c;
+        } else {
+          writeChar(c);
+        }
+      }
+    }
+
+    @Override
+    public void write(String text, int offset, int length) {
+      ensureCapacity(count + length);
+      for (int i = offset; i < offset + length; i++) {
+        char c = text.charAt(i);
+        if (c < 0x80 && pendingHigh == 0) {
+          if (count == bytes.length) {
+            ensureCapacity(count + 1);
+          }
+          bytes[count++] = (byte) c;
+        } else {
+          writeChar(c);
+        }
+      }
+    }
+
+    private void writeChar(char c) {
+      ensureCapacity(count + 4);
+      if (pendingHigh != 0) {
+        char high = pendingHigh;
+        pendingHigh = 0;
+        if (Character.isLowSurrogate(c)) {
+          int codePoint = Character.toCodePoint(high, c);
+          bytes[count++] = (byte) (0xf0 | (codePoint >> 18));
+          bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+          bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+          bytes[count++] = (byte) (0x80 | (codePoint & 0x3f));
+          return;
+        }
+        bytes[count++] = '?';
+        ensureCapacity(count + 4);
+      }
+      if (c < 0x80) {
+        bytes[count++] = (byte) c;
+      } else if (c < 0x800) {
+        bytes[count++] = (byte) (0xc0 | (c >> 6));
+        bytes[count++] = (byte) (0x80 | (c & 0x3f));
+      } else if (Character.isHighSurrogate(c)) {
+        pendingHigh = c;
+      } else if (Character.isLowSurrogate(c)) {
+        bytes[count++] = '?';
+      } else {
+        bytes[count++] = (byte) (0xe0 | (c >> 12));
+        bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+        bytes[count++] = (byte) (0x80 | (c & 0x3f));
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(capacity, bytes.length * 2));
+      }
+    }
+
+    /** Returns a copy of the bytes written so far. */
+    byte[] toByteArray() {
+      if (pendingHigh != 0) {
+        pendingHigh = 0;
+        ensureCapacity(count + 1);
+        bytes[count++] = '?';
+      }
+      return Arrays.copyOf(bytes, count);
+    }
+
+    int capacity() {
+      return bytes.length;
+    }
+
+    void reset() {
+      count = 0;
+      pendingHigh = 0;
+    }
+
+    @Override
+    public void flush() {}
+
+    @Override
+    public void close() {}
+  }
+
+  /**
+   * Lock-free pool of {@link Utf8Buffer buffers}. A buffer is taken from the first occupied slot
+   * and returned to the first empty one; when all slots are empty a new buffer is created, and when
+   * all are full the returned buffer is left to the garbage collector.
+   */
+  static final class BufferPool {
+    private final AtomicReferenceArray<Utf8Buffer> slots;
+
+    BufferPool(int size) {
+      this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    Utf8Buffer acquire() {
+      for (int i = 0; i < slots.length(); i++) {
+        if (slots.get(i) != null) {
+          Utf8Buffer buffer = slots.getAndSet(i, null);
+          if (buffer != null) {
+            return buffer;
+          }
+        }
+      }
+      return new Utf8Buffer();
+    }
+
+    void release(Utf8Buffer buffer) {
+      if (buffer.capacity() > MAX_POOLED_BUFFER) {
+        return;
+      }
+      buffer.reset();
+      for (int i = 0; i < slots.length(); i++) {
+        if (slots.get(i) == null && slots.compareAndSet(i, null, buffer)) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link InputStream} that limits the rate at which the wrapped stream can be read, to simulate a
+ * slow network. Reading blocks, on the calling thread, until the bytes read so far are within the
+ * allowed rate measured from the first read.
+ */
+class ThrottledInputStream extends FilterInputStream {
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final long bytesPerSecond;
+
+  private final int chunkSize;
+
+  private long startNanos = -1;
+
+  private long bytesRead;
+
+  ThrottledInputStream(InputStream in, long bytesPerSecond) {
+    super(in);
+    this.bytesPerSecond = bytesPerSecond;
+    // read in chunks of about 10ms worth of bytes so the rate is smooth
+    this.chunkSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, bytesPerSecond / 100));
+  }
+
+  @Override
+  public int read() throws IOException {
+    int b = super.read();
+    if (b >= 0) {
+      throttle(1);
+    }
+    return b;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = super.read(b, off, Math.min(len, chunkSize));
+    if (n > 0) {
+      throttle(n);
+    }
+    return n;
+  }
+
+  private void throttle(int n) throws IOException {
+    long now = System.nanoTime();
+    if (startNanos < 0) {
+      startNanos = now;
+    }
+    bytesRead += n;
+    long due = startNanos + bytesRead * NANOS_PER_SECOND / bytesPerSecond;
+    LatencySimulator.sleepNanos(due - now);
+  }
+}
@@ -15,10 +15,8 @@
  */
 package net.snytkine.springboot.wm_interceptor;
 
-import com.github.tomakehurst.wiremock.WireMockServer;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import com.github.tomakehurst.wiremock.direct.DirectCallHttpServer;
-import com.github.tomakehurst.wiremock.direct.DirectCallHttpServerFactory;
 import com.github.tomakehurst.wiremock.http.ContentTypeHeader;
 import com.github.tomakehurst.wiremock.http.Cookie;
 import com.github.tomakehurst.wiremock.http.FormParameter;
@@ -27,21 +25,41 @@ import com.github.tomakehurst.wiremock.http.HttpHeaders;
 import com.github.tomakehurst.wiremock.http.QueryParameter;
 import com.github.tomakehurst.wiremock.http.Request;
 import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import lombok.extern.slf4j.Slf4j;
 import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.SmartLifecycle;
 import org.springframework.http.HttpRequest;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
@@ -69,8 +87,13 @@ import org.springframework.web.util.UriComponentsBuilder;
  * </ul>
  *
  * <p>Usage: The interceptor is instantiated with a {@link WireMockConfiguration} and {@link
- * WireMockProperties}. It automatically initializes a WireMock server with a direct call HTTP
- * server factory, allowing in-process stub matching without network I/O.
+ * WireMockProperties}. It automatically initializes a {@link StubEngine}, a WireMock server with a
+ * direct call HTTP server factory, allowing in-process stub matching without network I/O. Stubs
+ * can be managed at runtime through {@link #getEngine()}.
+ *
+ * <p>Lifecycle: as a {@link SmartLifecycle} bean the interceptor stops mocking when the context
+ * shuts down, after giving mock responses in flight up to {@code shutdownTimeout} to complete, and
+ * releases its engine when the context is closed. Outside Spring, call {@link #close()}.
  *
  * <p>Mock Identification: When a mock response is returned, an optional header can be added to
  * identify the response as originating from the mock middleware. This is controlled by the {@code
@@ -81,13 +104,99 @@ import org.springframework.web.util.UriComponentsBuilder;
  * @see WireMockProperties
  */
 @Slf4j
-public class WMInterceptor implements ClientHttpRequestInterceptor {
+public class WMInterceptor
+    implements ClientHttpRequestInterceptor, SmartLifecycle, DisposableBean, AutoCloseable {
+  /**
+   * Lifecycle phase, below that of the web server's graceful shutdown so requests it is still
+   * completing can be mocked until it is done.
+   */
+  static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 2048;
+
+  /** Maximum number of warm-ups waiting for the warm-up thread. */
+  static final int MAX_QUEUED_WARMUPS = 16;
+
   /** The {@link DirectCallHttpServer} instance that is responsible for handling */
   private final DirectCallHttpServer directCallHttpServer;
 
   /** The {@link WireMockProperties} instance that contains configuration. */
   private final WireMockProperties properties;
 
+  /** The {@link StubEngine} that owns the WireMock server and the stub set. */
+  private final StubEngine engine;
+
+  /** Whether {@link #engine} is shared through the {@link StubEngineRegistry}. */
+  private final boolean sharedEngine;
+
+  private final AtomicBoolean closed = new AtomicBoolean();
+
+  /** Whether requests are mocked; cleared when the interceptor is stopped. */
+  private volatile boolean running = true;
+
+  /** Number of requests being matched or delayed right now. */
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  /** Decides which requests may be mocked, see {@link WireMockProperties#getSampling()}. */
+  private final MockSampler sampler;
+
+  /** Applies the configured latency profiles to mock responses. */
+  private final LatencySimulator latencySimulator;
+
+  /** Index of stubs matching on an exact URL, null unless enabled. */
+  private final ExactMatchIndex exactMatchIndex;
+
+  /** Matching order adapted to stub hit counts, null unless enabled. */
+  private final AdaptiveStubOrder adaptiveStubOrder;
+
+  /** Cache of matched stubs and responses, null unless enabled. */
+  private final MatchCache matchCache;
+
+  /** Diagnostics of unmatched requests, null unless enabled. */
+  private final MatchDiagnostics matchDiagnostics;
+
+  /** Listener serving the stubs to socket clients, null unless enabled and running. */
+  private volatile LoopbackServer loopbackServer;
+
+  /** Port the loopback listener was first bound to, rebound when the interceptor restarts. */
+  private int loopbackPort;
+
+  /** Counters of the routing decisions made by this interceptor. */
+  private final WMInterceptorStats stats = new WMInterceptorStats();
+
+  /** Asynchronous log of routing decisions, null unless enabled. */
+  private final MockEventSink eventSink;
+
+  /** Observer of intercepted requests for tracing, null unless attached. */
+  private volatile InterceptObserver observer;
+
+  /** Circuit breaker over real calls, null unless the fallback to mock responses is enabled. */
+  private final PassThroughBreaker breaker;
+
+  /** Warms connections to origins that are no longer mocked, null unless attached. */
+  private volatile PassThroughWarmer warmer;
+
+  /** Origins mocked since the warmer was attached, see {@link #origin}. */
+  private final Set<String> mockedOrigins = ConcurrentHashMap.newKeySet();
+
+  /**
+   * Mocked origins warmed since they were last mocked. An origin is warmed once when it stops being
+   * mocked, and again only after a response to it has been mocked since.
+   */
+  private final Set<String> warmedOrigins = ConcurrentHashMap.newKeySet();
+
+  /** Runs warm-ups one at a time on a daemon thread; those beyond its queue are dropped. */
+  private final ThreadPoolExecutor warmups =
+      new ThreadPoolExecutor(
+          0,
+          1,
+          30,
+          TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(MAX_QUEUED_WARMUPS),
+          runnable -> {
+            Thread thread = new Thread(runnable, RequestFactoryWarmer.THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+          });
+
   /**
    * Constructs a new {@code WireMockInterceptor} with the specified WireMock configuration and
    * properties.
@@ -104,11 +213,209 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
    */
   public WMInterceptor(WireMockConfiguration wireMockConfiguration, WireMockProperties properties) {
     this.properties = properties;
-    DirectCallHttpServerFactory wireMockServer = new DirectCallHttpServerFactory();
-    wireMockConfiguration.httpServerFactory(wireMockServer);
-    WireMockServer wm = new WireMockServer(wireMockConfiguration);
-    wm.start(); // no-op, not required
-    this.directCallHttpServer = wireMockServer.getHttpServer();
+    this.sampler = new MockSampler(properties.getSampling());
+    this.latencySimulator = new LatencySimulator(properties);
+    this.sharedEngine = properties.isSharedEngineEnabled();
+    this.engine =
+        sharedEngine
+            ? StubEngineRegistry.acquire(wireMockConfiguration, properties)
+            : new StubEngine(wireMockConfiguration, properties);
+    MockEventSink sink = null;
+    try {
+      this.directCallHttpServer = engine.getDirectCallHttpServer();
+      this.exactMatchIndex =
+          properties.isExactMatchIndexEnabled()
+              ? new ExactMatchIndex(engine, Boolean.TRUE.equals(properties.getGlobalTemplating()))
+              : null;
+      this.adaptiveStubOrder =
+          properties.isAdaptiveStubOrderEnabled()
+              ? new AdaptiveStubOrder(
+                  engine,
+                  properties.getAdaptiveStubOrderInterval(),
+                  Boolean.TRUE.equals(properties.getGlobalTemplating()))
+              : null;
+      this.matchCache =
+          properties.getMatchCacheSize() != null
+              ? new MatchCache(
+                  engine,
+                  properties.getMatchCacheSize(),
+                  properties.getLimits().getMaxMatchCacheBytes(),
+                  Boolean.TRUE.equals(properties.getGlobalTemplating()))
+              : null;
+      this.matchDiagnostics =
+          properties.isMatchDiagnosticsEnabled()
+              ? new MatchDiagnostics(engine, properties.getMatchDiagnosticsCapacity())
+              : null;
+      sink =
+          properties.getEventLog().getFile() != null
+              ? new MockEventSink(properties.getEventLog(), stats)
+              : null;
+      this.eventSink = sink;
+      this.breaker =
+          properties.getFallbackToMock().isEnabled()
+              ? new PassThroughBreaker(properties.getFallbackToMock())
+              : null;
+      if (properties.getLoopbackPort() != null) {
+        this.loopbackServer = startLoopbackServer(properties.getLoopbackPort());
+        this.loopbackPort = loopbackServer.getPort();
+      }
+    } catch (RuntimeException | Error e) {
+      // the engine may be shared, it must not stay referenced by an interceptor that never existed
+      if (sink != null) {
+        sink.close(0);
+      }
+      if (sharedEngine) {
+        StubEngineRegistry.release(engine);
+      } else {
+        engine.stop();
+      }
+      throw e;
+    }
+  }
+
+  private LoopbackServer startLoopbackServer(int port) {
+    try {
+      return new LoopbackServer(
+          port, (request, body) -> mockResponse(request, body, mockHeader(), null, true));
+    } catch (IOException e) {
+      throw new IllegalStateException("Unable to start loopback listener on port " + port, e);
+    }
+  }
+
+  /**
+   * Starts mocking again after {@link #stop()}, restarting the loopback listener on the port it
+   * was bound to before.
+   */
+  @Override
+  public synchronized void start() {
+    if (closed.get()) {
+      throw new IllegalStateException("Interceptor has been closed");
+    }
+    if (properties.getLoopbackPort() != null && loopbackServer == null) {
+      loopbackServer = startLoopbackServer(loopbackPort);
+    }
+    running = true;
+  }
+
+  /**
+   * Stops mocking: requests arriving from now on go to the real service, and requests already being
+   * matched or delayed by a latency profile are given up to {@code shutdownTimeout} to complete.
+   * The loopback listener stops accepting connections.
+   */
+  @Override
+  public synchronized void stop() {
+    if (!running) {
+      return;
+    }
+    running = false;
+    Duration timeout = properties.getShutdownTimeout();
+    long deadline = System.nanoTime() + (timeout == null ? 0 : timeout.toNanos());
+    if (loopbackServer != null) {
+      loopbackServer.stop((int) Math.max(0, timeout == null ? 0 : timeout.toSeconds()));
+      loopbackServer = null;
+    }
+    while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    if (inFlight.get() > 0) {
+      log.warn("Stopped with {} mock responses still in flight", inFlight.get());
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  @Override
+  public int getPhase() {
+    return PHASE;
+  }
+
+  @Override
+  public void destroy() {
+    close();
+  }
+
+  /**
+   * Stops the interceptor if it is still running, logs its final counters and releases the engine.
+   * A shared engine is stopped once the last interceptor using it is closed. Closing more than once
+   * has no effect.
+   */
+  @Override
+  public void close() {
+    if (!closed.compareAndSet(false, true)) {
+      return;
+    }
+    stop();
+    warmups.shutdownNow();
+    log.info(
+        "WireMock interceptor closed: {} mocked, {} unmatched, {} sampled out, {} injected errors,"
+            + " match cache {} hits / {} misses",
+        stats.getMocked(),
+        stats.getUnmatched(),
+        stats.getSampledOut(),
+        stats.getInjectedErrors(),
+        stats.getMatchCacheHits(),
+        stats.getMatchCacheMisses());
+    if (eventSink != null) {
+      Duration timeout = properties.getShutdownTimeout();
+      eventSink.close(
+          timeout == null ? MockEventSink.DEFAULT_CLOSE_TIMEOUT_MILLIS : timeout.toMillis());
+    }
+    if (sharedEngine) {
+      StubEngineRegistry.release(engine);
+    } else {
+      engine.stop();
+    }
+  }
+
+  /**
+   * Returns the port of the loopback listener serving the stubs to socket clients.
+   *
+   * @return the port, or -1 if the listener is not enabled or the interceptor is stopped
+   */
+  public int getLoopbackPort() {
+    LoopbackServer server = loopbackServer;
+    return server == null ? -1 : server.getPort();
+  }
+
+  /**
+   * Returns the engine serving this interceptor's stubs, for inspecting and changing the stub set
+   * at runtime.
+   *
+   * @return the stub engine
+   */
+  public StubEngine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Returns the diagnostics of requests that matched no stub.
+   *
+   * @return the match diagnostics, or null if they are not enabled
+   */
+  public MatchDiagnostics getMatchDiagnostics() {
+    return matchDiagnostics;
+  }
+
+  /** Returns the adaptive stub order, or null if it is not enabled. */
+  AdaptiveStubOrder getAdaptiveStubOrder() {
+    return adaptiveStubOrder;
+  }
+
+  /**
+   * Returns the counters of the routing decisions made by this interceptor.
+   *
+   * @return the interceptor statistics
+   */
+  public WMInterceptorStats getStats() {
+    return stats;
   }
 
   @Override
@@ -118,27 +425,460 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
       @NonNull ClientHttpRequestExecution execution)
       throws IOException {
     log.trace("Entered intercept");
+    InterceptObserver.Scope scope = observer == null ? null : observer.start(request);
+    if (scope == null) {
+      return route(request, body, execution, null);
+    }
+    try {
+      return route(request, body, execution, scope);
+    } catch (IOException | RuntimeException e) {
+      scope.error(e);
+      throw e;
+    } finally {
+      scope.stop();
+    }
+  }
+
+  /**
+   * Answers a request with a mock response, a fallback response while the circuit of its host is
+   * open, or the response of the real service.
+   *
+   * @param scope observation of the request, null if it is not observed
+   */
+  private ClientHttpResponse route(
+      HttpRequest request,
+      byte[] body,
+      ClientHttpRequestExecution execution,
+      InterceptObserver.Scope scope)
+      throws IOException {
+    String host = request.getURI().getHost();
+    boolean fallback = breaker != null && running && breaker.isOpen(host);
+    ClientHttpResponse mock = mockResponse(request, body, mockHeader(), scope, !fallback);
+    if (fallback) {
+      stats.recordFallback();
+      return mock != null ? mock : fallbackResponse(scope);
+    }
+    if (mock != null) {
+      if (warmer != null) {
+        String origin = origin(request.getURI());
+        // read first, the set is written once per origin
+        if (!mockedOrigins.contains(origin)) {
+          mockedOrigins.add(origin);
+        }
+        // mocked again, warm it the next time it stops being mocked
+        if (!warmedOrigins.isEmpty() && warmedOrigins.contains(origin)) {
+          warmedOrigins.remove(origin);
+        }
+      }
+      return mock;
+    }
+    log.trace("Returning real response");
+    if (scope != null) {
+      scope.passThrough();
+    }
+    if (warmer != null && !mockedOrigins.isEmpty()) {
+      warm(origin(request.getURI()));
+    }
+    if (breaker == null) {
+      return execution.execute(request, body);
+    }
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      ClientHttpResponse response = execution.execute(request, body);
+      failed = response.getStatusCode().is5xxServerError();
+      return response;
+    } finally {
+      breaker.record(host, System.nanoTime() - start, failed);
+    }
+  }
+
+  /** Builds the response to a request no stub matched while the circuit of its host is open. */
+  private ClientHttpResponse fallbackResponse(InterceptObserver.Scope scope) {
+    int status = properties.getFallbackToMock().getFallbackStatus();
+    log.trace("Real service failing, returning fallback status {}", status);
+    WiremockClientHttpResponse ret =
+        new WiremockClientHttpResponse(
+            com.github.tomakehurst.wiremock.http.Response.response().status(status).build());
+    String[] mockHeader = mockHeader();
+    if (mockHeader != null) {
+      ret.setHeader(mockHeader[0], mockHeader[1]);
+    }
+    if (scope != null) {
+      scope.mocked(null, status, 0, 0);
+    }
+    return ret;
+  }
+
+  /** Returns the scheme, host and port of a request URI, the key of {@link #mockedOrigins}. */
+  private static String origin(URI uri) {
+    return uri.getPort() < 0
+        ? uri.getScheme() + "://" + uri.getHost()
+        : uri.getScheme() + "://" + uri.getHost() + ":" + uri.getPort();
+  }
+
+  /**
+   * Warms an origin on the warm-up thread, if it was mocked, is no longer mocked and has not been
+   * warmed since. An origin some stub still matches requests to, such as a host with only some of
+   * its paths stubbed, is not warmed: its pass-through requests keep its connections warm.
+   */
+  private void warm(String origin) {
+    PassThroughWarmer current = warmer;
+    if (current == null
+        || !mockedOrigins.contains(origin)
+        || warmedOrigins.contains(origin)
+        || (running && engine.hasStubsFor(URI.create(origin)))
+        || !warmedOrigins.add(origin)) {
+      return;
+    }
+    log.debug("Warming connections to {}, which is no longer mocked", origin);
+    try {
+      warmups.execute(
+          () -> {
+            try {
+              current.warm(URI.create(origin));
+            } catch (Exception e) {
+              log.debug("Unable to warm connections to {}", origin, e);
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      log.debug("Too many warm-ups waiting, not warming {}", origin);
+    }
+  }
+
+  /**
+   * Attaches a hook that warms the connections to an origin the first time a request to it is
+   * passed through after it stopped being mocked, because no stub matches requests to it anymore or
+   * the interceptor is stopped. Only requests handled by {@link #intercept} are tracked.
+   *
+   * @param warmer the warmer, or null to detach it
+   */
+  public void setPassThroughWarmer(PassThroughWarmer warmer) {
+    this.warmer = warmer;
+    if (warmer == null) {
+      mockedOrigins.clear();
+      warmedOrigins.clear();
+    }
+  }
+
+  /**
+   * Attaches an observer of intercepted requests, for tracing. Only {@link #intercept} is observed;
+   * batches and the loopback listener are not.
+   *
+   * @param observer the observer, or null to stop observing
+   */
+  public void setObserver(InterceptObserver observer) {
+    this.observer = observer;
+  }
+
+  /**
+   * A request of a batch passed to {@link #interceptBatch(List, boolean)}.
+   *
+   * @param request the request
+   * @param body the request body
+   */
+  public record BatchRequest(HttpRequest request, byte[] body) {}
+
+  /**
+   * Outcome of one request of a batch.
+   *
+   * @param request the request
+   * @param response the mock response, or null if the request should be sent to the real service
+   */
+  public record BatchResult(BatchRequest request, ClientHttpResponse response) {
+    /** Returns true if the request was not mocked and should be sent to the real service. */
+    public boolean isPassThrough() {
+      return response == null;
+    }
+  }
+
+  /**
+   * Matches a batch of requests against the stubs, for clients that fan a call out into many
+   * sub-requests. Unlike {@link #intercept}, requests that are not mocked are not executed; they
+   * are returned as pass-through results for the caller to send on. Sampling, latency profiles,
+   * the match cache and statistics apply to each request as they do in {@link #intercept}.
+   *
+   * @param requests the requests to match
+   * @param parallel true to match the requests in parallel, each on a virtual thread of its own,
+   *     so latency profiles delaying some responses do not hold up the others or any shared pool
+   * @return one result per request, in the order of the requests
+   * @throws IOException if the thread is interrupted while a latency profile delays a response
+   */
+  public List<BatchResult> interceptBatch(List<BatchRequest> requests, boolean parallel)
+      throws IOException {
+    String[] mockHeader = mockHeader();
+    BatchResult[] results = new BatchResult[requests.size()];
+    if (!parallel) {
+      for (int i = 0; i < results.length; i++) {
+        BatchRequest batchRequest = requests.get(i);
+        results[i] =
+            new BatchResult(
+                batchRequest,
+                mockResponse(batchRequest.request(), batchRequest.body(), mockHeader, null, true));
+      }
+      return Arrays.asList(results);
+    }
+    List<Future<ClientHttpResponse>> responses = new ArrayList<>(results.length);
+    // closing the executor waits for every request of the batch
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (BatchRequest batchRequest : requests) {
+        responses.add(
+            executor.submit(
+                () ->
+                    mockResponse(
+                        batchRequest.request(), batchRequest.body(), mockHeader, null, true)));
+      }
+    }
+    for (int i = 0; i < results.length; i++) {
+      try {
+        results[i] = new BatchResult(requests.get(i), responses.get(i).get());
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof IOException io) {
+          throw io;
+        }
+        if (e.getCause() instanceof RuntimeException runtime) {
+          throw runtime;
+        }
+        if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        throw new IllegalStateException("Unable to match batch request", e.getCause());
+      } catch (InterruptedException | CancellationException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while matching a batch");
+      }
+    }
+    return Arrays.asList(results);
+  }
+
+  /** Returns the name and value of the header marking mock responses, or null if not set. */
+  private String[] mockHeader() {
+    String mockKey = properties.getMockResponseHeader();
+    if (mockKey == null) {
+      return null;
+    }
+    return new String[] {
+      mockKey,
+      java.util.Objects.requireNonNullElse(
+          properties.getMockResponseHeaderValue(), "mock-middleware")
+    };
+  }
+
+  /**
+   * Matches a request against the stubs.
+   *
+   * @param scope observation of the request, null if it is not observed
+   * @param sample false to match the request even if a sampling rule would send it to the real
+   *     service
+   * @return the mock response, or null if the request should go to the real service
+   */
+  private ClientHttpResponse mockResponse(
+      HttpRequest request,
+      byte[] body,
+      String[] mockHeader,
+      InterceptObserver.Scope scope,
+      boolean sample)
+      throws IOException {
+    // counted before checking running, so stop() either sees this request or it sees stop()
+    inFlight.incrementAndGet();
+    try {
+      if (!running) {
+        log.trace("Interceptor stopped, not mocking");
+        return null;
+      }
+      engine.enforceLimits();
+      return match(request, body, mockHeader, scope, sample);
+    } finally {
+      inFlight.decrementAndGet();
+    }
+  }
+
+  private ClientHttpResponse match(
+      HttpRequest request,
+      byte[] body,
+      String[] mockHeader,
+      InterceptObserver.Scope scope,
+      boolean sample)
+      throws IOException {
+    boolean timed = eventSink != null || scope != null;
+    long start = timed ? System.nanoTime() : 0;
+    if (sample && !sampler.shouldMatch(request.getURI())) {
+      log.trace("Request sampled out");
+      stats.recordSampledOut();
+      if (eventSink != null) {
+        recordEvent(request, body, MockEventSink.Outcome.SAMPLED_OUT, null, 0, 0, -1);
+      }
+      if (scope != null) {
+        scope.sampledOut();
+      }
+      return null;
+    }
     Request wiremockRequest = new SpringHttpRequestAdapter(request, body);
 
-    com.github.tomakehurst.wiremock.http.Response wiremockResponse =
-        directCallHttpServer.stubRequest(wiremockRequest);
+    MatchCache.Entry matched = resolve(wiremockRequest);
+    com.github.tomakehurst.wiremock.http.Response wiremockResponse = matched.response();
+    StubMapping servedStub = matched.stub();
+
+    long matchEnd = timed ? System.nanoTime() : 0;
+    long matchNanos = matchEnd - start;
 
     if (wiremockResponse.wasConfigured()) {
       log.trace("Returning mock response");
-      var ret = new WiremockClientHttpResponse(wiremockResponse);
-      String mockKey = properties.getMockResponseHeader();
-      String mockHeaderValue =
-          java.util.Objects.requireNonNullElse(
-              properties.getMockResponseHeaderValue(), "mock-middleware");
-      if (mockKey != null) {
-        log.trace("Adding mock header {}={}", mockKey, mockHeaderValue);
-        ret.setHeader(mockKey, mockHeaderValue);
+      stats.recordMocked();
+      LatencySimulator.Profile latency =
+          latencySimulator.profileFor(request.getURI().getHost(), servedStub);
+      WiremockClientHttpResponse ret;
+      if (latency != null && latency.shouldFail()) {
+        log.trace("Injecting error {} from profile {}", latency.errorStatus(), latency.name());
+        stats.recordInjectedError();
+        ret =
+            new WiremockClientHttpResponse(
+                com.github.tomakehurst.wiremock.http.Response.response()
+                    .status(latency.errorStatus())
+                    .build());
+      } else {
+        ret = toClientHttpResponse(request, wiremockResponse, servedStub);
+      }
+      if (eventSink != null) {
+        recordEvent(
+            request,
+            body,
+            MockEventSink.Outcome.MOCKED,
+            servedStub,
+            ret.getStatusCode().value(),
+            matchNanos,
+            ret.getBodyLength());
+      }
+      if (scope != null) {
+        scope.mocked(
+            servedStub == null ? null : String.valueOf(servedStub.getId()),
+            ret.getStatusCode().value(),
+            matchNanos,
+            System.nanoTime() - matchEnd);
+      }
+      if (latency != null) {
+        latency.delay();
+        ret.setBandwidth(latency.bandwidthBytesPerSecond());
+      }
+      if (mockHeader != null) {
+        log.trace("Adding mock header {}={}", mockHeader[0], mockHeader[1]);
+        ret.setHeader(mockHeader[0], mockHeader[1]);
       }
       return ret;
     }
 
-    log.trace("Returning real response");
-    return execution.execute(request, body);
+    stats.recordUnmatched();
+    if (eventSink != null) {
+      recordEvent(request, body, MockEventSink.Outcome.UNMATCHED, null, 0, matchNanos, -1);
+    }
+    if (scope != null) {
+      scope.unmatched(matchNanos);
+    }
+    if (matchDiagnostics != null) {
+      MatchDiagnostics.Diagnosis diagnosis = matchDiagnostics.record(wiremockRequest);
+      log.debug(
+          "No stub matched {} {}, rejected at {}",
+          diagnosis.method(),
+          diagnosis.url(),
+          diagnosis.rejectedAt());
+    }
+    return null;
+  }
+
+  /**
+   * Finds the stub matching a request and its response, trying the exact match index, the adaptive
+   * stub order and the match cache, when enabled, before WireMock matching.
+   *
+   * @return the matched stub, null if none matched, and the response
+   */
+  private MatchCache.Entry resolve(Request wiremockRequest) {
+    ExactMatchIndex.Target exact =
+        exactMatchIndex == null ? null : exactMatchIndex.lookup(wiremockRequest);
+    if (exact != null && exact.response() != null) {
+      log.trace("Exact match index hit");
+      stats.recordExactMatchHit();
+      return new MatchCache.Entry(exact.stub(), exact.response());
+    }
+    AdaptiveStubOrder.Slot adaptive =
+        exact == null && adaptiveStubOrder != null
+            ? adaptiveStubOrder.match(wiremockRequest)
+            : null;
+    if (adaptive != null && adaptive.response() != null) {
+      log.trace("Adaptive stub order hit");
+      return new MatchCache.Entry(adaptive.stub(), adaptive.response());
+    }
+    MatchCache.Lookup cached = matchCache == null ? null : matchCache.lookup(wiremockRequest);
+    if (cached != null && cached.entry() != null) {
+      log.trace("Match cache hit");
+      stats.recordMatchCacheHit();
+      return cached.entry();
+    }
+    com.github.tomakehurst.wiremock.http.Response wiremockResponse =
+        directCallHttpServer.stubRequest(wiremockRequest);
+    StubMapping servedStub = engine.takeServedStub();
+    if (cached != null) {
+      stats.recordMatchCacheMiss();
+      if (wiremockResponse.wasConfigured()) {
+        cached.store(servedStub, wiremockResponse);
+      }
+    }
+    if (exact != null) {
+      exact.store(servedStub, wiremockResponse);
+    }
+    if (adaptive != null) {
+      adaptive.store(servedStub, wiremockResponse);
+    } else if (adaptiveStubOrder != null) {
+      adaptiveStubOrder.recordServed(servedStub);
+    }
+    return new MatchCache.Entry(servedStub, wiremockResponse);
+  }
+
+  private void recordEvent(
+      HttpRequest request,
+      byte[] body,
+      MockEventSink.Outcome outcome,
+      StubMapping stub,
+      int status,
+      long matchNanos,
+      long responseBytes) {
+    eventSink.record(
+        new MockEventSink.Event(
+            System.currentTimeMillis(),
+            outcome,
+            stub == null ? null : String.valueOf(stub.getId()),
+            request.getMethod().name(),
+            request.getURI().getHost(),
+            request.getURI().getPath(),
+            status,
+            matchNanos,
+            body == null ? 0 : body.length,
+            responseBytes));
+  }
+
+  /**
+   * Wraps a mock response, taking the body from the {@link ResponseBodyStore} when it holds the
+   * body of the matched stub. A pre-encoded body is preferred when the request accepts its
+   * encoding, in which case it is returned as it is with a {@code Content-Encoding} header.
+   */
+  private WiremockClientHttpResponse toClientHttpResponse(
+      HttpRequest request,
+      com.github.tomakehurst.wiremock.http.Response wiremockResponse,
+      StubMapping servedStub) {
+    if (servedStub == null) {
+      return new WiremockClientHttpResponse(wiremockResponse);
+    }
+    ResponseBodyStore bodyStore = engine.getBodyStore();
+    ResponseBodyStore.EncodedBody encoded =
+        bodyStore.encoded(
+            servedStub.getId(),
+            request.getHeaders().getFirst(org.springframework.http.HttpHeaders.ACCEPT_ENCODING));
+    if (encoded != null) {
+      var ret = new WiremockClientHttpResponse(wiremockResponse, encoded.body());
+      ret.getHeaders().remove(org.springframework.http.HttpHeaders.CONTENT_LENGTH);
+      ret.setHeader(org.springframework.http.HttpHeaders.CONTENT_ENCODING, encoded.encoding());
+      return ret;
+    }
+    return new WiremockClientHttpResponse(wiremockResponse, bodyStore.get(servedStub.getId()));
   }
 
   /**
@@ -161,6 +901,15 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
     private final byte[] body;
     private final Map<String, QueryParameter> queryParameters;
 
+    /** The request headers, looked up by every header matcher of every stub. */
+    private final HeaderTable headers;
+
+    /** The body decoded as UTF-8, on first use. */
+    private String bodyString;
+
+    /** Cookies of the request, parsed on first use. */
+    private Map<String, Cookie> cookies;
+
     private Map<String, QueryParameter> parseQueryParameters() {
       Map<String, QueryParameter> params = new HashMap<>();
       UriComponentsBuilder.fromUri(springRequest.getURI())
@@ -181,6 +930,7 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
       this.springRequest = springRequest;
       this.body = body;
       this.queryParameters = parseQueryParameters();
+      this.headers = HeaderTable.of(springRequest.getHeaders());
     }
 
     @Override
@@ -233,7 +983,7 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
     @Override
     @SuppressWarnings("null")
     public @NonNull String getHeader(String key) {
-      return java.util.Objects.requireNonNullElse(springRequest.getHeaders().getFirst(key), "");
+      return java.util.Objects.requireNonNullElse(headers.first(key), "");
     }
 
     @Override
@@ -247,22 +997,17 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
 
     @Override
     public HttpHeaders getHeaders() {
-      List<HttpHeader> httpHeaders = new ArrayList<>();
-      springRequest
-          .getHeaders()
-          .forEach((key, values) -> httpHeaders.add(new HttpHeader(key, values)));
-      return new HttpHeaders(httpHeaders);
+      return headers.httpHeaders();
     }
 
     @Override
     public boolean containsHeader(String key) {
-      return springRequest.getHeaders().containsKey(key);
+      return headers.contains(key);
     }
 
     @Override
     public Set<String> getAllHeaderKeys() {
-      Set<String> res = springRequest.getHeaders().keySet();
-      return res;
+      return headers.names();
     }
 
     @Override
@@ -275,9 +1020,18 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
       return body;
     }
 
+    /**
+     * Decodes the body once per request, however many stubs have a String body pattern. Stubs
+     * using the {@link BodyBytesMatcher} read {@link #getBody()} and never trigger the decoding.
+     */
     @Override
     public String getBodyAsString() {
-      return new String(body, StandardCharsets.UTF_8);
+      String decoded = bodyString;
+      if (decoded == null) {
+        decoded = new String(body, StandardCharsets.UTF_8);
+        bodyString = decoded;
+      }
+      return decoded;
     }
 
     @Override
@@ -323,7 +1077,54 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
 
     @Override
     public Map<String, Cookie> getCookies() {
-      return new HashMap<>();
+      Map<String, Cookie> parsed = cookies;
+      if (parsed == null) {
+        parsed = parseCookies(headers.values(org.springframework.http.HttpHeaders.COOKIE));
+        cookies = parsed;
+      }
+      return parsed;
+    }
+
+    /**
+     * Parses {@code name=value} pairs separated by semicolons in a single pass over each header
+     * value. A cookie sent more than once keeps all its values in order. Returns a shared empty map
+     * when there are no cookies.
+     */
+    private static Map<String, Cookie> parseCookies(List<String> headerValues) {
+      if (headerValues == null || headerValues.isEmpty()) {
+        return Collections.emptyMap();
+      }
+      Map<String, List<String>> values = new LinkedHashMap<>();
+      for (String header : headerValues) {
+        int length = header.length();
+        int start = 0;
+        while (start < length) {
+          int end = header.indexOf(';', start);
+          if (end < 0) {
+            end = length;
+          }
+          int equals = header.indexOf('=', start);
+          String name;
+          String value;
+          if (equals < 0 || equals > end) {
+            name = header.substring(start, end).trim();
+            value = "";
+          } else {
+            name = header.substring(start, equals).trim();
+            value = header.substring(equals + 1, end).trim();
+          }
+          if (!name.isEmpty()) {
+            values.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+          }
+          start = end + 1;
+        }
+      }
+      if (values.isEmpty()) {
+        return Collections.emptyMap();
+      }
+      Map<String, Cookie> cookies = new LinkedHashMap<>(values.size() * 2);
+      values.forEach((name, cookieValues) -> cookies.put(name, new Cookie(cookieValues)));
+      return Collections.unmodifiableMap(cookies);
     }
 
     @Override
@@ -334,12 +1135,7 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
     @Override
     @SuppressWarnings("null")
     public @NonNull HttpHeader header(String arg0) {
-      String myHeader =
-          java.util.Objects.requireNonNullElse(springRequest.getHeaders().getFirst(arg0), "");
-      if (!myHeader.isEmpty()) {
-        return new HttpHeader(arg0, List.of(myHeader));
-      }
-      return new HttpHeader(arg0, Collections.emptyList());
+      return headers.header(arg0);
     }
   }
 
@@ -363,7 +1159,8 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
    *
    * <p>The response body is wrapped in a {@link ByteArrayInputStream} for compatibility with the
    * {@link ClientHttpResponse} contract. If the WireMock response body is null, an empty byte array
-   * is used instead.
+   * is used instead. When the body of the matched stub is held by the {@link ResponseBodyStore},
+   * it is streamed directly from the store instead.
    *
    * @see org.springframework.http.client.ClientHttpResponse
    * @see com.github.tomakehurst.wiremock.http.Response
@@ -371,15 +1168,41 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
   private static class WiremockClientHttpResponse implements ClientHttpResponse {
     private final com.github.tomakehurst.wiremock.http.Response wiremockResponse;
 
+    /** Body held by the store for the matched stub, null if WireMock's body should be used. */
+    private final ResponseBodyStore.StoredBody storedBody;
+
     @NonNull private org.springframework.http.HttpHeaders ownHeaders;
 
+    /** Rate the body can be read at in bytes per second, null for no limit. */
+    private Long bandwidth;
+
     public void setHeader(@NonNull String key, String value) {
       this.ownHeaders.set(key, value);
     }
 
+    public void setBandwidth(Long bytesPerSecond) {
+      this.bandwidth = bytesPerSecond;
+    }
+
+    /** Returns the size of the response body in bytes. */
+    long getBodyLength() {
+      if (storedBody != null) {
+        return storedBody.length();
+      }
+      byte[] b = wiremockResponse.getBody();
+      return b == null ? 0 : b.length;
+    }
+
     public WiremockClientHttpResponse(
         com.github.tomakehurst.wiremock.http.Response wiremockResponse) {
+      this(wiremockResponse, null);
+    }
+
+    public WiremockClientHttpResponse(
+        com.github.tomakehurst.wiremock.http.Response wiremockResponse,
+        ResponseBodyStore.StoredBody storedBody) {
       this.wiremockResponse = wiremockResponse;
+      this.storedBody = storedBody;
       this.ownHeaders = new org.springframework.http.HttpHeaders();
       if (wiremockResponse.getHeaders() != null) {
         for (HttpHeader header : wiremockResponse.getHeaders().all()) {
@@ -410,11 +1233,17 @@ public class WMInterceptor implements ClientHttpRequestInterceptor {
 
     @Override
     public @NonNull InputStream getBody() throws IOException {
-      byte[] b = wiremockResponse.getBody();
-      if (b == null) {
-        b = new byte[0];
+      InputStream in;
+      if (storedBody != null) {
+        in = storedBody.open();
+      } else {
+        byte[] b = wiremockResponse.getBody();
+        if (b == null) {
+          b = new byte[0];
+        }
+        in = new ByteArrayInputStream(b);
       }
-      return new ByteArrayInputStream(b);
+      return bandwidth == null ? in : new ThrottledInputStream(in, bandwidth);
     }
 
     @Override
@@ -17,6 +17,7 @@ package net.snytkine.springboot.wm_interceptor;
 
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
@@ -38,10 +39,15 @@ public class WMInterceptorFactory {
    * @param wiremockConfiguration the configuration properties for WireMock
    * @param properties the WireMock properties object containing configuration. the WireMock
    *     configuration instance
+   * @param warmer the application's warmer of connections to services no longer mocked, if any
    * @return a configured WireMockInterceptor instance
    */
   public WMInterceptor wmInterceptor(
-      WireMockConfiguration wireMockConfiguration, WireMockProperties properties) {
-    return new WMInterceptor(wireMockConfiguration, properties);
+      WireMockConfiguration wireMockConfiguration,
+      WireMockProperties properties,
+      ObjectProvider<PassThroughWarmer> warmer) {
+    WMInterceptor interceptor = new WMInterceptor(wireMockConfiguration, properties);
+    interceptor.setPassThroughWarmer(warmer.getIfUnique());
+    return interceptor;
   }
 }
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the routing decisions made by a {@link WMInterceptor}.
+ *
+ * <p>Counters are {@link LongAdder}s so that recording a decision does not contend between threads.
+ * They are published as metrics when Micrometer is on the classpath.
+ */
+public class WMInterceptorStats {
+  private final LongAdder mocked = new LongAdder();
+
+  private final LongAdder unmatched = new LongAdder();
+
+  private final LongAdder sampledOut = new LongAdder();
+
+  private final LongAdder injectedErrors = new LongAdder();
+
+  private final LongAdder matchCacheHits = new LongAdder();
+
+  private final LongAdder matchCacheMisses = new LongAdder();
+
+  private final LongAdder exactMatchHits = new LongAdder();
+
+  private final LongAdder eventsDropped = new LongAdder();
+
+  private final LongAdder fallbacks = new LongAdder();
+
+  void recordMocked() {
+    mocked.increment();
+  }
+
+  void recordUnmatched() {
+    unmatched.increment();
+  }
+
+  void recordSampledOut() {
+    sampledOut.increment();
+  }
+
+  void recordInjectedError() {
+    injectedErrors.increment();
+  }
+
+  void recordMatchCacheHit() {
+    matchCacheHits.increment();
+  }
+
+  void recordMatchCacheMiss() {
+    matchCacheMisses.increment();
+  }
+
+  void recordExactMatchHit() {
+    exactMatchHits.increment();
+  }
+
+  void recordEventDropped() {
+    eventsDropped.increment();
+  }
+
+  void recordFallback() {
+    fallbacks.increment();
+  }
+
+  /** Returns the number of requests answered with a mock response. */
+  public long getMocked() {
+    return mocked.sum();
+  }
+
+  /** Returns the number of requests that matched no stub and went to the real service. */
+  public long getUnmatched() {
+    return unmatched.sum();
+  }
+
+  /** Returns the number of requests sent to the real service because of sampling rules. */
+  public long getSampledOut() {
+    return sampledOut.sum();
+  }
+
+  /**
+   * Returns the number of mock responses replaced with an error by a latency profile. These are
+   * also counted as mocked.
+   */
+  public long getInjectedErrors() {
+    return injectedErrors.sum();
+  }
+
+  /** Returns the number of requests answered from the match cache. */
+  public long getMatchCacheHits() {
+    return matchCacheHits.sum();
+  }
+
+  /** Returns the number of requests looked up in the match cache and not found there. */
+  public long getMatchCacheMisses() {
+    return matchCacheMisses.sum();
+  }
+
+  /** Returns the number of requests answered from the exact match index. */
+  public long getExactMatchHits() {
+    return exactMatchHits.sum();
+  }
+
+  /** Returns the number of events the event log dropped because its queue was full. */
+  public long getEventsDropped() {
+    return eventsDropped.sum();
+  }
+
+  /**
+   * Returns the number of requests kept from a failing real service and answered by the
+   * interceptor instead. Those a stub matched are also counted as mocked.
+   */
+  public long getFallbacks() {
+    return fallbacks.sum();
+  }
+
+  /** Returns the share of match cache lookups that were hits, 0 before the first lookup. */
+  public double getMatchCacheHitRatio() {
+    long hits = matchCacheHits.sum();
+    long lookups = hits + matchCacheMisses.sum();
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+}
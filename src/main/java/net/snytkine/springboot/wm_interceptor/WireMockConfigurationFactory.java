@@ -22,11 +22,13 @@ import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
+import org.springframework.util.ClassUtils;
 
 @Configuration
 @Slf4j
 /** Factory class responsible for creating and configuring WireMockConfiguration. */
 public class WireMockConfigurationFactory {
+  static final String FAKER_EXTENSION = "org.wiremock.RandomExtension";
 
   private final WireMockProperties wireMockProperties;
 
@@ -76,10 +78,31 @@ public class WireMockConfigurationFactory {
         .ifPresent(v -> wireMockConfiguration.usingFilesUnderClasspath(v));
     wireMockConfiguration.proxyPassThrough(wireMockProperties.isProxyPassThrough());
 
-    log.trace("Registering Faker Extension org.wiremock.RandomExtension...");
-    wireMockConfiguration.extensions(new String[] {"org.wiremock.RandomExtension"});
+    registerFaker(wireMockConfiguration);
     wireMockConfiguration.trustAllProxyTargets(true);
 
     return wireMockConfiguration;
   }
+
+  /**
+   * Registers the Faker extension, or the pool of pre-generated Faker values when {@code
+   * faker.poolSize} is set. Nothing is registered when Faker is disabled or not on the classpath.
+   */
+  private void registerFaker(WireMockConfiguration wireMockConfiguration) {
+    WireMockProperties.FakerSettings faker = wireMockProperties.getFaker();
+    ClassLoader classLoader = getClass().getClassLoader();
+    if (!faker.isEnabled()
+        || !ClassUtils.isPresent(FAKER_EXTENSION, classLoader)
+        || !ClassUtils.isPresent("net.datafaker.Faker", classLoader)) {
+      log.debug("Faker extension not registered");
+      return;
+    }
+    if (faker.getPoolSize() != null) {
+      log.trace("Registering pooled Faker values, {} per expression", faker.getPoolSize());
+      wireMockConfiguration.extensions(new FakerValuePool(faker));
+    } else {
+      log.trace("Registering Faker Extension {}...", FAKER_EXTENSION);
+      wireMockConfiguration.extensions(new String[] {FAKER_EXTENSION});
+    }
+  }
 }
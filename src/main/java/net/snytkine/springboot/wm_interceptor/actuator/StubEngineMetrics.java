@@ -0,0 +1,73 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToLongFunction;
+import net.snytkine.springboot.wm_interceptor.StubEngine;
+
+/**
+ * Publishes the memory footprint of a {@link StubEngine} as Micrometer metrics.
+ *
+ * <p>{@code wiremock.interceptor.footprint} reports the estimated bytes held by each {@code
+ * component}: {@code stubs}, {@code bodies} (on the heap), {@code bodies.off_heap}, {@code
+ * journal}, {@code templates} and {@code scenarios}. {@code wiremock.interceptor.stubs} reports
+ * the number of stubs loaded, and {@code wiremock.interceptor.journal.evictions} counts journal
+ * entries removed to keep the journal within {@code limits.max-journal-bytes}. The footprint is
+ * measured at most once per {@code limits.check-interval}, however often it is scraped.
+ */
+public class StubEngineMetrics implements MeterBinder {
+  static final String FOOTPRINT = "wiremock.interceptor.footprint";
+
+  static final String STUBS = "wiremock.interceptor.stubs";
+
+  static final String JOURNAL_EVICTIONS = "wiremock.interceptor.journal.evictions";
+
+  private final StubEngine engine;
+
+  public StubEngineMetrics(StubEngine engine) {
+    this.engine = engine;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    component(registry, "stubs", StubEngine.Footprint::estimatedStubBytes);
+    component(registry, "bodies", f -> f.storedBodyBytes() - f.offHeapBodyBytes());
+    component(registry, "bodies.off_heap", StubEngine.Footprint::offHeapBodyBytes);
+    component(registry, "journal", StubEngine.Footprint::estimatedJournalBytes);
+    component(registry, "templates", StubEngine.Footprint::estimatedTemplateBytes);
+    component(registry, "scenarios", StubEngine.Footprint::estimatedScenarioBytes);
+    Gauge.builder(STUBS, engine, e -> e.getRecentFootprint().stubCount())
+        .description("Stubs loaded in the engine")
+        .register(registry);
+    FunctionCounter.builder(JOURNAL_EVICTIONS, engine, StubEngine::getJournalEvictions)
+        .description("Journal entries removed to keep the journal within its limit")
+        .register(registry);
+  }
+
+  private void component(
+      MeterRegistry registry, String component, ToLongFunction<StubEngine.Footprint> bytes) {
+    Gauge.builder(FOOTPRINT, engine, e -> bytes.applyAsLong(e.getRecentFootprint()))
+        .description("Estimated memory held by the stub engine, by component")
+        .baseUnit(BaseUnits.BYTES)
+        .tag("component", component)
+        .register(registry);
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.MatchDiagnostics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+/**
+ * Actuator endpoint reporting why recent requests matched no stub, see {@link MatchDiagnostics}.
+ *
+ * <p>{@code GET /actuator/wiremockdiagnostics} returns the most recent diagnoses, newest first.
+ * Diagnostics are enabled with the {@code match-diagnostics-enabled} property; without it the
+ * report is empty.
+ */
+@Endpoint(id = "wiremockdiagnostics")
+public class WMDiagnosticsEndpoint {
+  private final MatchDiagnostics diagnostics;
+
+  /**
+   * Creates the endpoint.
+   *
+   * @param diagnostics the interceptor's diagnostics, null if they are not enabled
+   */
+  public WMDiagnosticsEndpoint(MatchDiagnostics diagnostics) {
+    this.diagnostics = diagnostics;
+  }
+
+  /**
+   * Report returned by the endpoint.
+   *
+   * @param enabled whether diagnostics are enabled
+   * @param recorded number of unmatched requests diagnosed since startup
+   * @param capacity maximum number of diagnoses kept
+   * @param diagnoses the diagnoses kept, newest first
+   */
+  public record DiagnosticsReport(
+      boolean enabled, long recorded, int capacity, List<MatchDiagnostics.Diagnosis> diagnoses) {}
+
+  @ReadOperation
+  public DiagnosticsReport diagnostics() {
+    if (diagnostics == null) {
+      return new DiagnosticsReport(false, 0, 0, List.of());
+    }
+    return new DiagnosticsReport(
+        true, diagnostics.getRecorded(), diagnostics.getCapacity(), diagnostics.recent());
+  }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import net.snytkine.springboot.wm_interceptor.WMInterceptorStats;
+
+/**
+ * Publishes the {@link WMInterceptorStats} of the interceptor as Micrometer metrics.
+ *
+ * <p>{@code wiremock.interceptor.requests} counts requests by routing {@code decision}: {@code
+ * mocked}, {@code unmatched} (no stub matched, sent to the real service) and {@code sampled_out}
+ * (sent to the real service because of a sampling rule). {@code
+ * wiremock.interceptor.injected.errors} counts mock responses replaced with an error by a latency
+ * profile. {@code wiremock.interceptor.match.cache} counts match cache lookups by {@code result},
+ * {@code hit} or {@code miss}, and {@code wiremock.interceptor.match.cache.hit.ratio} reports the
+ * share of hits. {@code wiremock.interceptor.exact.match.hits} counts requests answered from the
+ * exact match index. {@code wiremock.interceptor.events.dropped} counts events the event log
+ * dropped because its queue was full. {@code wiremock.interceptor.fallbacks} counts requests kept
+ * from a failing real service and answered by the interceptor instead.
+ */
+public class WMInterceptorMetrics implements MeterBinder {
+  static final String REQUESTS = "wiremock.interceptor.requests";
+
+  static final String INJECTED_ERRORS = "wiremock.interceptor.injected.errors";
+
+  static final String MATCH_CACHE = "wiremock.interceptor.match.cache";
+
+  static final String MATCH_CACHE_HIT_RATIO = "wiremock.interceptor.match.cache.hit.ratio";
+
+  static final String EXACT_MATCH_HITS = "wiremock.interceptor.exact.match.hits";
+
+  static final String EVENTS_DROPPED = "wiremock.interceptor.events.dropped";
+
+  static final String FALLBACKS = "wiremock.interceptor.fallbacks";
+
+  private final WMInterceptorStats stats;
+
+  public WMInterceptorMetrics(WMInterceptorStats stats) {
+    this.stats = stats;
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    decision(registry, "mocked", WMInterceptorStats::getMocked);
+    decision(registry, "unmatched", WMInterceptorStats::getUnmatched);
+    decision(registry, "sampled_out", WMInterceptorStats::getSampledOut);
+    FunctionCounter.builder(INJECTED_ERRORS, stats, WMInterceptorStats::getInjectedErrors)
+        .description("Mock responses replaced with an error by a latency profile")
+        .register(registry);
+    FunctionCounter.builder(MATCH_CACHE, stats, WMInterceptorStats::getMatchCacheHits)
+        .description("Match cache lookups, by result")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder(MATCH_CACHE, stats, WMInterceptorStats::getMatchCacheMisses)
+        .description("Match cache lookups, by result")
+        .tag("result", "miss")
+        .register(registry);
+    Gauge.builder(MATCH_CACHE_HIT_RATIO, stats, WMInterceptorStats::getMatchCacheHitRatio)
+        .description("Share of match cache lookups that were hits")
+        .register(registry);
+    FunctionCounter.builder(EXACT_MATCH_HITS, stats, WMInterceptorStats::getExactMatchHits)
+        .description("Requests answered from the exact match index")
+        .register(registry);
+    FunctionCounter.builder(EVENTS_DROPPED, stats, WMInterceptorStats::getEventsDropped)
+        .description("Events dropped by the event log because its queue was full")
+        .register(registry);
+    FunctionCounter.builder(FALLBACKS, stats, WMInterceptorStats::getFallbacks)
+        .description("Requests answered by the interceptor because the real service was failing")
+        .register(registry);
+  }
+
+  private void decision(
+      MeterRegistry registry, String decision, ToDoubleFunction<WMInterceptorStats> count) {
+    FunctionCounter.builder(REQUESTS, stats, count)
+        .description("Requests seen by the WireMock interceptor, by routing decision")
+        .tag("decision", decision)
+        .register(registry);
+  }
+}
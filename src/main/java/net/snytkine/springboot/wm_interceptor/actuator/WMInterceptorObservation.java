@@ -0,0 +1,115 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import net.snytkine.springboot.wm_interceptor.InterceptObserver;
+import org.springframework.http.HttpRequest;
+
+/**
+ * Observes intercepted requests with Micrometer Observation, so a tracer bridged to it records a
+ * {@code wiremock.interceptor.intercept} span for every request.
+ *
+ * <p>The span is a child of the HTTP client observation of the call. Its low cardinality key
+ * {@code wiremock.outcome} is {@code mocked}, {@code unmatched}, {@code sampled_out} or {@code
+ * stopped}, and {@code wiremock.mocked} tells mocked from real calls. Mocked calls carry the
+ * {@code http.status_code} and {@code wiremock.stub.id} of the mock response, and the {@code
+ * wiremock.match.nanos} and {@code wiremock.response.nanos} spent matching and building it.
+ * Calls that pass through keep the span open while the real request is sent, so the real call's
+ * own spans nest under it. Nothing is observed while the registry has no handlers; the
+ * auto-configuration only attaches this observer when Micrometer Tracing provides a {@code Tracer},
+ * not for a registry that only records metrics.
+ */
+public class WMInterceptorObservation implements InterceptObserver {
+  static final String NAME = "wiremock.interceptor.intercept";
+
+  private final ObservationRegistry registry;
+
+  public WMInterceptorObservation(ObservationRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  public Scope start(HttpRequest request) {
+    if (registry.isNoop()) {
+      return null;
+    }
+    Observation observation =
+        Observation.createNotStarted(NAME, registry)
+            .contextualName("wiremock " + request.getMethod().name())
+            .lowCardinalityKeyValue("http.method", request.getMethod().name())
+            .highCardinalityKeyValue("http.url", String.valueOf(request.getURI()))
+            .start();
+    return new ObservationScope(observation, observation.openScope());
+  }
+
+  private static final class ObservationScope implements Scope {
+    private final Observation observation;
+
+    private final Observation.Scope scope;
+
+    private String outcome = "stopped";
+
+    private boolean mocked;
+
+    ObservationScope(Observation observation, Observation.Scope scope) {
+      this.observation = observation;
+      this.scope = scope;
+    }
+
+    @Override
+    public void sampledOut() {
+      outcome = "sampled_out";
+    }
+
+    @Override
+    public void unmatched(long matchNanos) {
+      outcome = "unmatched";
+      observation.highCardinalityKeyValue("wiremock.match.nanos", Long.toString(matchNanos));
+    }
+
+    @Override
+    public void mocked(String stubId, int status, long matchNanos, long responseNanos) {
+      outcome = "mocked";
+      mocked = true;
+      observation
+          .highCardinalityKeyValue("http.status_code", Integer.toString(status))
+          .highCardinalityKeyValue("wiremock.stub.id", stubId == null ? "none" : stubId)
+          .highCardinalityKeyValue("wiremock.match.nanos", Long.toString(matchNanos))
+          .highCardinalityKeyValue("wiremock.response.nanos", Long.toString(responseNanos));
+    }
+
+    @Override
+    public void passThrough() {
+      observation.event(Observation.Event.of("wiremock.pass-through"));
+    }
+
+    @Override
+    public void error(Throwable error) {
+      observation.error(error);
+    }
+
+    @Override
+    public void stop() {
+      observation
+          .lowCardinalityKeyValue("wiremock.outcome", outcome)
+          .lowCardinalityKeyValue("wiremock.mocked", Boolean.toString(mocked));
+      scope.close();
+      observation.stop();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.snytkine.springboot.wm_interceptor.StubEngine;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+
+/**
+ * Actuator endpoint for managing the stubs of the running {@link StubEngine}.
+ *
+ * <ul>
+ *   <li>{@code GET /actuator/wiremockstubs} lists the stubs with the engine's memory footprint
+ *   <li>{@code GET /actuator/wiremockstubs/{id}} returns the JSON definition of one stub
+ *   <li>{@code POST /actuator/wiremockstubs} with {@code {"mappings": [...]}} adds one or more
+ *       stubs in a single batch
+ *   <li>{@code DELETE /actuator/wiremockstubs/{id}} removes a stub
+ * </ul>
+ *
+ * <p>Ids that are not UUIDs are answered with status 400.
+ */
+@Endpoint(id = "wiremockstubs")
+public class WMStubsEndpoint {
+  private final StubEngine engine;
+
+  public WMStubsEndpoint(StubEngine engine) {
+    this.engine = engine;
+  }
+
+  /**
+   * Summary of a stub for the listing.
+   *
+   * @param id the stub id
+   * @param name the stub name, may be null
+   * @param priority the stub priority, may be null
+   * @param method the request method matched by the stub
+   * @param url the URL, URL path or pattern matched by the stub, may be null
+   * @param status the response status
+   */
+  public record StubSummary(
+      UUID id, String name, Integer priority, String method, String url, int status) {
+
+    static StubSummary of(StubMapping stub) {
+      var request = stub.getRequest();
+      return new StubSummary(
+          stub.getId(),
+          stub.getName(),
+          stub.getPriority(),
+          String.valueOf(request.getMethod()),
+          request.getUrlMatcher() == null
+              ? null
+              : request.getUrlMatcher().getPattern().getExpected(),
+          stub.getResponse().getStatus());
+    }
+  }
+
+  /**
+   * Report returned by the listing.
+   *
+   * @param footprint approximate memory used by the engine
+   * @param stubs summaries of all loaded stubs
+   */
+  public record StubsReport(StubEngine.Footprint footprint, List<StubSummary> stubs) {}
+
+  /**
+   * Result of adding stubs.
+   *
+   * @param imported number of stubs added or replaced
+   * @param stubCount number of stubs loaded afterwards
+   */
+  public record ImportResult(int imported, int stubCount) {}
+
+  @ReadOperation
+  public StubsReport stubs() {
+    return new StubsReport(
+        engine.getFootprint(), engine.getStubMappings().stream().map(StubSummary::of).toList());
+  }
+
+  @ReadOperation
+  public String stub(@Selector String id) {
+    StubMapping stub = engine.getStub(parseId(id));
+    return stub == null ? null : Json.write(stub);
+  }
+
+  /**
+   * Adds stubs in a single batch.
+   *
+   * @param mappings stub definitions in the same JSON format as mapping files
+   * @return the number of stubs added and loaded
+   */
+  @WriteOperation
+  public ImportResult importStubs(List<Map<String, Object>> mappings) {
+    List<StubMapping> stubs =
+        mappings.stream().map(mapping -> StubMapping.buildFrom(Json.write(mapping))).toList();
+    engine.importStubs(stubs);
+    return new ImportResult(stubs.size(), engine.getStubCount());
+  }
+
+  @DeleteOperation
+  public boolean removeStub(@Selector String id) {
+    return engine.removeStub(parseId(id));
+  }
+
+  /**
+   * Parses a stub id given as a selector.
+   *
+   * @throws InvalidEndpointRequestException if the id is not a UUID, answered with status 400
+   */
+  private static UUID parseId(String id) {
+    try {
+      return UUID.fromString(id);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidEndpointRequestException("Invalid stub id " + id, "not a UUID");
+    }
+  }
+}
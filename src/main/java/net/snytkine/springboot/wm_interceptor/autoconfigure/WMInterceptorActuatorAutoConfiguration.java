@@ -0,0 +1,123 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.autoconfigure;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.observation.ObservationRegistry;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.actuator.StubEngineMetrics;
+import net.snytkine.springboot.wm_interceptor.actuator.WMDiagnosticsEndpoint;
+import net.snytkine.springboot.wm_interceptor.actuator.WMInterceptorMetrics;
+import net.snytkine.springboot.wm_interceptor.actuator.WMInterceptorObservation;
+import net.snytkine.springboot.wm_interceptor.actuator.WMStubsEndpoint;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.ClassUtils;
+
+@AutoConfiguration(after = WMInterceptorAutoConfiguration.class)
+@ConditionalOnClass(Endpoint.class)
+@ConditionalOnBean(WMInterceptor.class)
+/**
+ * Auto-configuration of the actuator endpoints and metrics of the WireMock interceptor. Only active
+ * when Spring Boot Actuator is on the classpath and the interceptor is enabled.
+ */
+public class WMInterceptorActuatorAutoConfiguration {
+
+  @Bean
+  @ConditionalOnAvailableEndpoint
+  /**
+   * Creates the endpoint for managing stubs at runtime, exposed as {@code wiremockstubs}.
+   *
+   * @param wmInterceptor the interceptor whose engine is managed
+   * @return the endpoint
+   */
+  public WMStubsEndpoint wmStubsEndpoint(WMInterceptor wmInterceptor) {
+    return new WMStubsEndpoint(wmInterceptor.getEngine());
+  }
+
+  @Bean
+  @ConditionalOnAvailableEndpoint
+  /**
+   * Creates the endpoint reporting why recent requests matched no stub, exposed as {@code
+   * wiremockdiagnostics}.
+   *
+   * @param wmInterceptor the interceptor whose diagnostics are reported
+   * @return the endpoint
+   */
+  public WMDiagnosticsEndpoint wmDiagnosticsEndpoint(WMInterceptor wmInterceptor) {
+    return new WMDiagnosticsEndpoint(wmInterceptor.getMatchDiagnostics());
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(MeterBinder.class)
+  /** Registers the interceptor metrics when Micrometer is on the classpath. */
+  static class MetricsConfiguration {
+
+    @Bean
+    public WMInterceptorMetrics wmInterceptorMetrics(WMInterceptor wmInterceptor) {
+      return new WMInterceptorMetrics(wmInterceptor.getStats());
+    }
+
+    @Bean
+    public StubEngineMetrics stubEngineMetrics(WMInterceptor wmInterceptor) {
+      return new StubEngineMetrics(wmInterceptor.getEngine());
+    }
+  }
+
+  @Configuration(proxyBeanMethods = false)
+  @ConditionalOnClass(ObservationRegistry.class)
+  /** Traces intercepted requests when Micrometer Observation is on the classpath. */
+  static class ObservationConfiguration {
+    /** The Micrometer Tracing bridge turning observations into spans. */
+    static final String TRACER = "io.micrometer.tracing.Tracer";
+
+    @Bean
+    /**
+     * Attaches a {@link WMInterceptorObservation} to the interceptor once all singletons exist,
+     * if the application has an observation registry and a Micrometer Tracing {@code Tracer};
+     * otherwise the interceptor stays unobserved. Spring Boot registers a meter observation
+     * handler whenever Micrometer is present, so the registry alone does not mean spans are
+     * recorded, and observing every request just for a timer would slow down mocked calls.
+     */
+    public SmartInitializingSingleton wmInterceptorObservation(
+        WMInterceptor wmInterceptor,
+        ObjectProvider<ObservationRegistry> registry,
+        ListableBeanFactory beanFactory) {
+      return () -> {
+        if (hasTracer(beanFactory)) {
+          registry.ifAvailable(r -> wmInterceptor.setObserver(new WMInterceptorObservation(r)));
+        }
+      };
+    }
+
+    private static boolean hasTracer(ListableBeanFactory beanFactory) {
+      ClassLoader classLoader = ObservationConfiguration.class.getClassLoader();
+      return ClassUtils.isPresent(TRACER, classLoader)
+          && beanFactory.getBeanNamesForType(
+                      ClassUtils.resolveClassName(TRACER, classLoader), false, false)
+                  .length
+              > 0;
+    }
+  }
+}
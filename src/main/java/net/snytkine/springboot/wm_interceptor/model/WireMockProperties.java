@@ -15,6 +15,12 @@
  */
 package net.snytkine.springboot.wm_interceptor.model;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
@@ -41,4 +47,263 @@ public class WireMockProperties {
   private boolean proxyPassThrough;
   private String mockResponseHeader;
   private String mockResponseHeaderValue;
+
+  /**
+   * {@code bodyFileName} bodies of at least this many bytes are kept in off-heap memory and
+   * streamed from there. Only applies to stubs without transformers; inline bodies stay in the
+   * stub, on the heap. Not set means all bodies stay on heap.
+   */
+  private Integer offHeapBodyThreshold;
+
+  /**
+   * When true, stubs returning identical bodies share a single copy of the bytes: inline bodies
+   * within the stubs, static {@code bodyFileName} bodies in the body store.
+   */
+  private boolean bodyDeduplicationEnabled = false;
+
+  /**
+   * Static {@code bodyFileName} bodies of at least this many bytes are stored gzip-compressed and
+   * decompressed while being served. Not set means bodies are stored uncompressed.
+   */
+  private Integer compressedBodyThreshold;
+
+  /**
+   * When true, pre-compressed sidecars of {@code bodyFileName} bodies ({@code .gz}, {@code .br})
+   * are loaded once and returned as they are to requests whose {@code Accept-Encoding} allows it.
+   */
+  private boolean precompressedBodiesEnabled = false;
+
+  /**
+   * When true, and templating is enabled, response templates are rendered by the interceptor's own
+   * transformer instead of WireMock's: templates are compiled once when stubs load, request data is
+   * only worked out when a template uses it, and bodies are rendered into pooled byte buffers.
+   */
+  private boolean templateFastPathEnabled = false;
+
+  /**
+   * Maximum time to wait on shutdown for mock responses still being prepared, for example ones
+   * delayed by a latency profile, before the engine is stopped.
+   */
+  private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+  /**
+   * When true, interceptors in the same JVM whose WireMock settings are the same share one stub
+   * engine, so mappings are loaded once across Spring contexts. The engine is stopped when the last
+   * of them is closed.
+   */
+  private boolean sharedEngineEnabled = false;
+
+  /**
+   * When set, the stubs are also served over HTTP/1.1 on this port of the loopback interface, for
+   * clients that cannot use the interceptor. 0 picks a free port. Not set means no listener.
+   */
+  private Integer loopbackPort;
+
+  /**
+   * Maximum number of requests whose matched stub and response are cached, so identical requests
+   * skip WireMock matching. Matches to stubs that depend on scenario state or have dynamic
+   * responses are never cached. Not set means no cache.
+   */
+  private Integer matchCacheSize;
+
+  /**
+   * When true, requests to stubs that match on nothing but the method and an exact {@code url} or
+   * {@code urlPath} are resolved with a hash lookup instead of WireMock matching, as long as no
+   * earlier stub in matching order may match them. Only stubs with static responses are answered
+   * this way, and such requests are not recorded in the WireMock request journal.
+   */
+  private boolean exactMatchIndexEnabled = false;
+
+  /**
+   * When true, stubs are tried in an order adapted to how often each one matches: at most once per
+   * {@link #adaptiveStubOrderInterval}, the stubs of each priority are sorted hottest first. A stub
+   * is never moved ahead of an earlier one that may match the same requests, so the matched stub
+   * is always the one WireMock would match. Requests answered this way are not recorded in the
+   * WireMock request journal.
+   */
+  private boolean adaptiveStubOrderEnabled = false;
+
+  /** Minimum time between two reorders of the stubs, see {@link #adaptiveStubOrderEnabled}. */
+  private Duration adaptiveStubOrderInterval = Duration.ofSeconds(1);
+
+  /**
+   * When true, requests that match no stub are diagnosed cheaply: the matching stage that rejected
+   * them and the closest stubs are kept in a ring buffer of {@link #matchDiagnosticsCapacity}
+   * entries. Unlike WireMock's near-miss analysis this is cheap enough to leave on in load tests.
+   */
+  private boolean matchDiagnosticsEnabled = false;
+
+  /** Number of diagnosed unmatched requests kept, oldest are overwritten. */
+  private int matchDiagnosticsCapacity = 100;
+
+  /**
+   * Rules limiting the fraction of requests that may be mocked, by host and path. The first rule
+   * that applies to a request decides; requests no rule applies to are always matched against the
+   * stubs. Requests that are sampled out go to the real service.
+   */
+  private List<SamplingRule> sampling = new ArrayList<>();
+
+  /**
+   * Named latency and fault profiles applied to mock responses. A profile is attached to a stub
+   * with a {@code latencyProfile} entry in the stub's metadata, or to all stubs of a host with
+   * {@link #hostLatencyProfiles}; the stub's own profile wins.
+   */
+  private Map<String, LatencyProfile> latencyProfiles = new LinkedHashMap<>();
+
+  /**
+   * Names of the latency profiles applied to mock responses, by request host. Host names containing
+   * dots must be written in brackets, for example {@code "[inventory.example.com]": slow}.
+   */
+  private Map<String, String> hostLatencyProfiles = new LinkedHashMap<>();
+
+  /** Asynchronous log of the interceptor's routing decisions, off unless a file is set. */
+  private EventLog eventLog = new EventLog();
+
+  /** Registration of the Faker extension and pooling of the values it generates. */
+  private FakerSettings faker = new FakerSettings();
+
+  /** Limits on the stubs loaded and the memory held by the journal and the match cache. */
+  private FootprintLimits limits = new FootprintLimits();
+
+  /** Answering requests to a failing real service locally instead, off unless enabled. */
+  private FallbackToMock fallbackToMock = new FallbackToMock();
+
+  /** Limits mocking of the requests to a host and path to a fraction of them. */
+  @Data
+  public static class SamplingRule {
+    /** Host the rule applies to, all hosts if not set. */
+    private String host;
+
+    /** Path prefix the rule applies to, all paths if not set. */
+    private String pathPrefix;
+
+    /** Fraction of requests matched against the stubs, from 0.0 (none) to 1.0 (all). */
+    private double rate = 1.0;
+  }
+
+  /**
+   * Latency, bandwidth and error behaviour of a simulated downstream service. Latencies are taken
+   * from {@code histogramFile} if set, otherwise from {@code percentiles}; without either no delay
+   * is added.
+   */
+  @Data
+  public static class LatencyProfile {
+    /** Location of an HdrHistogram log of recorded latencies, e.g. classpath:latency/db.hlog. */
+    private String histogramFile;
+
+    /** Unit of the values recorded in {@code histogramFile}. */
+    private TimeUnit histogramUnit = TimeUnit.MICROSECONDS;
+
+    /**
+     * Latency targets by percentile, e.g. {@code 50: 20ms} and {@code "[99.9]": 400ms}. Latencies
+     * between two targets are interpolated linearly.
+     */
+    private Map<String, Duration> percentiles = new LinkedHashMap<>();
+
+    /** Maximum rate at which the response body can be read, in bytes per second. */
+    private Long bandwidthBytesPerSecond;
+
+    /** Fraction of responses replaced with an error response, from 0.0 to 1.0. */
+    private double errorRate = 0.0;
+
+    /** Status of injected error responses. */
+    private int errorStatus = 503;
+  }
+
+  /**
+   * Settings of the Faker extension, which provides the {@code random} template helper. The
+   * extension is only registered when it is enabled and on the classpath.
+   */
+  @Data
+  public static class FakerSettings {
+    /** Whether the Faker extension is registered; turn off if no template uses it. */
+    private boolean enabled = true;
+
+    /**
+     * Number of values pre-generated in the background for each Faker expression templates use.
+     * Not set means values are generated on demand by the Faker extension.
+     */
+    private Integer poolSize;
+
+    /**
+     * Seed of the random source of pooled values. Not set means random. Values are generated in the
+     * background while requests take them, so the data is not repeatable even with a seed.
+     */
+    private Long seed;
+
+    /** Locale of pooled values as a language tag, e.g. {@code de-CH}. Not set means English. */
+    private String locale;
+  }
+
+  /**
+   * Settings of the event log, which records every routing decision of the interceptor (outcome,
+   * stub id, host, status, match time and body sizes) from a background thread.
+   */
+  @Data
+  public static class EventLog {
+    /** File the events are appended to. Not set means no event log. */
+    private String file;
+
+    /** Format of the file. */
+    private EventLogFormat format = EventLogFormat.JSON;
+
+    /** Maximum number of events waiting to be written; further events are dropped and counted. */
+    private int queueCapacity = 65536;
+  }
+
+  /**
+   * Limits on the memory used by the engine and the interceptor. Sizes are estimates, see {@code
+   * StubEngine.Footprint}; none is enforced unless set.
+   */
+  @Data
+  public static class FootprintLimits {
+    /** Maximum number of stubs; loading or adding more fails with an error. */
+    private Integer maxStubs;
+
+    /** Estimated size the request journal may reach; the oldest entries are removed beyond it. */
+    private Long maxJournalBytes;
+
+    /** Estimated size the match cache may reach; the oldest entries are evicted beyond it. */
+    private Long maxMatchCacheBytes;
+
+    /** How often the journal is measured against {@link #maxJournalBytes}. */
+    private Duration checkInterval = Duration.ofSeconds(10);
+  }
+
+  /**
+   * Settings of the fallback to mock responses for requests the interceptor passes through. Real
+   * calls to each host are counted in windows of {@code windowSize} calls; when at least {@code
+   * failureRateThreshold} of a window failed, the host's circuit opens for {@code openDuration}.
+   * While it is open, requests to the host are never sent: they are mocked if a stub matches them,
+   * regardless of sampling, and answered with {@code fallbackStatus} otherwise. The first real
+   * call after that decides whether the circuit closes or opens again.
+   */
+  @Data
+  public static class FallbackToMock {
+    /** Whether failing hosts fall back to mock responses. */
+    private boolean enabled = false;
+
+    /** Real calls taking longer than this count as failed, as do errors and 5xx responses. */
+    private Duration slowCallThreshold = Duration.ofSeconds(2);
+
+    /** Fraction of the calls of a window that must fail to open the circuit, from 0.0 to 1.0. */
+    private double failureRateThreshold = 0.5;
+
+    /** Number of real calls to a host in each window. */
+    private int windowSize = 20;
+
+    /** How long requests to a host are kept from the real service once its circuit opens. */
+    private Duration openDuration = Duration.ofSeconds(10);
+
+    /** Status of the response to requests no stub matches while the circuit is open. */
+    private int fallbackStatus = 503;
+  }
+
+  /** Format of the event log file. */
+  public enum EventLogFormat {
+    /** One JSON object per line. */
+    JSON,
+    /** Fixed binary records after a version number, written with {@code DataOutputStream}. */
+    BINARY
+  }
 }
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class AdaptiveStubOrderTest {
+
+  private final WMInterceptor interceptor = interceptor();
+
+  private static WMInterceptor interceptor() {
+    WireMockProperties props = new WireMockProperties();
+    props.setAdaptiveStubOrderEnabled(true);
+    // reorders are triggered by the tests
+    props.setAdaptiveStubOrderInterval(Duration.ofHours(1));
+    return new WMInterceptor(
+        new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+  }
+
+  private String intercept(String path, Map<String, String> headers) throws Exception {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path));
+    headers.forEach(request.getHeaders()::add);
+    ClientHttpResponse response =
+        interceptor.intercept(
+            request,
+            new byte[0],
+            (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private String intercept(String path) throws Exception {
+    return intercept(path, Map.of());
+  }
+
+  private int position(String name) {
+    List<StubMapping> order = interceptor.getAdaptiveStubOrder().order();
+    for (int i = 0; i < order.size(); i++) {
+      String url = order.get(i).getRequest().getUrl();
+      if (name.equals(url) || name.equals(order.get(i).getName())) {
+        return i;
+      }
+    }
+    throw new AssertionError("No stub " + name);
+  }
+
+  @Test
+  void hotStubsMoveFirstWithoutPassingOverlappingStubs() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(List.of(get(urlEqualTo("/hot")).willReturn(ok("hot")).build()));
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathMatching("/hot.*"))
+                    .withName("variant")
+                    .withHeader("X-Variant", equalTo("b"))
+                    .willReturn(ok("variant"))
+                    .build()));
+
+    for (int i = 0; i < 3; i++) {
+      assertTrue(intercept("/error/b").contains("SERVICE_UNAVAILABLE"));
+    }
+    assertEquals("hot", intercept("/hot"));
+    assertEquals("hot", intercept("/hot"));
+    interceptor.getAdaptiveStubOrder().reorder();
+
+    assertEquals(0, position("/error/b"));
+    assertTrue(position("variant") < position("/hot"));
+    assertTrue(position("/hot") < position("/small"));
+    assertEquals("hot", intercept("/hot"));
+    assertEquals("variant", intercept("/hot", Map.of("X-Variant", "b")));
+    assertEquals("ok", intercept("/small"));
+    assertEquals("real", intercept("/nothing"));
+    assertEquals(1, interceptor.getAdaptiveStubOrder().getReorders());
+  }
+
+  @Test
+  void hotPathPatternsPassPatternsOnOtherPaths() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathMatching("/users/.*")).withName("users").willReturn(ok("user")).build(),
+                get(urlPathMatching("/orders/.*"))
+                    .withName("orders")
+                    .willReturn(ok("orders"))
+                    .build()));
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathMatching("/orders/[0-9]+"))
+                    .withName("order")
+                    .willReturn(ok("order"))
+                    .build()));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals("user", intercept("/users/" + i));
+      assertEquals("orders", intercept("/orders/x" + i));
+    }
+    interceptor.getAdaptiveStubOrder().reorder();
+
+    assertEquals(0, position("users"));
+    assertTrue(position("users") < position("order"));
+    // both match /orders/1, so the hot one stays behind the newer one
+    assertTrue(position("order") < position("orders"));
+    assertEquals("order", intercept("/orders/1"));
+    assertEquals("orders", intercept("/orders/x"));
+    assertEquals("user", intercept("/users/1"));
+  }
+
+  @Test
+  void prioritiesAreNeverCrossed() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(get(urlEqualTo("/first")).atPriority(1).willReturn(ok("first")).build()));
+
+    for (int i = 0; i < 5; i++) {
+      assertEquals("ok", intercept("/small"));
+    }
+    interceptor.getAdaptiveStubOrder().reorder();
+
+    assertEquals(0, position("/first"));
+    assertEquals(1, position("/small"));
+  }
+
+  @Test
+  void scenarioStubsAreLeftToWireMock() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlEqualTo("/scenario"))
+                    .inScenario("flow")
+                    .whenScenarioStateIs(Scenario.STARTED)
+                    .willSetStateTo("second")
+                    .willReturn(ok("first"))
+                    .build(),
+                get(urlEqualTo("/scenario"))
+                    .inScenario("flow")
+                    .whenScenarioStateIs("second")
+                    .willReturn(ok("second"))
+                    .build()));
+    interceptor.getAdaptiveStubOrder().reorder();
+
+    assertEquals("first", intercept("/scenario"));
+    assertEquals("second", intercept("/scenario"));
+    assertEquals("second", intercept("/scenario"));
+  }
+
+  @Test
+  void stubChangesAreSeenImmediately() throws Exception {
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(get(urlEqualTo("/small")).atPriority(1).willReturn(ok("new")).build()));
+
+    assertEquals("new", intercept("/small"));
+    assertEquals("new", intercept("/small"));
+  }
+
+  @Test
+  void stubsWithVaryingResponsesAreLeftToWireMockWithoutMatching() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setAdaptiveStubOrderEnabled(true);
+    WMInterceptor delayed = new WMInterceptor(new WireMockConfiguration(), props);
+    delayed
+        .getEngine()
+        .importStubs(
+            List.of(get(urlEqualTo("/slow")).willReturn(ok("slow").withFixedDelay(1)).build()));
+    AdaptiveStubOrder order = delayed.getAdaptiveStubOrder();
+
+    assertNull(order.match(request("/slow")));
+    assertNull(order.match(request("/other")), "no stub is servable, WireMock matches");
+
+    delayed
+        .getEngine()
+        .importStubs(List.of(get(urlEqualTo("/fast")).willReturn(ok("fast")).build()));
+    assertNull(order.match(request("/slow")));
+    assertEquals("/fast", order.match(request("/fast")).stub().getRequest().getUrl());
+    assertNull(order.match(request("/other")).stub());
+    delayed.close();
+  }
+
+  private static Request request(String path) {
+    return ImmutableRequest.create()
+        .withAbsoluteUrl("http://localhost" + path)
+        .withMethod(RequestMethod.GET)
+        .build();
+  }
+
+  @Test
+  void overlapIsJudgedOnMethodAndUrl() {
+    assertFalse(overlap(get(urlEqualTo("/a")), get(urlEqualTo("/b"))));
+    assertFalse(overlap(get(urlEqualTo("/a")), post(urlEqualTo("/a"))));
+    assertTrue(overlap(get(urlEqualTo("/a")), any(urlEqualTo("/a"))));
+    assertTrue(overlap(get(urlEqualTo("/a?b=1")), get(urlPathEqualTo("/a"))));
+    assertFalse(overlap(get(urlPathEqualTo("/a")), get(urlPathEqualTo("/b"))));
+    assertFalse(overlap(get(urlEqualTo("/a")), get(urlPathMatching("/b.*"))));
+    assertTrue(overlap(get(urlPathEqualTo("/a")), get(urlPathMatching("/a.*"))));
+    assertFalse(overlap(get(urlPathEqualTo("/a")), get(urlMatching("/b.*"))));
+    assertTrue(overlap(get(urlPathEqualTo("/a")), get(urlMatching("/a\\?b=.*"))));
+    assertFalse(overlap(get(urlMatching("/a.*")), get(urlMatching("/b.*"))));
+    assertFalse(overlap(get(urlPathMatching("/users/.*")), get(urlPathTemplate("/orders/{id}"))));
+    assertTrue(overlap(get(urlPathMatching("/users/.*")), get(urlPathTemplate("/users/{id}"))));
+    assertTrue(overlap(get(urlPathMatching("/users/.*")), get(urlMatching("/users/1\\?x=1"))));
+    // an optional or repeated character, an alternative or a leading group end the prefix
+    assertTrue(overlap(get(urlPathMatching("/ab?c")), get(urlPathMatching("/ac"))));
+    assertTrue(overlap(get(urlPathMatching("/a|/b")), get(urlPathMatching("/b"))));
+    assertTrue(overlap(get(urlPathMatching("(?i)/A")), get(urlPathMatching("/a"))));
+    assertEquals("/users/", AdaptiveStubOrder.literalPrefix(urlPathTemplate("/users/{id}")));
+    assertEquals("/a", AdaptiveStubOrder.literalPrefix(urlMatching("^/a.*")));
+  }
+
+  private static boolean overlap(MappingBuilder a, MappingBuilder b) {
+    return AdaptiveStubOrder.mayOverlap(a.build().getRequest(), b.build().getRequest());
+  }
+}
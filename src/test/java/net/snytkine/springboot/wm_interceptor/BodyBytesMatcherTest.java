@@ -0,0 +1,192 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.post;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.Parameters;
+import com.github.tomakehurst.wiremock.http.ImmutableRequest;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.RequestMethod;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class BodyBytesMatcherTest {
+
+  private static final String ORDER =
+      """
+      {"id": 7, "note": "café", "order": {"items": [{"sku": "A-0"}, {"sku": "A-1", "qty": 2.0}],
+       "paid": true}}""";
+
+  private static boolean matches(Map<String, Object> parameters, String body) {
+    return BodyBytesMatcher.compile(Parameters.from(parameters))
+        .matches(body.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void indexOfFindsBytes() {
+    byte[] haystack = "abcabdabe".getBytes(StandardCharsets.UTF_8);
+
+    assertEquals(3, BodyBytesMatcher.indexOf(haystack, "abd".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(6, BodyBytesMatcher.indexOf(haystack, "abe".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(-1, BodyBytesMatcher.indexOf(haystack, "abf".getBytes(StandardCharsets.UTF_8)));
+    assertEquals(0, BodyBytesMatcher.indexOf(haystack, new byte[0]));
+    assertEquals(-1, BodyBytesMatcher.indexOf(new byte[2], new byte[3]));
+  }
+
+  @Test
+  void containsMatchesUtf8Text() {
+    assertTrue(matches(Map.of("contains", "café"), ORDER));
+    assertFalse(matches(Map.of("contains", "cafe"), ORDER));
+  }
+
+  @Test
+  void parsePathReadsAllStepKinds() {
+    assertEquals(
+        List.of("order", "items", 1, "sku"), BodyBytesMatcher.parsePath("$.order['items'][1].sku"));
+    assertEquals(List.of(), BodyBytesMatcher.parsePath("$"));
+    assertThrows(IllegalArgumentException.class, () -> BodyBytesMatcher.parsePath("order"));
+    assertThrows(IllegalArgumentException.class, () -> BodyBytesMatcher.parsePath("$.items[x]"));
+    assertThrows(IllegalArgumentException.class, () -> BodyBytesMatcher.parsePath("$.items[1"));
+  }
+
+  @Test
+  void jsonPathMatchesValues() {
+    assertTrue(matches(Map.of("jsonPath", "$.order.items[1].sku", "equalTo", "A-1"), ORDER));
+    assertFalse(matches(Map.of("jsonPath", "$.order.items[0].sku", "equalTo", "A-1"), ORDER));
+    assertTrue(matches(Map.of("jsonPath", "$.order.items[1].qty", "equalTo", 2), ORDER));
+    assertTrue(matches(Map.of("jsonPath", "$.order.paid", "equalTo", "true"), ORDER));
+    assertTrue(matches(Map.of("jsonPath", "$.order.items[1].qty"), ORDER));
+    assertFalse(matches(Map.of("jsonPath", "$.order.items[2]"), ORDER));
+    assertFalse(matches(Map.of("jsonPath", "$.order.items[1]", "equalTo", "A-1"), ORDER));
+  }
+
+  @Test
+  void equalToJsonIgnoresMemberOrder() {
+    assertTrue(
+        matches(
+            Map.of(
+                "jsonPath",
+                "$.order.items[1]",
+                "equalToJson",
+                "{\"qty\": 2, \"sku\": \"A-1\"}"),
+            ORDER));
+    assertFalse(
+        matches(
+            Map.of("jsonPath", "$.order.items[1]", "equalToJson", "{\"sku\": \"A-1\"}"), ORDER));
+    assertTrue(matches(Map.of("equalToJson", "[1, {\"a\": null}]"), "[1,{\"a\":null}]"));
+    assertFalse(matches(Map.of("equalToJson", "[1, 2]"), "[2, 1]"));
+    assertFalse(matches(Map.of("equalToJson", "[1, 2]"), "not json"));
+  }
+
+  @Test
+  void equalToJsonRejectsDuplicateMembersAndTrailingValues() {
+    assertFalse(matches(Map.of("equalToJson", "{\"a\": 1, \"b\": 2}"), "{\"a\":1,\"a\":1}"));
+    assertFalse(matches(Map.of("equalToJson", "{\"a\": 1}"), "{\"a\":1} {\"a\":1}"));
+    assertFalse(matches(Map.of("equalToJson", "[1]"), "[1]]"));
+    assertTrue(matches(Map.of("equalToJson", "{\"a\": 1}"), "{\"a\":1}\n"));
+  }
+
+  @Test
+  void interceptorMatchesStubsWithTheMatcher() throws Exception {
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration(), new WireMockProperties());
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                post(urlEqualTo("/orders"))
+                    .andMatching(
+                        BodyBytesMatcher.NAME,
+                        Parameters.from(
+                            Map.of("jsonPath", "$.order.items[1].sku", "equalTo", "A-1")))
+                    .willReturn(ok("matched"))
+                    .build()));
+
+    assertEquals("matched", send(interceptor, ORDER));
+    assertEquals("real", send(interceptor, "{\"order\": {}}"));
+    interceptor.close();
+  }
+
+  @Test
+  void invalidParametersMatchNothing() throws Exception {
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration(), new WireMockProperties());
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                post(urlEqualTo("/orders"))
+                    .andMatching(
+                        BodyBytesMatcher.NAME, Parameters.from(Map.of("jsonPath", "order")))
+                    .willReturn(ok("matched"))
+                    .build(),
+                post(urlEqualTo("/orders"))
+                    .andMatching(
+                        BodyBytesMatcher.NAME, Parameters.from(Map.of("equalToJson", "{")))
+                    .willReturn(ok("matched"))
+                    .build()));
+
+    assertEquals("real", send(interceptor, ORDER));
+    assertEquals("real", send(interceptor, ORDER));
+    interceptor.close();
+  }
+
+  @Test
+  void keepsRecentlyUsedParametersWhenFull() {
+    BodyBytesMatcher matcher = new BodyBytesMatcher();
+    Request request =
+        ImmutableRequest.create()
+            .withAbsoluteUrl("http://localhost/orders")
+            .withMethod(RequestMethod.POST)
+            .withBody("{}".getBytes(StandardCharsets.UTF_8))
+            .build();
+    Parameters hot = Parameters.from(Map.of("contains", "hot"));
+    for (int i = 0; i < BodyBytesMatcher.MAX_COMPILED + 10; i++) {
+      matcher.match(request, Parameters.from(Map.of("contains", "cold-" + i)));
+      matcher.match(request, hot);
+    }
+
+    assertTrue(matcher.compiledCount() <= BodyBytesMatcher.MAX_COMPILED);
+    int before = matcher.compiledCount();
+    matcher.match(request, hot);
+    assertEquals(before, matcher.compiledCount());
+  }
+
+  private static String send(WMInterceptor interceptor, String body) throws Exception {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.POST, URI.create("http://localhost/orders"));
+    ClientHttpResponse response =
+        interceptor.intercept(
+            request,
+            body.getBytes(StandardCharsets.UTF_8),
+            (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+}
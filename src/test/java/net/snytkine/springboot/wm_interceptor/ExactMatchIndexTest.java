@@ -0,0 +1,166 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.any;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class ExactMatchIndexTest {
+
+  private final WMInterceptor interceptor = interceptor();
+
+  private static WMInterceptor interceptor() {
+    WireMockProperties props = new WireMockProperties();
+    props.setExactMatchIndexEnabled(true);
+    return new WMInterceptor(
+        new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+  }
+
+  private String intercept(HttpMethod method, String path, Map<String, String> headers)
+      throws Exception {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(method, URI.create("http://localhost" + path));
+    headers.forEach(request.getHeaders()::add);
+    ClientHttpResponse response =
+        interceptor.intercept(
+            request,
+            new byte[0],
+            (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private String intercept(String path) throws Exception {
+    return intercept(HttpMethod.GET, path, Map.of());
+  }
+
+  @Test
+  void exactStubsAreAnsweredFromTheIndex() throws Exception {
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+    assertEquals("real", intercept("/small?page=2"));
+    assertEquals("real", intercept(HttpMethod.POST, "/small", Map.of()));
+
+    assertEquals(2, interceptor.getStats().getExactMatchHits());
+    assertEquals(3, interceptor.getStats().getMocked());
+    assertEquals(2, interceptor.getStats().getUnmatched());
+  }
+
+  @Test
+  void pathStubsAcceptAnyQuery() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(List.of(get(urlPathEqualTo("/items")).willReturn(ok("items")).build()));
+
+    assertEquals("items", intercept("/items?page=1"));
+    assertEquals("items", intercept("/items?page=2"));
+    assertEquals("items", intercept("/items"));
+    assertEquals(2, interceptor.getStats().getExactMatchHits());
+  }
+
+  @Test
+  void earlierStubsThatMayMatchAreLeftToWireMock() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathMatching("/sm.*"))
+                    .atPriority(1)
+                    .withHeader("X-Variant", equalTo("b"))
+                    .willReturn(ok("variant"))
+                    .build()));
+
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+    assertEquals("variant", intercept(HttpMethod.GET, "/small", Map.of("X-Variant", "b")));
+    assertNotEquals("real", intercept("/error/a"));
+    assertEquals(0, interceptor.getStats().getExactMatchHits());
+  }
+
+  @Test
+  void priorityDecidesBetweenExactStubs() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                any(urlEqualTo("/small")).atPriority(1).willReturn(ok("any method")).build()));
+
+    assertEquals("any method", intercept("/small"));
+    assertEquals("any method", intercept(HttpMethod.POST, "/small", Map.of()));
+    assertEquals("any method", intercept("/small"));
+    assertEquals(2, interceptor.getStats().getExactMatchHits());
+  }
+
+  @Test
+  void dynamicResponsesGoThroughWireMock() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlEqualTo("/delayed")).willReturn(ok("late").withFixedDelay(1)).build()));
+
+    assertEquals("late", intercept("/delayed"));
+    assertEquals("late", intercept("/delayed"));
+    assertEquals(0, interceptor.getStats().getExactMatchHits());
+  }
+
+  @Test
+  void stubChangesRebuildTheIndex() throws Exception {
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(get(urlEqualTo("/small")).atPriority(1).willReturn(ok("new")).build()));
+
+    assertEquals("new", intercept("/small"));
+    assertEquals("new", intercept("/small"));
+    assertEquals(2, interceptor.getStats().getExactMatchHits());
+  }
+
+  @Test
+  void onlyMethodAndUrlStubsAreExact() {
+    assertTrue(ExactMatchIndex.isExact(get(urlEqualTo("/a?b=1")).build().getRequest()));
+    assertTrue(ExactMatchIndex.isExact(get(urlPathEqualTo("/a")).build().getRequest()));
+    assertFalse(ExactMatchIndex.isExact(get(urlPathMatching("/a.*")).build().getRequest()));
+    assertFalse(
+        ExactMatchIndex.isExact(
+            get(urlEqualTo("/a")).withHeader("X", equalTo("1")).build().getRequest()));
+    assertFalse(
+        ExactMatchIndex.isExact(
+            get(urlPathEqualTo("/a")).withQueryParam("b", equalTo("1")).build().getRequest()));
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.FakerSettings;
+import org.junit.jupiter.api.Test;
+
+class FakerValuePoolTest {
+
+  private static FakerValuePool pool(int size, Long seed) {
+    FakerSettings settings = new FakerSettings();
+    settings.setPoolSize(size);
+    settings.setSeed(seed);
+    return new FakerValuePool(settings);
+  }
+
+  private static void awaitFull(FakerValuePool pool, String expression, int size)
+      throws InterruptedException {
+    long deadline = System.nanoTime() + 5_000_000_000L;
+    while (pool.available(expression) < size && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  void valuesAreServedFromThePoolOnceFilled() throws Exception {
+    FakerValuePool pool = pool(32, null);
+    try {
+      assertFalse(pool.next("Name.first_name").isEmpty());
+      assertEquals(1, pool.getGeneratedInline());
+
+      awaitFull(pool, "Name.first_name", 32);
+      for (int i = 0; i < 10; i++) {
+        assertFalse(pool.next("Name.first_name").isEmpty());
+      }
+      assertEquals(10, pool.getPooled());
+      assertEquals(1, pool.getGeneratedInline());
+    } finally {
+      pool.stop();
+    }
+  }
+
+  @Test
+  void seedMakesValuesRepeatable() throws Exception {
+    List<List<String>> runs = new ArrayList<>();
+    for (int run = 0; run < 2; run++) {
+      FakerValuePool pool = pool(8, 42L);
+      try {
+        List<String> values = new ArrayList<>();
+        values.add(pool.next("Name.first_name"));
+        awaitFull(pool, "Name.first_name", 8);
+        for (int i = 0; i < 8; i++) {
+          values.add(pool.next("Name.first_name"));
+        }
+        runs.add(values);
+      } finally {
+        pool.stop();
+      }
+    }
+    assertEquals(runs.get(0), runs.get(1));
+  }
+
+  @Test
+  void concurrentMissesGetFakersOfTheirOwn() throws Exception {
+    FakerValuePool pool = pool(8, null);
+    int threads = 4;
+    ExecutorService callers = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(
+            callers.submit(
+                () -> {
+                  for (int i = 0; i < 200; i++) {
+                    // a new expression each time, so every value is generated inline
+                    assertFalse(pool.next("Name.first_name" + thread + "_" + i).isEmpty());
+                  }
+                }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      assertEquals(threads * 200, pool.getGeneratedInline());
+      // the filler's, and at most one per caller thread, reused across misses
+      assertTrue(pool.getFakerCount() <= threads + 1, "created " + pool.getFakerCount());
+    } finally {
+      callers.shutdownNow();
+      pool.stop();
+    }
+  }
+
+  @Test
+  void unknownExpressionsFailWithoutAPool() {
+    FakerValuePool pool = pool(8, null);
+    try {
+      assertThrows(RuntimeException.class, () -> pool.next("NoSuchProvider.value"));
+      assertEquals(0, pool.available("NoSuchProvider.value"));
+    } finally {
+      pool.stop();
+    }
+  }
+
+  @Test
+  void poolSizeMustBePositive() {
+    FakerSettings settings = new FakerSettings();
+    settings.setPoolSize(0);
+    assertThrows(IllegalArgumentException.class, () -> new FakerValuePool(settings));
+  }
+
+  @Test
+  void ringHandsOutEachValueOnce() throws Exception {
+    FakerValuePool.Ring ring = new FakerValuePool.Ring(64);
+    int total = 20_000;
+    Set<String> taken = ConcurrentHashMap.newKeySet();
+    ExecutorService takers = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(
+            takers.submit(
+                () -> {
+                  while (taken.size() < total) {
+                    String value = ring.take();
+                    if (value != null) {
+                      assertTrue(taken.add(value), "value handed out twice: " + value);
+                    }
+                  }
+                }));
+      }
+      for (int i = 0; i < total; i++) {
+        while (ring.available() >= 64) {
+          Thread.onSpinWait();
+        }
+        ring.put("v" + i);
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      takers.shutdownNow();
+    }
+    Set<String> expected = new HashSet<>();
+    for (int i = 0; i < total; i++) {
+      expected.add("v" + i);
+    }
+    assertEquals(expected, taken);
+  }
+}
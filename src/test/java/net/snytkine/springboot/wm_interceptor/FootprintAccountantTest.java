@@ -0,0 +1,137 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.direct.DirectCallHttpServerFactory;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class FootprintAccountantTest {
+
+  private static WireMockConfiguration config() {
+    return new WireMockConfiguration().usingFilesUnderClasspath("wm-test");
+  }
+
+  @Test
+  void refusesStubsBeyondTheLimit() {
+    WireMockProperties props = new WireMockProperties();
+    props.getLimits().setMaxStubs(6);
+    StubEngine engine = new StubEngine(config(), props);
+    StubMapping added = get(urlEqualTo("/added")).willReturn(ok()).build();
+
+    engine.importStubs(List.of(added));
+    assertThrows(
+        IllegalStateException.class,
+        () -> engine.importStubs(List.of(get(urlEqualTo("/more")).willReturn(ok()).build())));
+    // replacing a loaded stub does not add one
+    engine.importStubs(
+        List.of(get(urlEqualTo("/added")).withId(added.getId()).willReturn(ok("new")).build()));
+    assertEquals(6, engine.getStubCount());
+  }
+
+  @Test
+  void refusesToStartWithTooManyStubs() {
+    WireMockProperties props = new WireMockProperties();
+    props.getLimits().setMaxStubs(4);
+
+    assertThrows(IllegalStateException.class, () -> new StubEngine(config(), props));
+  }
+
+  @Test
+  void removesOldestJournalEntriesBeyondTheLimit() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    // room for one entry but not two
+    props.getLimits().setMaxJournalBytes(2L * FootprintAccountant.JOURNAL_ENTRY_OVERHEAD - 1);
+    props.getLimits().setCheckInterval(Duration.ofNanos(1));
+    WMInterceptor interceptor = new WMInterceptor(config(), props);
+
+    for (int i = 0; i < 3; i++) {
+      interceptor.intercept(
+          new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/small")),
+          new byte[0],
+          (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    }
+
+    // trims run in the background, each request schedules one once the previous has finished
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (interceptor.getEngine().getFootprint().journalEntries() > 1
+        && System.nanoTime() < deadline) {
+      interceptor.getEngine().enforceLimits();
+      Thread.sleep(10);
+    }
+
+    StubEngine.Footprint footprint = interceptor.getEngine().getFootprint();
+    assertEquals(1, footprint.journalEntries());
+    assertTrue(footprint.estimatedJournalBytes() >= FootprintAccountant.JOURNAL_ENTRY_OVERHEAD);
+    assertEquals(2, interceptor.getEngine().getJournalEvictions());
+  }
+
+  @Test
+  void disabledJournalCountsAsEmpty() {
+    WireMockProperties props = new WireMockProperties();
+    props.getLimits().setMaxJournalBytes(1L);
+    WireMockServer server =
+        new WireMockServer(
+            config()
+                .disableRequestJournal()
+                .httpServerFactory(new DirectCallHttpServerFactory()));
+    FootprintAccountant accountant =
+        new FootprintAccountant(
+            server, new StubSetVersion(), new ResponseBodyStore(props), null, props.getLimits());
+
+    assertEquals(0, accountant.measure().journalEntries());
+    assertEquals(0, accountant.trimJournal());
+  }
+
+  @Test
+  void stubSizesAreMeasuredOncePerStubSetVersion() {
+    StubEngine engine = new StubEngine(config(), new WireMockProperties());
+    long stubBytes = engine.getFootprint().estimatedStubBytes();
+
+    // an in-place change WireMock is not told about is not seen until the stub set changes
+    engine.getStubMappings().get(0).setPriority(12345);
+    assertEquals(stubBytes, engine.getFootprint().estimatedStubBytes());
+    engine.importStubs(List.of(get(urlEqualTo("/added")).willReturn(ok()).build()));
+    assertTrue(engine.getFootprint().estimatedStubBytes() > stubBytes);
+    assertEquals(6, engine.getFootprint().stubCount());
+  }
+
+  @Test
+  void recentFootprintIsReusedWithinTheInterval() {
+    StubEngine engine = new StubEngine(config(), new WireMockProperties());
+
+    StubEngine.Footprint first = engine.getRecentFootprint();
+    engine.importStubs(List.of(get(urlEqualTo("/added")).willReturn(ok()).build()));
+
+    assertSame(first, engine.getRecentFootprint());
+    assertEquals(6, engine.getFootprint().stubCount());
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.http.HttpHeader;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+class HeaderTableTest {
+
+  private static HeaderTable table() {
+    HttpHeaders headers = new HttpHeaders();
+    headers.add("Accept", "application/json");
+    headers.add("X-Multi", "a");
+    headers.add("X-Multi", "b");
+    headers.add("X-Empty", "");
+    return HeaderTable.of(headers);
+  }
+
+  @Test
+  void looksHeadersUpCaseInsensitively() {
+    HeaderTable table = table();
+
+    assertTrue(table.contains("accept"));
+    assertTrue(table.contains("X-MULTI"));
+    assertFalse(table.contains("Content-Type"));
+    assertFalse(table.contains(null));
+    assertEquals("application/json", table.first("ACCEPT"));
+    assertEquals(List.of("a", "b"), table.values("x-multi"));
+    assertNull(table.first("missing"));
+    assertNull(table.values("missing"));
+    assertEquals(Set.of("Accept", "X-Multi", "X-Empty"), table.names());
+  }
+
+  @Test
+  void reusesHeaderInstances() {
+    HeaderTable table = table();
+
+    HttpHeader multi = table.header("x-multi");
+    assertEquals("X-Multi", multi.key());
+    assertEquals(List.of("a"), multi.values());
+    assertSame(multi, table.header("X-MULTI"));
+
+    HttpHeader absent = table.header("X-Missing");
+    assertFalse(absent.isPresent());
+    assertSame(absent, table().header("X-Missing"));
+    assertFalse(table.header("X-Empty").isPresent());
+
+    assertSame(table.httpHeaders(), table.httpHeaders());
+    assertEquals(List.of("a", "b"), table.httpHeaders().getHeader("X-Multi").values());
+  }
+
+  @Test
+  void handlesManyHeaders() {
+    HttpHeaders headers = new HttpHeaders();
+    for (int i = 0; i < 100; i++) {
+      headers.add("X-Header-" + i, "v" + i);
+    }
+    HeaderTable table = HeaderTable.of(headers);
+
+    for (int i = 0; i < 100; i++) {
+      assertEquals("v" + i, table.first("x-header-" + i));
+    }
+    assertFalse(table.contains("X-Header-100"));
+    assertFalse(HeaderTable.of(new HttpHeaders()).contains("X-Header-1"));
+  }
+}
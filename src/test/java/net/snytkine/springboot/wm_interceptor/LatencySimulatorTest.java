@@ -0,0 +1,145 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.common.Metadata;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.LatencyProfile;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class LatencySimulatorTest {
+
+  private static LatencyProfile percentiles(String... percentileAndMillis) {
+    LatencyProfile profile = new LatencyProfile();
+    Map<String, Duration> percentiles = new LinkedHashMap<>();
+    for (int i = 0; i < percentileAndMillis.length; i += 2) {
+      percentiles.put(
+          percentileAndMillis[i], Duration.ofMillis(Long.parseLong(percentileAndMillis[i + 1])));
+    }
+    profile.setPercentiles(percentiles);
+    return profile;
+  }
+
+  @Test
+  void interpolatesBetweenPercentileTargets() {
+    long[] latencies =
+        LatencySimulator.fromPercentiles(
+            "slow", percentiles("50", "10", "99", "100").getPercentiles());
+
+    assertEquals(LatencySimulator.QUANTILES, latencies.length);
+    assertEquals(Duration.ofMillis(10).toNanos(), latencies[0]);
+    assertEquals(Duration.ofMillis(100).toNanos(), latencies[latencies.length - 1]);
+    long p75 = latencies[750];
+    assertTrue(
+        p75 > Duration.ofMillis(50).toNanos() && p75 < Duration.ofMillis(60).toNanos(),
+        "p75 " + p75);
+    for (int i = 1; i < latencies.length; i++) {
+      assertTrue(latencies[i] >= latencies[i - 1]);
+    }
+  }
+
+  @Test
+  void stubMetadataTakesPrecedenceOverHost() {
+    WireMockProperties props = new WireMockProperties();
+    props.getLatencyProfiles().put("fast", percentiles("50", "1"));
+    props.getLatencyProfiles().put("slow", percentiles("50", "500"));
+    props.getHostLatencyProfiles().put("Example.com", "fast");
+    LatencySimulator simulator = new LatencySimulator(props);
+
+    StubMapping stub = new StubMapping();
+    stub.setMetadata(new Metadata(Map.of(LatencySimulator.STUB_METADATA_KEY, "slow")));
+
+    assertEquals("slow", simulator.profileFor("example.com", stub).name());
+    assertEquals("fast", simulator.profileFor("example.com", new StubMapping()).name());
+    assertNull(simulator.profileFor("other.com", null));
+  }
+
+  @Test
+  void rejectsInvalidProfiles() {
+    WireMockProperties unknownProfile = new WireMockProperties();
+    unknownProfile.getHostLatencyProfiles().put("example.com", "missing");
+    assertThrows(IllegalArgumentException.class, () -> new LatencySimulator(unknownProfile));
+
+    WireMockProperties badRate = new WireMockProperties();
+    LatencyProfile profile = new LatencyProfile();
+    profile.setErrorRate(2.0);
+    badRate.getLatencyProfiles().put("bad", profile);
+    assertThrows(IllegalArgumentException.class, () -> new LatencySimulator(badRate));
+
+    WireMockProperties badPercentile = new WireMockProperties();
+    badPercentile.getLatencyProfiles().put("bad", percentiles("p99", "10"));
+    assertThrows(IllegalArgumentException.class, () -> new LatencySimulator(badPercentile));
+  }
+
+  @Test
+  void throttlesReads() throws Exception {
+    byte[] data = new byte[2_000];
+    long start = System.nanoTime();
+    try (InputStream in = new ThrottledInputStream(new ByteArrayInputStream(data), 10_000)) {
+      assertEquals(data.length, in.readAllBytes().length);
+    }
+    long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+    assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis);
+  }
+
+  @Test
+  void interceptorDelaysAndInjectsErrors() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    LatencyProfile slow = percentiles("50", "50");
+    props.getLatencyProfiles().put("slow", slow);
+    LatencyProfile failing = new LatencyProfile();
+    failing.setErrorRate(1.0);
+    failing.setErrorStatus(502);
+    props.getLatencyProfiles().put("failing", failing);
+    props.getHostLatencyProfiles().put("slow.example.com", "slow");
+    props.getHostLatencyProfiles().put("failing.example.com", "failing");
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+
+    long start = System.nanoTime();
+    ClientHttpResponse delayed = intercept(interceptor, "http://slow.example.com/small");
+    assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 50);
+    assertEquals(200, delayed.getStatusCode().value());
+
+    ClientHttpResponse failed = intercept(interceptor, "http://failing.example.com/small");
+    assertEquals(502, failed.getStatusCode().value());
+    assertEquals(1, interceptor.getStats().getInjectedErrors());
+    assertEquals(2, interceptor.getStats().getMocked());
+  }
+
+  private static ClientHttpResponse intercept(WMInterceptor interceptor, String uri)
+      throws Exception {
+    return interceptor.intercept(
+        new MockClientHttpRequest(HttpMethod.GET, URI.create(uri)),
+        new byte[0],
+        (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+  }
+}
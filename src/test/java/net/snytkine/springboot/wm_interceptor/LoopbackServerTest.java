@@ -0,0 +1,123 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class LoopbackServerTest {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  private HttpResponse<String> send(int port, String method, String path, String body)
+      throws Exception {
+    return client.send(
+        HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+            .method(
+                method,
+                body == null
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofString(body))
+            .header("X-Test", "yes")
+            .build(),
+        HttpResponse.BodyHandlers.ofString());
+  }
+
+  @Test
+  void servesMockResponsesAndNotFoundOtherwise() throws Exception {
+    LoopbackServer server =
+        new LoopbackServer(
+            0,
+            (request, body) -> {
+              if (!request.getURI().getPath().equals("/echo")) {
+                return null;
+              }
+              MockClientHttpResponse response =
+                  new MockClientHttpResponse(body, HttpStatus.CREATED);
+              response.getHeaders().add("X-Seen", request.getHeaders().getFirst("x-test"));
+              response.getHeaders().add("X-Method", request.getMethod().name());
+              return response;
+            });
+    try {
+      HttpResponse<String> echo = send(server.getPort(), "POST", "/echo", "hello");
+      assertEquals(201, echo.statusCode());
+      assertEquals("hello", echo.body());
+      assertEquals("yes", echo.headers().firstValue("X-Seen").orElse(null));
+      assertEquals("POST", echo.headers().firstValue("X-Method").orElse(null));
+
+      assertEquals(404, send(server.getPort(), "GET", "/other", null).statusCode());
+    } finally {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  void interceptorServesItsStubsOnLoopbackPort() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setLoopbackPort(0);
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    try {
+      int port = interceptor.getLoopbackPort();
+      assertTrue(port > 0);
+
+      HttpResponse<String> small = send(port, "GET", "/small", null);
+      assertEquals(200, small.statusCode());
+      assertEquals("ok", small.body());
+      assertEquals(404, send(port, "GET", "/nothing", null).statusCode());
+      assertEquals(1, interceptor.getStats().getMocked());
+      assertEquals(1, interceptor.getStats().getUnmatched());
+    } finally {
+      interceptor.close();
+    }
+  }
+
+  @Test
+  void listenerRestartsOnTheSamePortWithTheInterceptor() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setLoopbackPort(0);
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    try {
+      int port = interceptor.getLoopbackPort();
+
+      interceptor.stop();
+      assertEquals(-1, interceptor.getLoopbackPort());
+
+      interceptor.start();
+      assertEquals(port, interceptor.getLoopbackPort());
+      assertEquals("ok", send(port, "GET", "/small", null).body());
+    } finally {
+      interceptor.close();
+    }
+  }
+
+  @Test
+  void listenerDisabledByDefault() {
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration(), new WireMockProperties());
+    assertEquals(-1, interceptor.getLoopbackPort());
+  }
+}
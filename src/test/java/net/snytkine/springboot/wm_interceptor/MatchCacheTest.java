@@ -0,0 +1,201 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
+import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class MatchCacheTest {
+
+  private final WMInterceptor interceptor = interceptor();
+
+  private static WMInterceptor interceptor() {
+    WireMockProperties props = new WireMockProperties();
+    props.setMatchCacheSize(2);
+    return new WMInterceptor(
+        new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+  }
+
+  private String intercept(String path, Map<String, String> headers) throws Exception {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path));
+    headers.forEach(request.getHeaders()::add);
+    ClientHttpResponse response =
+        interceptor.intercept(
+            request,
+            new byte[0],
+            (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  private String intercept(String path) throws Exception {
+    return intercept(path, Map.of());
+  }
+
+  @Test
+  void repeatedRequestsAreServedFromCache() throws Exception {
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+    assertEquals("ok", intercept("/small"));
+
+    assertEquals(2, interceptor.getStats().getMatchCacheHits());
+    assertEquals(1, interceptor.getStats().getMatchCacheMisses());
+    assertEquals(3, interceptor.getStats().getMocked());
+  }
+
+  @Test
+  void stubChangesInvalidateCache() throws Exception {
+    assertEquals("ok", intercept("/small"));
+
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(get(urlEqualTo("/small")).atPriority(1).willReturn(ok("new")).build()));
+
+    assertEquals("new", intercept("/small"));
+    assertEquals(0, interceptor.getStats().getMatchCacheHits());
+  }
+
+  @Test
+  void scenarioStubsBypassCache() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlEqualTo("/scenario"))
+                    .inScenario("flow")
+                    .whenScenarioStateIs(Scenario.STARTED)
+                    .willSetStateTo("second")
+                    .willReturn(ok("first"))
+                    .build(),
+                get(urlEqualTo("/scenario"))
+                    .inScenario("flow")
+                    .whenScenarioStateIs("second")
+                    .willReturn(ok("second"))
+                    .build()));
+
+    assertEquals("first", intercept("/scenario"));
+    assertEquals("second", intercept("/scenario"));
+    assertEquals(0, interceptor.getStats().getMatchCacheHits());
+  }
+
+  @Test
+  void headersMatchedByStubsArePartOfTheKey() throws Exception {
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlEqualTo("/keyed"))
+                    .withHeader("X-Key", equalTo("1"))
+                    .willReturn(ok("keyed"))
+                    .build()));
+
+    assertEquals("keyed", intercept("/keyed", Map.of("X-Key", "1")));
+    assertEquals("keyed", intercept("/keyed", Map.of("x-key", "1")));
+    assertEquals("real", intercept("/keyed", Map.of("X-Key", "2")));
+    assertEquals(1, interceptor.getStats().getMatchCacheHits());
+  }
+
+  @Test
+  void evictsEntriesBeyondTheByteLimit() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setMatchCacheSize(100);
+    props.getLimits().setMaxMatchCacheBytes((long) MatchCache.ENTRY_OVERHEAD);
+    WMInterceptor limited =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    for (int i = 0; i < 3; i++) {
+      limited.intercept(
+          new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/small")),
+          new byte[0],
+          (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    }
+
+    assertEquals(0, limited.getStats().getMatchCacheHits());
+    assertEquals(3, limited.getStats().getMocked());
+  }
+
+  @Test
+  void evictsOldestEntries() throws Exception {
+    intercept("/small");
+    intercept("/error/a");
+    intercept("/error/b");
+    intercept("/small");
+
+    assertEquals(0, interceptor.getStats().getMatchCacheHits());
+    assertEquals(0.0, interceptor.getStats().getMatchCacheHitRatio());
+  }
+
+  @Test
+  void globalExtensionsDisableCaching() throws Exception {
+    AtomicInteger transformed = new AtomicInteger();
+    ResponseTransformerV2 transformer =
+        new ResponseTransformerV2() {
+          @Override
+          public Response transform(Response response, ServeEvent serveEvent) {
+            transformed.incrementAndGet();
+            return response;
+          }
+
+          @Override
+          public String getName() {
+            return "counting-transformer";
+          }
+        };
+    WireMockProperties props = new WireMockProperties();
+    props.setMatchCacheSize(100);
+    props.setExactMatchIndexEnabled(true);
+    props.setAdaptiveStubOrderEnabled(true);
+    WMInterceptor global =
+        new WMInterceptor(
+            new WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test")
+                .extensions(transformer),
+            props);
+    for (int i = 0; i < 3; i++) {
+      global.intercept(
+          new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/small")),
+          new byte[0],
+          (r, b) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    }
+
+    assertTrue(global.getEngine().hasGlobalExtensions());
+    assertEquals(3, transformed.get());
+    assertEquals(0, global.getStats().getMatchCacheHits());
+    assertEquals(0, global.getStats().getExactMatchHits());
+    assertEquals(3, global.getStats().getMocked());
+  }
+}
@@ -0,0 +1,164 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.anyUrl;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.net.URI;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.MatchDiagnostics.Diagnosis;
+import net.snytkine.springboot.wm_interceptor.MatchDiagnostics.Stage;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class MatchDiagnosticsTest {
+
+  private static WMInterceptor interceptor(int capacity) {
+    WireMockProperties props = new WireMockProperties();
+    props.setMatchDiagnosticsEnabled(true);
+    props.setMatchDiagnosticsCapacity(capacity);
+    return new WMInterceptor(
+        new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+  }
+
+  private static void intercept(WMInterceptor interceptor, HttpMethod method, String path)
+      throws Exception {
+    interceptor.intercept(
+        new MockClientHttpRequest(method, URI.create("http://localhost" + path)),
+        new byte[0],
+        (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+  }
+
+  @Test
+  void disabledByDefault() {
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+            new WireMockProperties());
+    assertNull(interceptor.getMatchDiagnostics());
+  }
+
+  @Test
+  void recordsRejectingStageAndClosestStubs() throws Exception {
+    WMInterceptor interceptor = interceptor(10);
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlEqualTo("/needs-header"))
+                    .withHeader("X-Key", equalTo("1"))
+                    .willReturn(ok())
+                    .build()));
+
+    intercept(interceptor, HttpMethod.GET, "/small");
+    intercept(interceptor, HttpMethod.POST, "/small");
+    intercept(interceptor, HttpMethod.GET, "/error/c");
+    intercept(interceptor, HttpMethod.GET, "/needs-header");
+
+    MatchDiagnostics diagnostics = interceptor.getMatchDiagnostics();
+    assertEquals(3, diagnostics.getRecorded());
+    List<Diagnosis> recent = diagnostics.recent();
+
+    Diagnosis header = recent.get(0);
+    assertEquals(Stage.OTHER_CRITERIA, header.rejectedAt());
+    assertEquals("/needs-header", header.candidates().get(0).url());
+    assertEquals(3.0, header.candidates().get(0).score());
+
+    Diagnosis url = recent.get(1);
+    assertEquals(Stage.URL, url.rejectedAt());
+    assertEquals(MatchDiagnostics.CANDIDATES, url.candidates().size());
+    assertTrue(url.candidates().get(0).url().startsWith("/error/"));
+    assertTrue(url.candidates().get(1).url().startsWith("/error/"));
+
+    Diagnosis method = recent.get(2);
+    assertEquals(Stage.METHOD, method.rejectedAt());
+    assertEquals("POST", method.method());
+    assertEquals("/small", method.candidates().get(0).url());
+    assertEquals(2.0, method.candidates().get(0).score());
+  }
+
+  @Test
+  void keepsOnlyTheNewestEntries() throws Exception {
+    WMInterceptor interceptor = interceptor(2);
+
+    intercept(interceptor, HttpMethod.GET, "/one");
+    intercept(interceptor, HttpMethod.GET, "/two");
+    intercept(interceptor, HttpMethod.GET, "/three");
+
+    MatchDiagnostics diagnostics = interceptor.getMatchDiagnostics();
+    assertEquals(3, diagnostics.getRecorded());
+    assertEquals(
+        List.of("/three", "/two"), diagnostics.recent().stream().map(Diagnosis::url).toList());
+  }
+
+  @Test
+  void onlyStubsSharingTheFirstSegmentAreMatched() throws Exception {
+    WMInterceptor interceptor = interceptor(10);
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlMatching("/orders/[0-9]+")).willReturn(ok()).build(),
+                get(urlPathMatching(".*/legacy")).willReturn(ok()).build()));
+
+    intercept(interceptor, HttpMethod.GET, "/orders/abc");
+    intercept(interceptor, HttpMethod.GET, "/orders/1?x=1");
+
+    List<Diagnosis> recent = interceptor.getMatchDiagnostics().recent();
+    // the regex stub is a candidate, but the query string keeps it from matching
+    assertEquals(Stage.URL, recent.get(0).rejectedAt());
+    assertEquals(Stage.URL, recent.get(1).rejectedAt());
+    assertEquals("/orders/[0-9]+", recent.get(1).candidates().get(0).url());
+    assertEquals(MatchDiagnostics.CANDIDATES, recent.get(1).candidates().size());
+  }
+
+  @Test
+  void indexesStubsByFirstSegmentOfLiteralPrefix() {
+    assertEquals("/orders", MatchDiagnostics.segmentOf(urlMatching("/orders/[0-9]+")));
+    assertEquals("/orders", MatchDiagnostics.segmentOf(urlPathTemplate("/orders/{id}")));
+    assertEquals("/small", MatchDiagnostics.segmentOf(urlEqualTo("/small")));
+    assertEquals("/small", MatchDiagnostics.segmentOf(urlEqualTo("/small?a=1")));
+    assertNull(MatchDiagnostics.segmentOf(urlMatching("/orders.*")));
+    assertNull(MatchDiagnostics.segmentOf(urlMatching("/a|/b/c")));
+    assertNull(MatchDiagnostics.segmentOf(anyUrl()));
+    assertNull(MatchDiagnostics.segmentOf(null));
+
+    assertEquals("/ord", MatchDiagnostics.regexPrefix("^/orde?r/x"));
+    assertEquals("/orders/", MatchDiagnostics.regexPrefix("/orders/\\d+"));
+    assertEquals("/small", MatchDiagnostics.firstSegment("/small?a=/b"));
+    assertEquals("/", MatchDiagnostics.firstSegment("/"));
+  }
+
+  @Test
+  void sharedPrefixIsFractionOfExpectedUrl() {
+    assertEquals(0.75, MatchDiagnostics.sharedPrefix("/abxx", "/abc"));
+    assertEquals(1.0, MatchDiagnostics.sharedPrefix("/abc/d", "/abc"));
+    assertEquals(0.0, MatchDiagnostics.sharedPrefix("/abc", null));
+  }
+}
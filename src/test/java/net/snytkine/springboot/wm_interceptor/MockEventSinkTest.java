@@ -0,0 +1,187 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.DataInputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.EventLog;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.EventLogFormat;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class MockEventSinkTest {
+
+  @TempDir Path dir;
+
+  private static final MockEventSink.Event EVENT =
+      new MockEventSink.Event(
+          1700000000000L,
+          MockEventSink.Outcome.MOCKED,
+          "6a1f",
+          "GET",
+          "example.com",
+          "/say \"hi\"\n",
+          200,
+          1234,
+          0,
+          2);
+
+  @Test
+  void formatsEventsAsJsonLines() {
+    assertEquals(
+        "{\"ts\":1700000000000,\"outcome\":\"MOCKED\",\"stubId\":\"6a1f\",\"method\":\"GET\","
+            + "\"host\":\"example.com\",\"path\":\"/say \\\"hi\\\"\\n\",\"status\":200,"
+            + "\"matchNanos\":1234,\"requestBytes\":0,\"responseBytes\":2}\n",
+        MockEventSink.toJson(EVENT));
+  }
+
+  @Test
+  void writesBinaryRecordsAfterVersion() throws Exception {
+    EventLog settings = new EventLog();
+    settings.setFile(dir.resolve("events.bin").toString());
+    settings.setFormat(EventLogFormat.BINARY);
+    MockEventSink sink = new MockEventSink(settings, new WMInterceptorStats());
+    assertTrue(sink.record(EVENT));
+    sink.close(5000);
+
+    try (DataInputStream in =
+        new DataInputStream(Files.newInputStream(dir.resolve("events.bin")))) {
+      assertEquals(MockEventSink.BINARY_VERSION, in.readInt());
+      assertEquals(EVENT.timestampMillis(), in.readLong());
+      assertEquals(MockEventSink.Outcome.MOCKED.ordinal(), in.readByte());
+      assertEquals("6a1f", in.readUTF());
+      assertEquals("GET", in.readUTF());
+      assertEquals("example.com", in.readUTF());
+      assertEquals(EVENT.path(), in.readUTF());
+      assertEquals(200, in.readShort());
+      assertEquals(1234, in.readLong());
+      assertEquals(0, in.readInt());
+      assertEquals(2, in.readLong());
+      assertEquals(-1, in.read());
+    }
+  }
+
+  @Test
+  void dropsBinaryRecordsThatCannotBeWrittenWhole() throws Exception {
+    EventLog settings = new EventLog();
+    settings.setFile(dir.resolve("events.bin").toString());
+    settings.setFormat(EventLogFormat.BINARY);
+    WMInterceptorStats stats = new WMInterceptorStats();
+    MockEventSink sink = new MockEventSink(settings, stats);
+    assertTrue(
+        sink.record(
+            new MockEventSink.Event(
+                1L,
+                MockEventSink.Outcome.MOCKED,
+                "6a1f",
+                "GET",
+                "example.com",
+                "/" + "x".repeat(70_000),
+                200,
+                1,
+                0,
+                0)));
+    assertTrue(sink.record(EVENT));
+    sink.close(5000);
+
+    assertEquals(1, stats.getEventsDropped());
+    try (DataInputStream in =
+        new DataInputStream(Files.newInputStream(dir.resolve("events.bin")))) {
+      assertEquals(MockEventSink.BINARY_VERSION, in.readInt());
+      assertEquals(EVENT.timestampMillis(), in.readLong());
+    }
+  }
+
+  @Test
+  void dropsAndCountsEventsItCannotQueue() {
+    EventLog settings = new EventLog();
+    settings.setFile(dir.resolve("events.jsonl").toString());
+    WMInterceptorStats stats = new WMInterceptorStats();
+    MockEventSink sink = new MockEventSink(settings, stats);
+    sink.close(5000);
+
+    assertFalse(sink.record(EVENT));
+    assertEquals(1, stats.getEventsDropped());
+    assertEquals(0, sink.getQueued());
+  }
+
+  @Test
+  void closeGivesUpOnAWriterThatIsBehind() throws Exception {
+    int events = 200_000;
+    EventLog settings = new EventLog();
+    settings.setFile(dir.resolve("events.jsonl").toString());
+    settings.setQueueCapacity(events);
+    WMInterceptorStats stats = new WMInterceptorStats();
+    MockEventSink sink = new MockEventSink(settings, stats);
+    for (int i = 0; i < events; i++) {
+      assertTrue(sink.record(EVENT));
+    }
+    long start = System.nanoTime();
+    sink.close(1);
+    assertTrue(System.nanoTime() - start < 2_000_000_000L);
+
+    // whatever the writer had not written is dropped and counted, and the file is closed
+    long deadline = System.nanoTime() + 10_000_000_000L;
+    long written = 0;
+    while (System.nanoTime() < deadline) {
+      written = Files.readAllLines(dir.resolve("events.jsonl")).size();
+      if (written + stats.getEventsDropped() == events) {
+        break;
+      }
+      Thread.sleep(10);
+    }
+    assertEquals(events, written + stats.getEventsDropped());
+    assertEquals(0, sink.getQueued());
+  }
+
+  @Test
+  void interceptorLogsRoutingDecisions() throws Exception {
+    Path file = dir.resolve("logs/events.jsonl");
+    WireMockProperties props = new WireMockProperties();
+    props.getEventLog().setFile(file.toString());
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    for (String path : List.of("/small", "/missing")) {
+      interceptor.intercept(
+          new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path)),
+          new byte[0],
+          (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    }
+    interceptor.close();
+
+    List<String> lines = Files.readAllLines(file);
+    assertEquals(2, lines.size());
+    assertTrue(lines.get(0).contains("\"outcome\":\"MOCKED\""), lines.get(0));
+    assertTrue(lines.get(0).contains("\"path\":\"/small\""), lines.get(0));
+    assertTrue(lines.get(0).contains("\"status\":200"), lines.get(0));
+    assertTrue(lines.get(0).contains("\"responseBytes\":2"), lines.get(0));
+    assertFalse(lines.get(0).contains("\"stubId\":null"), lines.get(0));
+    assertTrue(lines.get(1).contains("\"outcome\":\"UNMATCHED\""), lines.get(1));
+    assertTrue(lines.get(1).contains("\"stubId\":null"), lines.get(1));
+    assertEquals(0, interceptor.getStats().getEventsDropped());
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.net.URI;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties.SamplingRule;
+import org.junit.jupiter.api.Test;
+
+class MockSamplerTest {
+
+  private static SamplingRule rule(String host, String pathPrefix, double rate) {
+    SamplingRule rule = new SamplingRule();
+    rule.setHost(host);
+    rule.setPathPrefix(pathPrefix);
+    rule.setRate(rate);
+    return rule;
+  }
+
+  @Test
+  void everythingMatchedWithoutRules() {
+    MockSampler sampler = new MockSampler(List.of());
+    assertTrue(sampler.shouldMatch(URI.create("http://example.com/inventory")));
+  }
+
+  @Test
+  void firstApplicableRuleDecides() {
+    MockSampler sampler =
+        new MockSampler(
+            List.of(
+                rule("example.com", "/inventory/live", 1.0),
+                rule(null, "/inventory", 0.0),
+                rule("other.com", null, 0.0)));
+
+    assertTrue(sampler.shouldMatch(URI.create("http://EXAMPLE.com/inventory/live/1")));
+    assertFalse(sampler.shouldMatch(URI.create("http://example.com/inventory/1")));
+    assertFalse(sampler.shouldMatch(URI.create("http://any.com/inventory")));
+    assertFalse(sampler.shouldMatch(URI.create("http://other.com/orders")));
+    assertTrue(sampler.shouldMatch(URI.create("http://example.com/orders")));
+  }
+
+  @Test
+  void fractionalRateSamplesRoughlyThatShare() {
+    MockSampler sampler = new MockSampler(List.of(rule(null, "/inventory", 0.3)));
+    URI uri = URI.create("http://example.com/inventory");
+
+    int matched = 0;
+    for (int i = 0; i < 10_000; i++) {
+      if (sampler.shouldMatch(uri)) {
+        matched++;
+      }
+    }
+    assertTrue(matched > 2_500 && matched < 3_500, "matched " + matched);
+  }
+
+  @Test
+  void rejectsInvalidRate() {
+    assertThrows(
+        IllegalArgumentException.class, () -> new MockSampler(List.of(rule(null, null, 1.5))));
+    assertThrows(
+        IllegalArgumentException.class, () -> new MockSampler(List.of(rule(null, null, -0.1))));
+  }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class PassThroughBreakerTest {
+
+  private static WireMockProperties.FallbackToMock settings(int windowSize, Duration open) {
+    WireMockProperties.FallbackToMock settings = new WireMockProperties.FallbackToMock();
+    settings.setEnabled(true);
+    settings.setWindowSize(windowSize);
+    settings.setFailureRateThreshold(0.5);
+    settings.setSlowCallThreshold(Duration.ofMillis(100));
+    settings.setOpenDuration(open);
+    return settings;
+  }
+
+  private static ClientHttpResponse intercept(
+      WMInterceptor interceptor, String uri, ClientHttpRequestExecution execution)
+      throws Exception {
+    return interceptor.intercept(
+        new MockClientHttpRequest(HttpMethod.GET, URI.create(uri)), new byte[0], execution);
+  }
+
+  private static String body(ClientHttpResponse response) throws Exception {
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void opensWhenFailureRateOfWindowReachesThreshold() {
+    PassThroughBreaker breaker = new PassThroughBreaker(settings(4, Duration.ofMinutes(1)));
+
+    breaker.record("a.example.com", 1_000, true);
+    breaker.record("a.example.com", 1_000, false);
+    breaker.record("a.example.com", 1_000, false);
+    assertFalse(breaker.isOpen("a.example.com"), "window is not complete yet");
+    breaker.record("a.example.com", TimeUnit.MILLISECONDS.toNanos(500), false);
+
+    assertTrue(breaker.isOpen("a.example.com"), "a slow call counts as failed");
+    assertFalse(breaker.isOpen("b.example.com"));
+    assertFalse(breaker.isOpen(null));
+  }
+
+  @Test
+  void startsNewWindowWhenFailureRateIsBelowThreshold() {
+    PassThroughBreaker breaker = new PassThroughBreaker(settings(4, Duration.ofMinutes(1)));
+
+    for (int i = 0; i < 4; i++) {
+      breaker.record("a.example.com", 1_000, i == 0);
+    }
+    assertFalse(breaker.isOpen("a.example.com"));
+
+    breaker.record("a.example.com", 1_000, true);
+    assertFalse(breaker.isOpen("a.example.com"), "failures of a closed window are not carried");
+  }
+
+  @Test
+  void firstCallAfterOpenPeriodClosesOrReopens() throws Exception {
+    PassThroughBreaker breaker = new PassThroughBreaker(settings(2, Duration.ofMillis(50)));
+    breaker.record(null, 1_000, true);
+    breaker.record(null, 1_000, true);
+    assertTrue(breaker.isOpen(null));
+
+    Thread.sleep(80);
+    assertFalse(breaker.isOpen(null));
+    breaker.record(null, 1_000, true);
+    assertTrue(breaker.isOpen(null), "a failure after the open period reopens the circuit");
+
+    Thread.sleep(80);
+    breaker.record(null, 1_000, false);
+    assertFalse(breaker.isOpen(null));
+    breaker.record(null, 1_000, true);
+    assertFalse(breaker.isOpen(null), "closing starts a new window");
+  }
+
+  @Test
+  void rejectsInvalidSettings() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> new PassThroughBreaker(settings(0, Duration.ofSeconds(1))));
+    WireMockProperties.FallbackToMock rate = settings(4, Duration.ofSeconds(1));
+    rate.setFailureRateThreshold(1.5);
+    assertThrows(IllegalArgumentException.class, () -> new PassThroughBreaker(rate));
+  }
+
+  @Test
+  void interceptorFallsBackToMocksWhileCircuitIsOpen() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setMockResponseHeader("X-Mock");
+    props.setFallbackToMock(settings(4, Duration.ofMinutes(1)));
+    WireMockProperties.SamplingRule never = new WireMockProperties.SamplingRule();
+    never.setHost("down.example.com");
+    never.setRate(0.0);
+    props.getSampling().add(never);
+    AtomicInteger realCalls = new AtomicInteger();
+    ClientHttpRequestExecution failing =
+        (request, body) -> {
+          realCalls.incrementAndGet();
+          return new MockClientHttpResponse(new byte[0], HttpStatus.INTERNAL_SERVER_ERROR);
+        };
+    try (WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props)) {
+      for (int i = 0; i < 4; i++) {
+        ClientHttpResponse real = intercept(interceptor, "http://down.example.com/small", failing);
+        assertEquals(500, real.getStatusCode().value());
+      }
+      assertEquals(4, realCalls.get());
+
+      ClientHttpResponse mocked = intercept(interceptor, "http://down.example.com/small", failing);
+      assertEquals("ok", body(mocked), "stubs match regardless of sampling while open");
+      ClientHttpResponse fallback =
+          intercept(interceptor, "http://down.example.com/missing", failing);
+      assertEquals(503, fallback.getStatusCode().value());
+      assertEquals("mock-middleware", fallback.getHeaders().getFirst("X-Mock"));
+      assertEquals(4, realCalls.get(), "no real call while the circuit is open");
+      assertEquals(2, interceptor.getStats().getFallbacks());
+
+      ClientHttpResponse other = intercept(interceptor, "http://up.example.com/missing", failing);
+      assertEquals(500, other.getStatusCode().value());
+      assertEquals(5, realCalls.get());
+    }
+  }
+
+  @Test
+  void interceptorWarmsOriginThatIsNoLongerMocked() throws Exception {
+    CountDownLatch warmed = new CountDownLatch(1);
+    AtomicReference<URI> origin = new AtomicReference<>();
+    ClientHttpRequestExecution real =
+        (request, body) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK);
+    try (WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+            new WireMockProperties())) {
+      interceptor.setPassThroughWarmer(
+          o -> {
+            origin.set(o);
+            warmed.countDown();
+          });
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com/missing", real)));
+      assertEquals("ok", body(intercept(interceptor, "http://api.example.com:8080/small", real)));
+      assertEquals(1, warmed.getCount(), "origins never mocked are not warmed");
+
+      interceptor.stop();
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com:8080/small", real)));
+
+      assertTrue(warmed.await(5, TimeUnit.SECONDS));
+      assertEquals(URI.create("http://api.example.com:8080"), origin.get());
+    }
+  }
+
+  @Test
+  void originIsWarmedOnlyOnceNoStubMatchesIt() throws Exception {
+    AtomicInteger warmups = new AtomicInteger();
+    ClientHttpRequestExecution real =
+        (request, body) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK);
+    try (WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+            new WireMockProperties())) {
+      StubEngine engine = interceptor.getEngine();
+      engine.getStubMappings().forEach(stub -> engine.removeStub(stub.getId()));
+      StubMapping only = onlyStub();
+      engine.importStubs(List.of(only));
+      interceptor.setPassThroughWarmer(o -> warmups.incrementAndGet());
+      for (int i = 0; i < 20; i++) {
+        assertEquals("only", body(intercept(interceptor, "http://api.example.com/only", real)));
+        assertEquals("real", body(intercept(interceptor, "http://api.example.com/missing", real)));
+      }
+      engine.importStubs(List.of(get(urlEqualTo("/other")).willReturn(ok("other")).build()));
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com/missing", real)));
+      awaitWarmups(warmups, 0);
+
+      engine.getStubMappings().forEach(stub -> engine.removeStub(stub.getId()));
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com/only", real)));
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com/missing", real)));
+      awaitWarmups(warmups, 1);
+
+      engine.importStubs(List.of(only));
+      assertEquals("only", body(intercept(interceptor, "http://api.example.com/only", real)));
+      engine.removeStub(only.getId());
+      assertEquals("real", body(intercept(interceptor, "http://api.example.com/only", real)));
+      awaitWarmups(warmups, 2);
+    }
+  }
+
+  /** A stub matching requests to api.example.com only, so other origins are not mocked. */
+  private static StubMapping onlyStub() {
+    return get(urlEqualTo("/only"))
+        .withHost(equalTo("api.example.com"))
+        .willReturn(ok("only"))
+        .build();
+  }
+
+  private static void awaitWarmups(AtomicInteger warmups, int expected) throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (warmups.get() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    // give a wrongly scheduled extra warm-up the time to show up
+    Thread.sleep(50);
+    assertEquals(expected, warmups.get());
+  }
+}
@@ -0,0 +1,319 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.common.Json;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.direct.DirectCallHttpServerFactory;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
+import java.util.Set;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ResponseBodyStoreTest {
+
+  private static WireMockServer server() {
+    WireMockServer wm =
+        new WireMockServer(
+            new WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test")
+                .httpServerFactory(new DirectCallHttpServerFactory()));
+    wm.start();
+    return wm;
+  }
+
+  private static StubMapping stubFor(WireMockServer wm, String url) {
+    return wm.getStubMappings().stream()
+        .filter(s -> url.equals(s.getRequest().getUrl()))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  /** Starts a server with a {@code bodyFileName} stub at {@code /file/<i>} for each body. */
+  private static WireMockServer fileServer(Path root, String... bodies) throws IOException {
+    Files.createDirectories(root.resolve("mappings"));
+    Files.createDirectories(root.resolve("__files"));
+    for (int i = 0; i < bodies.length; i++) {
+      Files.writeString(root.resolve("__files/body-" + i + ".txt"), bodies[i]);
+      Files.writeString(
+          root.resolve("mappings/stub-" + i + ".json"),
+          "{\"request\":{\"url\":\"/file/"
+              + i
+              + "\"},\"response\":{\"bodyFileName\":\"body-"
+              + i
+              + ".txt\"}}");
+    }
+    WireMockServer wm =
+        new WireMockServer(
+            new WireMockConfiguration()
+                .usingFilesUnderDirectory(root.toString())
+                .httpServerFactory(new DirectCallHttpServerFactory()));
+    wm.start();
+    return wm;
+  }
+
+  private static String read(ResponseBodyStore.StoredBody body) throws IOException {
+    return new String(body.open().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void nothingStoredWithoutOptions() {
+    WireMockServer wm = server();
+    ResponseBodyStore store = new ResponseBodyStore(new WireMockProperties());
+    store.load(wm);
+
+    assertEquals(0, store.size());
+    assertNull(store.get(stubFor(wm, "/large/file").getId()));
+  }
+
+  @Test
+  void largeFileBodiesMovedOffHeap() throws Exception {
+    WireMockServer wm = server();
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    StubMapping inline = stubFor(wm, "/large/inline");
+    StubMapping file = stubFor(wm, "/large/file");
+
+    assertEquals(1, store.size());
+    assertEquals(store.storedBytes(), store.offHeapBytes());
+    assertTrue(store.get(file.getId()).content().isDirect());
+    assertTrue(read(store.get(file.getId())).contains("file body"));
+    // every caller gets an independent view of the buffer
+    assertEquals(read(store.get(file.getId())), read(store.get(file.getId())));
+
+    // inline bodies stay in the stub only, a copy off the heap would not take them off it
+    assertNull(store.get(inline.getId()));
+    assertEquals(
+        "inline body that is longer than the off-heap threshold",
+        new String(inline.getResponse().getByteBody(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void identicalFileBodiesShareOneCopy(@TempDir Path root) throws Exception {
+    String error = "{\"error\":\"SERVICE_UNAVAILABLE\"}";
+    WireMockServer wm = fileServer(root, error, error, "ok", "other");
+    WireMockProperties props = new WireMockProperties();
+    props.setBodyDeduplicationEnabled(true);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    ResponseBodyStore.StoredBody a = store.get(stubFor(wm, "/file/0").getId());
+    ResponseBodyStore.StoredBody b = store.get(stubFor(wm, "/file/1").getId());
+    assertSame(a, b);
+    assertEquals(error, read(a));
+    assertFalse(a.content().isDirect());
+
+    // small bodies are deduplicated too, and shared bodies are counted once
+    assertEquals(4, store.size());
+    assertEquals(error.length() + "ok".length() + "other".length(), store.storedBytes());
+    assertEquals(error.length(), store.savedBytes());
+    assertEquals(0, store.offHeapBytes());
+
+    // a shared body is released once the last stub returning it is removed
+    assertEquals(3, store.sharedBodies());
+    store.afterStubRemoved(stubFor(wm, "/file/0"));
+    assertEquals(3, store.sharedBodies());
+    assertSame(a, store.get(stubFor(wm, "/file/1").getId()));
+    store.afterStubEdited(stubFor(wm, "/file/1"), stubFor(wm, "/file/1"));
+    assertEquals(2, store.sharedBodies());
+  }
+
+  /** Sums the inline body arrays held by the stubs, counting an array shared by stubs once. */
+  private static long retainedInlineBytes(WireMockServer wm) {
+    Set<byte[]> arrays = Collections.newSetFromMap(new IdentityHashMap<>());
+    wm.getStubMappings().stream()
+        .map(s -> s.getResponse().getByteBody())
+        .filter(Objects::nonNull)
+        .forEach(arrays::add);
+    return arrays.stream().mapToLong(a -> a.length).sum();
+  }
+
+  @Test
+  void identicalInlineBodiesShareOneCopy() {
+    WireMockServer wm = server();
+    long before = retainedInlineBytes(wm);
+    WireMockProperties props = new WireMockProperties();
+    props.setBodyDeduplicationEnabled(true);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    StubMapping a = stubFor(wm, "/error/a");
+    StubMapping b = stubFor(wm, "/error/b");
+    assertSame(a.getResponse().getReponseBody(), b.getResponse().getReponseBody());
+    // both stubs still have their body, and keep it in the form they were defined with
+    assertTrue(Json.write(b).contains("SERVICE_UNAVAILABLE"));
+    assertNotNull(b.getResponse().getJsonBody());
+    // inline bodies are shared in the stubs, not copied into the store
+    assertNull(store.get(a.getId()));
+
+    long saved = before - retainedInlineBytes(wm);
+    assertEquals(a.getResponse().getByteBody().length, saved);
+    assertEquals(saved, store.sharedInlineBytes());
+
+    // the shared body no longer counts as saved once only one stub returns it
+    store.afterStubRemoved(a);
+    assertEquals(0, store.sharedInlineBytes());
+  }
+
+  @Test
+  void largeFileBodiesStoredCompressed(@TempDir Path root) throws Exception {
+    String repetitive = "{\"items\":[" + "{\"id\":1,\"name\":\"item\"},".repeat(200) + "{}]}";
+    WireMockServer wm = fileServer(root, "a body longer than the threshold", repetitive);
+    WireMockProperties props = new WireMockProperties();
+    props.setCompressedBodyThreshold(16);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    // short bodies do not shrink when gzipped and are kept as they are
+    ResponseBodyStore.StoredBody plain = store.get(stubFor(wm, "/file/0").getId());
+    assertFalse(plain.gzipped());
+    assertEquals("a body longer than the threshold", read(plain));
+
+    ResponseBodyStore.StoredBody compressed = store.get(stubFor(wm, "/file/1").getId());
+    assertTrue(compressed.gzipped());
+    assertTrue(compressed.storedSize() < compressed.length());
+    assertEquals(repetitive.length(), compressed.length());
+    assertEquals(repetitive, read(compressed));
+
+    // inline bodies are not compressed, the stub keeps them uncompressed anyway
+    WireMockServer inline = server();
+    ResponseBodyStore inlineStore = new ResponseBodyStore(props);
+    inlineStore.load(inline);
+    assertNull(inlineStore.get(stubFor(inline, "/large/inline").getId()));
+  }
+
+  @Test
+  void precompressedSidecarsSelectedByAcceptEncoding(@TempDir Path root) throws Exception {
+    Files.createDirectories(root.resolve("mappings"));
+    Files.createDirectories(root.resolve("__files"));
+    Files.writeString(
+        root.resolve("mappings/body.json"),
+        "{\"request\":{\"url\":\"/body\"},\"response\":{\"bodyFileName\":\"body.json\"}}");
+    Files.writeString(
+        root.resolve("mappings/plain.json"),
+        "{\"request\":{\"url\":\"/plain\"},\"response\":{\"body\":\"plain\"}}");
+    Files.writeString(root.resolve("__files/body.json"), "{\"plain\":true}");
+    Files.writeString(root.resolve("__files/body.json.gz"), "gzip-bytes");
+    Files.writeString(root.resolve("__files/body.json.br"), "br-bytes");
+
+    WireMockServer wm =
+        new WireMockServer(
+            new WireMockConfiguration()
+                .usingFilesUnderDirectory(root.toString())
+                .httpServerFactory(new DirectCallHttpServerFactory()));
+    wm.start();
+    WireMockProperties props = new WireMockProperties();
+    props.setPrecompressedBodiesEnabled(true);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    java.util.UUID body = stubFor(wm, "/body").getId();
+    assertEquals("br", store.encoded(body, "gzip, deflate, br").encoding());
+    assertEquals("br-bytes", read(store.encoded(body, "gzip, deflate, br").body()));
+    assertEquals("gzip", store.encoded(body, "gzip;q=0.8, br;q=0").encoding());
+    assertEquals("gzip-bytes", read(store.encoded(body, "gzip").body()));
+    assertNull(store.encoded(body, "identity"));
+    assertNull(store.encoded(body, null));
+    assertNull(store.encoded(stubFor(wm, "/plain").getId(), "gzip"));
+    // raw file bodies are left to WireMock unless another storage option applies
+    assertNull(store.get(body));
+
+    store.afterStubRemoved(stubFor(wm, "/body"));
+    assertNull(store.encoded(body, "gzip"));
+  }
+
+  @Test
+  void compressedBodiesServedAsGzip(@TempDir Path root) throws Exception {
+    String repetitive = "{\"items\":[" + "{\"id\":1,\"name\":\"item\"},".repeat(200) + "{}]}";
+    WireMockServer wm = fileServer(root, repetitive);
+    WireMockProperties props = new WireMockProperties();
+    props.setCompressedBodyThreshold(1024);
+    ResponseBodyStore plain = new ResponseBodyStore(props);
+    plain.load(wm);
+    java.util.UUID id = stubFor(wm, "/file/0").getId();
+    assertTrue(plain.get(id).gzipped());
+    assertNull(plain.encoded(id, "gzip"), "only encoded when pre-compressed bodies are enabled");
+
+    props.setPrecompressedBodiesEnabled(true);
+    props.setGzipDisabled(true);
+    ResponseBodyStore gzipDisabled = new ResponseBodyStore(props);
+    gzipDisabled.load(wm);
+    assertNull(gzipDisabled.encoded(id, "gzip"));
+
+    props.setGzipDisabled(false);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+    ResponseBodyStore.EncodedBody encoded = store.encoded(id, "gzip");
+    assertEquals("gzip", encoded.encoding());
+    assertEquals(store.get(id).storedSize(), encoded.body().length());
+    assertEquals(
+        repetitive,
+        new String(
+            new java.util.zip.GZIPInputStream(encoded.body().open()).readAllBytes(),
+            StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void acceptEncodingParsing() {
+    assertTrue(ResponseBodyStore.accepts("gzip", "gzip"));
+    assertTrue(ResponseBodyStore.accepts("deflate, GZIP", "gzip"));
+    assertTrue(ResponseBodyStore.accepts("*", "br"));
+    assertTrue(ResponseBodyStore.accepts("br; q=0.5", "br"));
+    assertFalse(ResponseBodyStore.accepts("br;q=0", "br"));
+    assertFalse(ResponseBodyStore.accepts("br; q=0.0", "br"));
+    assertFalse(ResponseBodyStore.accepts("deflate", "gzip"));
+    assertTrue(ResponseBodyStore.accepts("*;q=0, gzip", "gzip"));
+    assertFalse(ResponseBodyStore.accepts("gzip;q=0, *", "gzip"));
+    assertFalse(ResponseBodyStore.accepts("*;q=0", "gzip"));
+  }
+
+  @Test
+  void entriesDroppedWhenStubsChange() {
+    WireMockServer wm = server();
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    ResponseBodyStore store = new ResponseBodyStore(props);
+    store.load(wm);
+
+    StubMapping file = stubFor(wm, "/large/file");
+
+    store.afterStubRemoved(file);
+    assertNull(store.get(file.getId()));
+
+    store.load(wm);
+    assertNotNull(store.get(file.getId()));
+    store.afterStubEdited(file, file);
+    assertNull(store.get(file.getId()));
+
+    store.load(wm);
+    store.afterStubsReset();
+    assertEquals(0, store.size());
+  }
+}
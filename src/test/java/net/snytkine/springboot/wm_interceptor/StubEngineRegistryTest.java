@@ -0,0 +1,101 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+
+class StubEngineRegistryTest {
+
+  private static WMInterceptor sharedInterceptor(
+      WireMockConfiguration config, Integer offHeapThreshold) {
+    WireMockProperties props = new WireMockProperties();
+    props.setSharedEngineEnabled(true);
+    props.setOffHeapBodyThreshold(offHeapThreshold);
+    return new WMInterceptor(config, props);
+  }
+
+  private static WireMockConfiguration testMappings() {
+    return new WireMockConfiguration().usingFilesUnderClasspath("wm-test");
+  }
+
+  @Test
+  void interceptorsWithSameSettingsShareAnEngineUntilTheLastCloses() {
+    int before = StubEngineRegistry.size();
+    WMInterceptor first = sharedInterceptor(testMappings(), null);
+    WMInterceptor second = sharedInterceptor(testMappings(), null);
+    WMInterceptor otherRoot = sharedInterceptor(new WireMockConfiguration(), null);
+    WMInterceptor otherProperties = sharedInterceptor(testMappings(), 1024);
+
+    assertSame(first.getEngine(), second.getEngine());
+    assertNotSame(first.getEngine(), otherRoot.getEngine());
+    assertNotSame(first.getEngine(), otherProperties.getEngine());
+    assertEquals(before + 3, StubEngineRegistry.size());
+
+    first.close();
+    first.close();
+    assertEquals(before + 3, StubEngineRegistry.size());
+    assertEquals(5, second.getEngine().getStubCount());
+
+    second.close();
+    otherRoot.close();
+    otherProperties.close();
+    assertEquals(before, StubEngineRegistry.size());
+  }
+
+  @Test
+  void keyIgnoresExtensionsRegisteredByEngines() {
+    WireMockProperties props = new WireMockProperties();
+    WireMockConfiguration config = testMappings();
+    String key = StubEngineRegistry.key(config, props);
+
+    new StubEngine(config, props).stop();
+
+    assertEquals(key, StubEngineRegistry.key(config, props));
+    assertEquals(key, StubEngineRegistry.key(testMappings(), props));
+    assertNotEquals(key, StubEngineRegistry.key(testMappings().containerThreads(9), props));
+  }
+
+  @Test
+  void keyCoversSettingsThatChangeEngineBehaviour() {
+    WireMockProperties props = new WireMockProperties();
+    String key = StubEngineRegistry.key(testMappings(), props);
+
+    assertNotEquals(
+        key, StubEngineRegistry.key(testMappings().asynchronousResponseEnabled(true), props));
+    assertNotEquals(
+        key, StubEngineRegistry.key(testMappings().stubRequestLoggingDisabled(true), props));
+    assertNotEquals(
+        key, StubEngineRegistry.key(testMappings().withMaxTemplateCacheEntries(10L), props));
+    WireMockProperties proxying = new WireMockProperties();
+    proxying.setProxyPassThrough(!props.isProxyPassThrough());
+    assertNotEquals(key, StubEngineRegistry.key(testMappings(), proxying));
+  }
+
+  @Test
+  void failedConstructionReleasesTheEngine() {
+    int before = StubEngineRegistry.size();
+    WireMockProperties props = new WireMockProperties();
+    props.setSharedEngineEnabled(true);
+    props.setMatchCacheSize(0);
+
+    assertThrows(IllegalArgumentException.class, () -> new WMInterceptor(testMappings(), props));
+    assertEquals(before, StubEngineRegistry.size());
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.stubbing.StubMapping;
+import java.util.List;
+import java.util.UUID;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+
+class StubEngineTest {
+
+  private static StubEngine engine(WireMockProperties props) {
+    return new StubEngine(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+  }
+
+  private static StubMapping stub(String url, String body) {
+    return get(urlEqualTo(url)).willReturn(aResponse().withBody(body)).build();
+  }
+
+  @Test
+  void loadsStubsFromConfiguration() {
+    StubEngine engine = engine(new WireMockProperties());
+
+    assertEquals(5, engine.getStubCount());
+    assertEquals(5, engine.getStubMappings().size());
+    StubMapping first = engine.getStubMappings().get(0);
+    assertSame(first, engine.getStub(first.getId()));
+    assertNull(engine.getStub(UUID.randomUUID()));
+  }
+
+  @Test
+  void importIsASingleChangeOfTheStubSet() {
+    StubEngine engine = engine(new WireMockProperties());
+    long before = engine.getStubSetVersion();
+
+    engine.importStubs(List.of(stub("/imported/1", "one"), stub("/imported/2", "two")));
+
+    assertEquals(7, engine.getStubCount());
+    assertEquals(before + 1, engine.getStubSetVersion());
+  }
+
+  @Test
+  void importReplacesStubWithSameId() {
+    StubEngine engine = engine(new WireMockProperties());
+    StubMapping original = stub("/imported", "one");
+    engine.importStubs(List.of(original));
+
+    StubMapping replacement = stub("/imported", "two");
+    replacement.setId(original.getId());
+    engine.importStubs(List.of(replacement));
+
+    assertEquals(6, engine.getStubCount());
+    assertEquals("two", engine.getStub(original.getId()).getResponse().getBody());
+  }
+
+  @Test
+  void removeStub() {
+    StubEngine engine = engine(new WireMockProperties());
+    StubMapping imported = stub("/imported", "one");
+    engine.importStubs(List.of(imported));
+    long before = engine.getStubSetVersion();
+
+    assertTrue(engine.removeStub(imported.getId()));
+    assertFalse(engine.removeStub(imported.getId()));
+    assertNull(engine.getStub(imported.getId()));
+    assertTrue(engine.getStubSetVersion() > before);
+  }
+
+  @Test
+  void importedBodiesAreDeduplicatedAgainstLoadedOnes() {
+    WireMockProperties props = new WireMockProperties();
+    props.setBodyDeduplicationEnabled(true);
+    StubEngine engine = engine(props);
+    StubMapping loaded =
+        engine.getStubMappings().stream()
+            .filter(s -> "/small".equals(s.getRequest().getUrl()))
+            .findFirst()
+            .orElseThrow();
+    StubMapping imported = stub("/imported", "ok");
+
+    engine.importStubs(List.of(imported));
+
+    assertSame(
+        loaded.getResponse().getReponseBody(),
+        engine.getStub(imported.getId()).getResponse().getReponseBody());
+  }
+
+  @Test
+  void footprint() {
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    StubEngine engine = engine(props);
+
+    StubEngine.Footprint footprint = engine.getFootprint();
+    assertEquals(5, footprint.stubCount());
+    assertTrue(footprint.estimatedStubBytes() > 0);
+    assertTrue(footprint.storedBodyBytes() > 0);
+    assertEquals(footprint.storedBodyBytes(), footprint.offHeapBodyBytes());
+    assertEquals(0, footprint.savedBodyBytes());
+    assertEquals(0, footprint.journalEntries());
+    assertEquals(0, footprint.compiledTemplates());
+    assertEquals(0, footprint.scenarioCount());
+    assertEquals(
+        footprint.estimatedStubBytes()
+            + footprint.storedBodyBytes()
+            - footprint.offHeapBodyBytes()
+            + footprint.estimatedJournalBytes()
+            + footprint.estimatedTemplateBytes()
+            + footprint.estimatedScenarioBytes(),
+        footprint.estimatedHeapBytes());
+  }
+}
@@ -0,0 +1,245 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathTemplate;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class TemplateRendererTest {
+
+  private static WMInterceptor interceptor(boolean fastPath) {
+    WireMockProperties props = new WireMockProperties();
+    props.setTemplateFastPathEnabled(fastPath);
+    WMInterceptor interceptor = new WMInterceptor(new WireMockConfiguration(), props);
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathEqualTo("/hello"))
+                    .willReturn(
+                        ok("Hello {{request.query.name}}, {{request.method}} {{request.path}}")
+                            .withHeader("X-Host", "{{request.host}}")
+                            .withHeader("X-Static", "plain")
+                            .withTransformers("response-template"))
+                    .build()));
+    return interceptor;
+  }
+
+  private static ClientHttpResponse hello(WMInterceptor interceptor) throws Exception {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://example.com/hello?name=J%C3%BCrgen"));
+    return interceptor.intercept(
+        request,
+        new byte[0],
+        (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+  }
+
+  private static String body(WMInterceptor interceptor, String url) throws IOException {
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://example.com" + url)),
+            new byte[0],
+            (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void fastPathRendersLikeWireMock() throws Exception {
+    try (WMInterceptor fast = interceptor(true);
+        WMInterceptor stock = interceptor(false)) {
+      assertNotNull(fast.getEngine().getTemplateRenderer());
+      assertNull(stock.getEngine().getTemplateRenderer());
+
+      ClientHttpResponse fastResponse = hello(fast);
+      ClientHttpResponse stockResponse = hello(stock);
+      assertEquals(1, fast.getEngine().getTemplateRenderer().compiledCount());
+
+      assertEquals(
+          "Hello Jürgen, GET /hello",
+          new String(fastResponse.getBody().readAllBytes(), StandardCharsets.UTF_8));
+      assertEquals(
+          new String(stockResponse.getBody().readAllBytes(), StandardCharsets.UTF_8),
+          "Hello Jürgen, GET /hello");
+      assertEquals("example.com", fastResponse.getHeaders().getFirst("X-Host"));
+      assertEquals(
+          stockResponse.getHeaders().getFirst("X-Host"),
+          fastResponse.getHeaders().getFirst("X-Host"));
+      assertEquals("plain", fastResponse.getHeaders().getFirst("X-Static"));
+    }
+  }
+
+  @Test
+  void fastPathRendersQueryQuotesHeadersAndPathLikeWireMock() throws Exception {
+    String[] rendered = new String[2];
+    for (int i = 0; i < 2; i++) {
+      WireMockProperties props = new WireMockProperties();
+      props.setTemplateFastPathEnabled(i == 0);
+      try (WMInterceptor interceptor = new WMInterceptor(new WireMockConfiguration(), props)) {
+        interceptor
+            .getEngine()
+            .importStubs(
+                List.of(
+                    get(urlPathTemplate("/users/{id}/orders"))
+                        .willReturn(
+                            ok("{{request.query.q}}|{{request.headers.x-trace}}"
+                                    + "|{{request.headers.X-TRACE}}|{{request.path}}"
+                                    + "|{{request.path.[0]}}|{{request.path.id}}")
+                                .withTransformers("response-template"))
+                        .build()));
+        MockClientHttpRequest request =
+            new MockClientHttpRequest(
+                HttpMethod.GET,
+                URI.create("http://example.com/users/42/orders?q=J%C3%BCrgen+O'Brien"));
+        request.getHeaders().add("X-Trace", "\"quoted\" <b>");
+        ClientHttpResponse response =
+            interceptor.intercept(
+                request,
+                new byte[0],
+                (r, b) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+        rendered[i] = new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+      }
+    }
+
+    assertEquals(
+        "Jürgen O'Brien|\"quoted\" <b>|\"quoted\" <b>|/users/42/orders|users|42", rendered[0]);
+    assertEquals(rendered[1], rendered[0]);
+  }
+
+  @Test
+  void stubsTheFastPathCannotRenderAreLeftToWireMock(@TempDir Path root) throws Exception {
+    Files.createDirectories(root.resolve("__files"));
+    Files.writeString(root.resolve("__files/greeting.txt"), "Hi {{request.method}}");
+    Files.writeString(root.resolve("__files/raw.txt"), "Raw {{request.method}}");
+    String[][] rendered = new String[2][];
+    for (int i = 0; i < 2; i++) {
+      WireMockProperties props = new WireMockProperties();
+      props.setTemplateFastPathEnabled(i == 0);
+      try (WMInterceptor interceptor =
+          new WMInterceptor(
+              new WireMockConfiguration().usingFilesUnderDirectory(root.toString()), props)) {
+        interceptor
+            .getEngine()
+            .importStubs(
+                List.of(
+                    get(urlPathEqualTo("/fast"))
+                        .willReturn(ok("{{request.method}}").withTransformers("response-template"))
+                        .build(),
+                    get(urlPathEqualTo("/client"))
+                        .willReturn(
+                            ok("{{request.clientIp}}").withTransformers("response-template"))
+                        .build(),
+                    get(urlPathEqualTo("/named"))
+                        .willReturn(
+                            aResponse()
+                                .withBodyFile("{{request.query.name}}.txt")
+                                .withTransformers("response-template"))
+                        .build(),
+                    get(urlPathEqualTo("/raw"))
+                        .willReturn(
+                            aResponse()
+                                .withBodyFile("raw.txt")
+                                .withTransformers("response-template")
+                                .withTransformerParameter("disableBodyFileTemplating", true))
+                        .build(),
+                    get(urlPathEqualTo("/binary"))
+                        .willReturn(
+                            aResponse()
+                                .withBody(new byte[] {'{', '{', 'x', '}', '}', (byte) 0xff})
+                                .withTransformers("response-template"))
+                        .build(),
+                    get(urlPathEqualTo("/broken"))
+                        .willReturn(ok("{{#if}}").withTransformers("response-template"))
+                        .build()));
+        TemplateRenderer renderer = interceptor.getEngine().getTemplateRenderer();
+        if (renderer != null) {
+          // /fast and /raw and /binary (headers only) compiled, /client, /named and /broken not
+          assertEquals(3, renderer.compiledCount());
+          assertEquals(3, renderer.wireMockCount());
+        }
+        rendered[i] =
+            new String[] {
+              body(interceptor, "/fast"),
+              body(interceptor, "/client"),
+              body(interceptor, "/named?name=greeting"),
+              body(interceptor, "/raw"),
+              body(interceptor, "/binary").substring(0, 5)
+            };
+      }
+    }
+
+    assertArrayEquals(
+        new String[] {"GET", "0.0.0.0", "Hi GET", "Raw {{request.method}}", "{{x}}"}, rendered[0]);
+    assertArrayEquals(rendered[1], rendered[0]);
+  }
+
+  @Test
+  void removedStubsDropTheirTemplates() throws Exception {
+    try (WMInterceptor fast = interceptor(true)) {
+      TemplateRenderer renderer = fast.getEngine().getTemplateRenderer();
+      hello(fast);
+      assertEquals(1, renderer.compiledCount());
+      fast.getEngine().removeStub(fast.getEngine().getStubMappings().get(0).getId());
+
+      assertEquals(0, renderer.compiledCount());
+    }
+  }
+
+  @Test
+  void utf8BufferEncodesLikeString() {
+    String text = "plain ascii, é, €, 𝄞 and a lone \uD800 surrogate";
+    TemplateRenderer.Utf8Buffer buffer = new TemplateRenderer.Utf8Buffer();
+    char[] chars = text.toCharArray();
+    int split = text.indexOf('𝄞') + 1; // between the two halves of the pair
+    buffer.write(chars, 0, split);
+    buffer.write(text, split, text.length() - split);
+
+    assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), buffer.toByteArray());
+  }
+
+  @Test
+  void bufferPoolReusesBuffers() {
+    TemplateRenderer.BufferPool pool = new TemplateRenderer.BufferPool(1);
+    TemplateRenderer.Utf8Buffer buffer = pool.acquire();
+    buffer.write("leftover", 0, 8);
+    pool.release(buffer);
+
+    TemplateRenderer.Utf8Buffer reused = pool.acquire();
+    assertSame(buffer, reused);
+    assertEquals(0, reused.toByteArray().length);
+    assertNotSame(reused, pool.acquire());
+  }
+}
@@ -20,6 +20,8 @@ import static org.junit.jupiter.api.Assertions.*;
 import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
 import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
 
 class WMInterceptorFactoryTest {
 
@@ -30,7 +32,7 @@ class WMInterceptorFactoryTest {
     WireMockConfiguration cfg = new WireMockConfiguration();
     WireMockProperties props = new WireMockProperties();
 
-    WMInterceptor interceptor = factory.wmInterceptor(cfg, props);
+    WMInterceptor interceptor = factory.wmInterceptor(cfg, props, warmers());
     assertNotNull(interceptor);
   }
 
@@ -42,7 +44,7 @@ class WMInterceptorFactoryTest {
     WireMockProperties props = new WireMockProperties();
     props.setMockResponseHeader("X-FACTORY");
 
-    WMInterceptor interceptor = factory.wmInterceptor(cfg, props);
+    WMInterceptor interceptor = factory.wmInterceptor(cfg, props, warmers());
     assertNotNull(interceptor);
 
     // verify the private 'properties' field references the same object
@@ -57,4 +59,26 @@ class WMInterceptorFactoryTest {
     Object server = serverField.get(interceptor);
     assertNotNull(server);
   }
+
+  @Test
+  void attachesPassThroughWarmer() throws Exception {
+    WMInterceptorFactory factory = new WMInterceptorFactory();
+    PassThroughWarmer warmer = origin -> {};
+
+    WMInterceptor interceptor =
+        factory.wmInterceptor(
+            new WireMockConfiguration(), new WireMockProperties(), warmers(warmer));
+
+    var field = WMInterceptor.class.getDeclaredField("warmer");
+    field.setAccessible(true);
+    assertSame(warmer, field.get(interceptor));
+  }
+
+  private static ObjectProvider<PassThroughWarmer> warmers(PassThroughWarmer... warmers) {
+    StaticListableBeanFactory beans = new StaticListableBeanFactory();
+    for (int i = 0; i < warmers.length; i++) {
+      beans.addBean("warmer" + i, warmers[i]);
+    }
+    return beans.getBeanProvider(PassThroughWarmer.class);
+  }
 }
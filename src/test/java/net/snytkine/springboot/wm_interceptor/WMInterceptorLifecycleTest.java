@@ -0,0 +1,93 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class WMInterceptorLifecycleTest {
+
+  private static String intercept(WMInterceptor interceptor, String uri) throws Exception {
+    ClientHttpResponse response =
+        interceptor.intercept(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create(uri)),
+            new byte[0],
+            (request, body) -> new MockClientHttpResponse("real".getBytes(), HttpStatus.OK));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+
+  @Test
+  void stopWaitsForDelayedResponsesAndThenPassesThrough() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    WireMockProperties.LatencyProfile slow = new WireMockProperties.LatencyProfile();
+    slow.getPercentiles().put("50", Duration.ofMillis(300));
+    props.getLatencyProfiles().put("slow", slow);
+    props.getHostLatencyProfiles().put("slow.example.com", "slow");
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    assertTrue(interceptor.isRunning());
+    assertEquals(WMInterceptor.PHASE, interceptor.getPhase());
+
+    CompletableFuture<String> delayed =
+        CompletableFuture.supplyAsync(
+            () -> {
+              try {
+                return intercept(interceptor, "http://slow.example.com/small");
+              } catch (Exception e) {
+                throw new IllegalStateException(e);
+              }
+            });
+    Thread.sleep(100);
+
+    interceptor.stop();
+
+    assertTrue(delayed.isDone(), "stop should wait for the delayed response");
+    assertEquals("ok", delayed.get(1, TimeUnit.SECONDS));
+    assertFalse(interceptor.isRunning());
+    assertEquals("real", intercept(interceptor, "http://localhost/small"));
+
+    interceptor.close();
+  }
+
+  @Test
+  void closeReleasesStoredBodies() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    assertTrue(interceptor.getEngine().getFootprint().offHeapBodyBytes() > 0);
+
+    interceptor.destroy();
+    interceptor.close();
+
+    assertEquals(0, interceptor.getEngine().getFootprint().storedBodyBytes());
+    assertFalse(interceptor.isRunning());
+    assertThrows(IllegalStateException.class, interceptor::start);
+  }
+}
@@ -19,9 +19,11 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import com.github.tomakehurst.wiremock.direct.DirectCallHttpServer;
+import com.github.tomakehurst.wiremock.extension.ResponseTransformerV2;
 import com.github.tomakehurst.wiremock.http.HttpHeader;
 import com.github.tomakehurst.wiremock.http.HttpHeaders;
 import com.github.tomakehurst.wiremock.http.Response;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
@@ -93,6 +95,117 @@ class WMInterceptorTest {
     assertEquals("mock-middleware", resp.getHeaders().getFirst("X-MOCK"));
   }
 
+  @Test
+  void interceptStreamsOffHeapBodyOfMatchedStub() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test"),
+            props);
+
+    ClientHttpRequestExecution exec =
+        (request, body) -> {
+          fail("Execution should not be called when mock response is configured");
+          return null;
+        };
+
+    ClientHttpResponse large =
+        interceptor.intercept(simpleRequest("http://localhost/large/file"), new byte[0], exec);
+    assertEquals(200, large.getStatusCode().value());
+    assertEquals("application/json", large.getHeaders().getFirst("Content-Type"));
+    assertEquals(
+        "{\"message\":\"file body that is longer than the off-heap threshold\"}",
+        new String(large.getBody().readAllBytes(), StandardCharsets.UTF_8).trim());
+
+    // inline bodies are not stored and come from WireMock's response
+    ClientHttpResponse inline =
+        interceptor.intercept(simpleRequest("http://localhost/large/inline"), new byte[0], exec);
+    assertEquals(
+        "inline body that is longer than the off-heap threshold",
+        new String(inline.getBody().readAllBytes(), StandardCharsets.UTF_8));
+
+    ClientHttpResponse small =
+        interceptor.intercept(simpleRequest("http://localhost/small"), new byte[0], exec);
+    assertEquals("ok", new String(small.getBody().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void interceptReturnsPrecompressedBodyWhenAccepted() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setPrecompressedBodiesEnabled(true);
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test"),
+            props);
+    ClientHttpRequestExecution exec =
+        (request, body) -> {
+          fail("Execution should not be called when mock response is configured");
+          return null;
+        };
+
+    org.springframework.mock.http.client.MockClientHttpRequest gzipRequest =
+        new org.springframework.mock.http.client.MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://localhost/large/file"));
+    gzipRequest.getHeaders().set("Accept-Encoding", "gzip, deflate");
+    ClientHttpResponse gzipped = interceptor.intercept(gzipRequest, new byte[0], exec);
+    assertEquals("gzip", gzipped.getHeaders().getFirst("Content-Encoding"));
+    String inflated =
+        new String(
+            new java.util.zip.GZIPInputStream(gzipped.getBody()).readAllBytes(),
+            StandardCharsets.UTF_8);
+    assertTrue(inflated.contains("file body"));
+
+    ClientHttpResponse plain =
+        interceptor.intercept(simpleRequest("http://localhost/large/file"), new byte[0], exec);
+    assertNull(plain.getHeaders().getFirst("Content-Encoding"));
+    assertTrue(
+        new String(plain.getBody().readAllBytes(), StandardCharsets.UTF_8).contains("file body"));
+  }
+
+  @Test
+  void globalTransformerBodiesAreNotReplacedByStoredBodies() throws Exception {
+    ResponseTransformerV2 transformer =
+        new ResponseTransformerV2() {
+          @Override
+          public Response transform(Response response, ServeEvent serveEvent) {
+            return Response.Builder.like(response).but().body("transformed").build();
+          }
+
+          @Override
+          public String getName() {
+            return "replacing-transformer";
+          }
+        };
+    WireMockProperties props = new WireMockProperties();
+    props.setOffHeapBodyThreshold(16);
+    props.setPrecompressedBodiesEnabled(true);
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test")
+                .extensions(transformer),
+            props);
+    ClientHttpRequestExecution exec =
+        (request, body) -> {
+          fail("Execution should not be called when mock response is configured");
+          return null;
+        };
+
+    org.springframework.mock.http.client.MockClientHttpRequest request =
+        new org.springframework.mock.http.client.MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://localhost/large/file"));
+    request.getHeaders().set("Accept-Encoding", "gzip");
+    ClientHttpResponse response = interceptor.intercept(request, new byte[0], exec);
+
+    assertEquals(0, interceptor.getEngine().getBodyStore().size());
+    assertNull(response.getHeaders().getFirst("Content-Encoding"));
+    assertEquals(
+        "transformed", new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+  }
+
   @Test
   void springHttpRequestAdapterBehaviors() throws Exception {
     HttpRequest req =
@@ -442,4 +555,139 @@ class WMInterceptorTest {
     String body = new String(resp.getBody().readAllBytes(), StandardCharsets.UTF_8);
     assertEquals("real", body);
   }
+
+  @Test
+  void interceptBatchReturnsMocksAndPassThroughMarkers() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    props.setMockResponseHeader("X-MOCK");
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test"),
+            props);
+
+    for (boolean parallel : new boolean[] {false, true}) {
+      java.util.List<WMInterceptor.BatchRequest> batch = new java.util.ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String path = i % 2 == 0 ? "/small" : "/nothing/" + i;
+        batch.add(
+            new WMInterceptor.BatchRequest(
+                simpleRequest("http://localhost" + path), new byte[0]));
+      }
+
+      java.util.List<WMInterceptor.BatchResult> results =
+          interceptor.interceptBatch(batch, parallel);
+
+      assertEquals(batch.size(), results.size());
+      for (int i = 0; i < results.size(); i++) {
+        WMInterceptor.BatchResult result = results.get(i);
+        assertSame(batch.get(i), result.request());
+        if (i % 2 == 0) {
+          assertFalse(result.isPassThrough());
+          assertEquals(
+              "ok",
+              new String(result.response().getBody().readAllBytes(), StandardCharsets.UTF_8));
+          assertEquals("mock-middleware", result.response().getHeaders().getFirst("X-MOCK"));
+        } else {
+          assertTrue(result.isPassThrough());
+        }
+      }
+    }
+    assertEquals(100, interceptor.getStats().getMocked());
+    assertEquals(100, interceptor.getStats().getUnmatched());
+  }
+
+  @Test
+  void parallelBatchDelaysResponsesWithoutHoldingUpEachOther() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    WireMockProperties.LatencyProfile slow = new WireMockProperties.LatencyProfile();
+    slow.setPercentiles(java.util.Map.of("50", java.time.Duration.ofMillis(200)));
+    props.getLatencyProfiles().put("slow", slow);
+    props.getHostLatencyProfiles().put("localhost", "slow");
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test"),
+            props);
+    java.util.List<WMInterceptor.BatchRequest> batch = new java.util.ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      batch.add(
+          new WMInterceptor.BatchRequest(simpleRequest("http://localhost/small"), new byte[0]));
+    }
+
+    long start = System.nanoTime();
+    java.util.List<WMInterceptor.BatchResult> results = interceptor.interceptBatch(batch, true);
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+    assertTrue(results.stream().noneMatch(WMInterceptor.BatchResult::isPassThrough));
+    // one after the other, or a few at a time on a shared pool, would take many seconds
+    assertTrue(elapsedMillis < 5_000, "took " + elapsedMillis + " ms");
+  }
+
+  private static com.github.tomakehurst.wiremock.http.Request adapter(HttpRequest request)
+      throws Exception {
+    Class<?> adapterCls =
+        Class.forName(
+            "net.snytkine.springboot.wm_interceptor.WMInterceptor$SpringHttpRequestAdapter");
+    java.lang.reflect.Constructor<?> ctor =
+        adapterCls.getDeclaredConstructor(HttpRequest.class, byte[].class);
+    ctor.setAccessible(true);
+    return (com.github.tomakehurst.wiremock.http.Request) ctor.newInstance(request, new byte[0]);
+  }
+
+  @Test
+  void springHttpRequestAdapterParsesCookiesOnce() throws Exception {
+    org.springframework.mock.http.client.MockClientHttpRequest req =
+        new org.springframework.mock.http.client.MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://localhost/"));
+    req.getHeaders().add("cookie", "session=abc; theme = dark;flag");
+    req.getHeaders().add("cookie", "session=def");
+    com.github.tomakehurst.wiremock.http.Request adapter = adapter(req);
+
+    java.util.Map<String, com.github.tomakehurst.wiremock.http.Cookie> cookies =
+        adapter.getCookies();
+    assertEquals(
+        java.util.List.of("session", "theme", "flag"), java.util.List.copyOf(cookies.keySet()));
+    assertEquals(java.util.List.of("abc", "def"), cookies.get("session").values());
+    assertEquals(java.util.List.of("dark"), cookies.get("theme").values());
+    assertEquals(java.util.List.of(""), cookies.get("flag").values());
+    assertSame(cookies, adapter.getCookies());
+    assertThrows(UnsupportedOperationException.class, () -> cookies.remove("flag"));
+
+    com.github.tomakehurst.wiremock.http.Request noCookies =
+        adapter(simpleRequest("http://localhost/"));
+    assertSame(java.util.Collections.emptyMap(), noCookies.getCookies());
+  }
+
+  @Test
+  void interceptMatchesCookieStubs() throws Exception {
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new com.github.tomakehurst.wiremock.core.WireMockConfiguration(),
+            new WireMockProperties());
+    interceptor
+        .getEngine()
+        .importStubs(
+            java.util.List.of(
+                com.github.tomakehurst.wiremock.client.WireMock.get(
+                        com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo("/account"))
+                    .withCookie(
+                        "session", com.github.tomakehurst.wiremock.client.WireMock.equalTo("abc"))
+                    .willReturn(com.github.tomakehurst.wiremock.client.WireMock.ok("account"))
+                    .build()));
+
+    org.springframework.mock.http.client.MockClientHttpRequest req =
+        new org.springframework.mock.http.client.MockClientHttpRequest(
+            HttpMethod.GET, URI.create("http://localhost/account"));
+    req.getHeaders().add("Cookie", "theme=dark; session=abc");
+    ClientHttpResponse resp =
+        interceptor.intercept(
+            req,
+            new byte[0],
+            (request, body) -> {
+              fail("Execution should not be called when mock response is configured");
+              return null;
+            });
+    assertEquals("account", new String(resp.getBody().readAllBytes(), StandardCharsets.UTF_8));
+  }
 }
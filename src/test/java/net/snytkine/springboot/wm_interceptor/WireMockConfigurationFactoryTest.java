@@ -53,4 +53,40 @@ class WireMockConfigurationFactoryTest {
     WireMockConfiguration cfg = factory.wireMockConfiguration();
     assertNotNull(cfg);
   }
+
+  @Test
+  void registersFakerExtensionByDefault() {
+    WireMockConfiguration cfg =
+        new WireMockConfigurationFactory(new WireMockProperties()).wireMockConfiguration();
+
+    assertTrue(
+        cfg.getDeclaredExtensions()
+            .getClassNames()
+            .contains(WireMockConfigurationFactory.FAKER_EXTENSION));
+  }
+
+  @Test
+  void skipsFakerWhenDisabled() {
+    WireMockProperties properties = new WireMockProperties();
+    properties.getFaker().setEnabled(false);
+
+    WireMockConfiguration cfg =
+        new WireMockConfigurationFactory(properties).wireMockConfiguration();
+
+    assertTrue(cfg.getDeclaredExtensions().getClassNames().isEmpty());
+    assertFalse(cfg.getDeclaredExtensions().getInstances().containsKey(FakerValuePool.NAME));
+  }
+
+  @Test
+  void registersFakerPoolWhenPoolSizeIsSet() {
+    WireMockProperties properties = new WireMockProperties();
+    properties.getFaker().setPoolSize(16);
+
+    WireMockConfiguration cfg =
+        new WireMockConfigurationFactory(properties).wireMockConfiguration();
+
+    assertTrue(cfg.getDeclaredExtensions().getClassNames().isEmpty());
+    assertInstanceOf(
+        FakerValuePool.class, cfg.getDeclaredExtensions().getInstances().get(FakerValuePool.NAME));
+  }
 }
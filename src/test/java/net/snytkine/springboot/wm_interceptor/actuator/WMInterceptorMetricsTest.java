@@ -0,0 +1,91 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class WMInterceptorMetricsTest {
+
+  @Test
+  void countsRequestsByDecision() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    WireMockProperties.SamplingRule rule = new WireMockProperties.SamplingRule();
+    rule.setPathPrefix("/sampled");
+    rule.setRate(0.0);
+    props.getSampling().add(rule);
+    WMInterceptor interceptor =
+        new WMInterceptor(new WireMockConfiguration().usingFilesUnderClasspath("wm-test"), props);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    new WMInterceptorMetrics(interceptor.getStats()).bindTo(registry);
+
+    for (String path : new String[] {"/small", "/small", "/nothing", "/sampled"}) {
+      interceptor.intercept(
+          new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path)),
+          new byte[0],
+          (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+    }
+
+    assertEquals(2.0, count(registry, "mocked"));
+    assertEquals(1.0, count(registry, "unmatched"));
+    assertEquals(1.0, count(registry, "sampled_out"));
+    assertEquals(
+        0.0, registry.get(WMInterceptorMetrics.INJECTED_ERRORS).functionCounter().count());
+    assertEquals(0.0, registry.get(WMInterceptorMetrics.MATCH_CACHE_HIT_RATIO).gauge().value());
+    assertEquals(
+        0.0, registry.get(WMInterceptorMetrics.EXACT_MATCH_HITS).functionCounter().count());
+    assertEquals(
+        0.0, registry.get(WMInterceptorMetrics.EVENTS_DROPPED).functionCounter().count());
+    assertEquals(0.0, registry.get(WMInterceptorMetrics.FALLBACKS).functionCounter().count());
+  }
+
+  @Test
+  void publishesEngineFootprint() {
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+            new WireMockProperties());
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    new StubEngineMetrics(interceptor.getEngine()).bindTo(registry);
+
+    assertEquals(5.0, registry.get(StubEngineMetrics.STUBS).gauge().value());
+    assertTrue(
+        registry.get(StubEngineMetrics.FOOTPRINT).tag("component", "stubs").gauge().value() > 0);
+    assertEquals(
+        0.0,
+        registry.get(StubEngineMetrics.FOOTPRINT).tag("component", "journal").gauge().value());
+    assertEquals(
+        0.0, registry.get(StubEngineMetrics.JOURNAL_EVICTIONS).functionCounter().count());
+  }
+
+  private static double count(SimpleMeterRegistry registry, String decision) {
+    return registry
+        .get(WMInterceptorMetrics.REQUESTS)
+        .tag("decision", decision)
+        .functionCounter()
+        .count();
+  }
+}
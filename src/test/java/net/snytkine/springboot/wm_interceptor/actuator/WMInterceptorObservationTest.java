@@ -0,0 +1,114 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+class WMInterceptorObservationTest {
+
+  @Test
+  void observesMockedUnmatchedAndFailedCalls() throws Exception {
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+            new WireMockProperties());
+    ObservationRegistry registry = ObservationRegistry.create();
+    List<Observation.Context> stopped = new CopyOnWriteArrayList<>();
+    registry.observationConfig().observationHandler(new RecordingHandler(stopped));
+    interceptor.setObserver(new WMInterceptorObservation(registry));
+
+    ClientHttpResponse mocked = intercept(interceptor, "/small");
+    intercept(interceptor, "/nothing");
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            interceptor.intercept(
+                new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/down")),
+                new byte[0],
+                (request, body) -> {
+                  throw new IllegalStateException("connection refused");
+                }));
+
+    assertEquals(HttpStatus.OK, mocked.getStatusCode());
+    assertEquals(3, stopped.size());
+
+    Observation.Context first = stopped.get(0);
+    assertEquals(WMInterceptorObservation.NAME, first.getName());
+    assertEquals("GET", first.getLowCardinalityKeyValue("http.method").getValue());
+    assertEquals("mocked", first.getLowCardinalityKeyValue("wiremock.outcome").getValue());
+    assertEquals("true", first.getLowCardinalityKeyValue("wiremock.mocked").getValue());
+    assertEquals("200", first.getHighCardinalityKeyValue("http.status_code").getValue());
+    assertNotNull(first.getHighCardinalityKeyValue("wiremock.stub.id"));
+    assertNotNull(first.getHighCardinalityKeyValue("wiremock.response.nanos"));
+
+    Observation.Context second = stopped.get(1);
+    assertEquals("unmatched", second.getLowCardinalityKeyValue("wiremock.outcome").getValue());
+    assertEquals("false", second.getLowCardinalityKeyValue("wiremock.mocked").getValue());
+    assertNotNull(second.getHighCardinalityKeyValue("wiremock.match.nanos"));
+    assertNull(second.getHighCardinalityKeyValue("wiremock.stub.id"));
+
+    Observation.Context third = stopped.get(2);
+    assertEquals("unmatched", third.getLowCardinalityKeyValue("wiremock.outcome").getValue());
+    assertInstanceOf(IllegalStateException.class, third.getError());
+  }
+
+  @Test
+  void startsNothingWithoutHandlers() {
+    WMInterceptorObservation observation = new WMInterceptorObservation(ObservationRegistry.NOOP);
+
+    assertNull(
+        observation.start(
+            new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/small"))));
+  }
+
+  private static ClientHttpResponse intercept(WMInterceptor interceptor, String path)
+      throws Exception {
+    return interceptor.intercept(
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path)),
+        new byte[0],
+        (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+  }
+
+  /** Handler that keeps the context of every stopped observation. */
+  private record RecordingHandler(List<Observation.Context> stopped)
+      implements ObservationHandler<Observation.Context> {
+    @Override
+    public void onStop(Observation.Context context) {
+      stopped.add(context);
+    }
+
+    @Override
+    public boolean supportsContext(Observation.Context context) {
+      return true;
+    }
+  }
+}
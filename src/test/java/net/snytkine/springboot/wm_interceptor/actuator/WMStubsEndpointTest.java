@@ -0,0 +1,79 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.actuator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import net.snytkine.springboot.wm_interceptor.StubEngine;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+
+class WMStubsEndpointTest {
+
+  private final StubEngine engine =
+      new StubEngine(
+          new WireMockConfiguration().usingFilesUnderClasspath("wm-test"),
+          new WireMockProperties());
+
+  private final WMStubsEndpoint endpoint = new WMStubsEndpoint(engine);
+
+  @Test
+  void listsStubsWithFootprint() {
+    WMStubsEndpoint.StubsReport report = endpoint.stubs();
+
+    assertEquals(5, report.footprint().stubCount());
+    assertEquals(5, report.stubs().size());
+    WMStubsEndpoint.StubSummary small =
+        report.stubs().stream().filter(s -> "/small".equals(s.url())).findFirst().orElseThrow();
+    assertEquals("GET", small.method());
+    assertEquals(200, small.status());
+  }
+
+  @Test
+  void importsGetsAndRemovesStubs() {
+    String id = UUID.randomUUID().toString();
+    Map<String, Object> mapping =
+        Map.of(
+            "id", id,
+            "request", Map.of("method", "GET", "url", "/imported"),
+            "response", Map.of("status", 202, "body", "imported"));
+
+    WMStubsEndpoint.ImportResult result = endpoint.importStubs(List.of(mapping));
+    assertEquals(1, result.imported());
+    assertEquals(6, result.stubCount());
+
+    String json = endpoint.stub(id);
+    assertNotNull(json);
+    assertTrue(json.contains("/imported"));
+
+    assertTrue(endpoint.removeStub(id));
+    assertNull(endpoint.stub(id));
+    assertFalse(endpoint.removeStub(id));
+    assertEquals(5, engine.getStubCount());
+  }
+
+  @Test
+  void rejectsMalformedIds() {
+    assertThrows(InvalidEndpointRequestException.class, () -> endpoint.stub("not-a-uuid"));
+    assertThrows(InvalidEndpointRequestException.class, () -> endpoint.removeStub("not-a-uuid"));
+    assertEquals(5, engine.getStubCount());
+  }
+}
@@ -17,13 +17,26 @@ package net.snytkine.springboot.wm_interceptor.autoconfigure;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.net.URI;
 import net.snytkine.springboot.wm_interceptor.WMInterceptor;
 import net.snytkine.springboot.wm_interceptor.WMInterceptorFactory;
 import net.snytkine.springboot.wm_interceptor.WireMockConfigurationFactory;
+import net.snytkine.springboot.wm_interceptor.actuator.StubEngineMetrics;
+import net.snytkine.springboot.wm_interceptor.actuator.WMDiagnosticsEndpoint;
+import net.snytkine.springboot.wm_interceptor.actuator.WMInterceptorMetrics;
+import net.snytkine.springboot.wm_interceptor.actuator.WMStubsEndpoint;
 import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.autoconfigure.AutoConfigurations;
 import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
 
 class WireMockInterceptorAutoConfigurationTest {
 
@@ -32,7 +45,8 @@ class WireMockInterceptorAutoConfigurationTest {
           .withConfiguration(
               AutoConfigurations.of(
                   net.snytkine.springboot.wm_interceptor.autoconfigure
-                      .WMInterceptorAutoConfiguration.class));
+                      .WMInterceptorAutoConfiguration.class,
+                  WMInterceptorActuatorAutoConfiguration.class));
 
   @Test
   void whenPropertyEnabled_thenBeansCreated() {
@@ -51,4 +65,64 @@ class WireMockInterceptorAutoConfigurationTest {
   void whenPropertyMissing_thenBeansNotCreated() {
     runner.run((context) -> assertThat(context).doesNotHaveBean(WMInterceptor.class));
   }
+
+  @Test
+  void whenEndpointExposed_thenStubsEndpointCreated() {
+    runner
+        .withPropertyValues(
+            "net.snytkine.rest-client-wiremock-interceptor.enabled=true",
+            "management.endpoints.web.exposure.include=wiremockstubs")
+        .run((context) -> assertThat(context).hasSingleBean(WMStubsEndpoint.class));
+  }
+
+  @Test
+  void whenDiagnosticsExposed_thenDiagnosticsEndpointReportsThem() {
+    runner
+        .withPropertyValues(
+            "net.snytkine.rest-client-wiremock-interceptor.enabled=true",
+            "net.snytkine.rest-client-wiremock-interceptor.match-diagnostics-enabled=true",
+            "management.endpoints.web.exposure.include=wiremockdiagnostics")
+        .run(
+            (context) ->
+                assertThat(context.getBean(WMDiagnosticsEndpoint.class).diagnostics().enabled())
+                    .isTrue());
+  }
+
+  @Test
+  void whenPropertyEnabled_thenMetricsCreated() {
+    runner
+        .withPropertyValues("net.snytkine.rest-client-wiremock-interceptor.enabled=true")
+        .run(
+            (context) ->
+                assertThat(context)
+                    .hasSingleBean(WMInterceptorMetrics.class)
+                    .hasSingleBean(StubEngineMetrics.class));
+  }
+
+  @Test
+  void whenRegistryOnlyRecordsMetrics_thenRequestsNotObserved() {
+    MeterRegistry meters = new SimpleMeterRegistry();
+    ObservationRegistry observations = ObservationRegistry.create();
+    observations.observationConfig().observationHandler(new DefaultMeterObservationHandler(meters));
+    runner
+        .withBean(ObservationRegistry.class, () -> observations)
+        .withPropertyValues("net.snytkine.rest-client-wiremock-interceptor.enabled=true")
+        .run(
+            (context) -> {
+              context
+                  .getBean(WMInterceptor.class)
+                  .intercept(
+                      new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/x")),
+                      new byte[0],
+                      (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK));
+              assertThat(meters.find("wiremock.interceptor.intercept").meters()).isEmpty();
+            });
+  }
+
+  @Test
+  void whenInterceptorDisabled_thenStubsEndpointNotCreated() {
+    runner
+        .withPropertyValues("management.endpoints.web.exposure.include=wiremockstubs")
+        .run((context) -> assertThat(context).doesNotHaveBean(WMStubsEndpoint.class));
+  }
 }
@@ -0,0 +1,106 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+/**
+ * Measures the heap retained by an interceptor whose stubs all return the same large inline body,
+ * with and without {@code bodyDeduplicationEnabled}. Run with {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class DeduplicatedBodyHeapBenchmarkTest {
+  private static final int STUBS = 200;
+
+  private static final int BODY_SIZE = 64 * 1024;
+
+  @TempDir static Path root;
+
+  @BeforeAll
+  static void writeMappings() throws IOException {
+    Path mappings = Files.createDirectories(root.resolve("mappings"));
+    Files.createDirectories(root.resolve("__files"));
+    String body = "x".repeat(BODY_SIZE);
+    for (int i = 0; i < STUBS; i++) {
+      Files.writeString(
+          mappings.resolve("stub-" + i + ".json"),
+          "{\"request\":{\"method\":\"GET\",\"url\":\"/error/"
+              + i
+              + "\"},\"response\":{\"status\":503,\"body\":\""
+              + body
+              + "\"}}");
+    }
+  }
+
+  @Test
+  void sharedInlineBodiesReduceRetainedHeap() throws Exception {
+    WireMockProperties deduplicatedProps = new WireMockProperties();
+    deduplicatedProps.setBodyDeduplicationEnabled(true);
+
+    long plain = retainedHeap(new WireMockProperties());
+    long deduplicated = retainedHeap(deduplicatedProps);
+
+    System.out.printf(
+        "%d stubs x %d bytes: retained heap plain=%d KB, deduplicated=%d KB%n",
+        STUBS, BODY_SIZE, plain / 1024, deduplicated / 1024);
+    // all but one copy of the body can be collected, allow for half of that
+    assertTrue(
+        deduplicated < plain - (long) STUBS / 2 * BODY_SIZE,
+        "stubs sharing one body should retain less heap");
+  }
+
+  private static long retainedHeap(WireMockProperties props) throws IOException {
+    long before = usedHeap();
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderDirectory(root.toString()), props);
+    long after = usedHeap();
+
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/error/7"));
+    ClientHttpResponse response =
+        interceptor.intercept(request, new byte[0], (r, b) -> fail("stub should match"));
+    assertEquals(BODY_SIZE, response.getBody().readAllBytes().length);
+
+    Reference.reachabilityFence(interceptor);
+    interceptor.close();
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
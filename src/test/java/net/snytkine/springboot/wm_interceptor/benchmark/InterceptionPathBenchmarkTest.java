@@ -0,0 +1,330 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.sun.management.OperatingSystemMXBean;
+import com.sun.management.ThreadMXBean;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+/**
+ * Sends the same request mix, answered by the same stubs, along three paths and compares them:
+ *
+ * <ul>
+ *   <li>{@code in_process}: the interceptor, matching the stubs in-process
+ *   <li>{@code socket}: a standalone WireMock server on a localhost port, called over HTTP
+ *   <li>{@code baseline}: an interceptor that only calls the execution, the cost of building and
+ *       reading the requests in this harness
+ * </ul>
+ *
+ * <p>For each path it reports throughput, latency percentiles, bytes allocated per request and CPU
+ * time per request. Allocation is summed over all threads and CPU time is that of the process, so
+ * the server threads of the socket path are counted, and so are GC and JIT compiler threads. Run
+ * with {@code mvn -Pbenchmark test}; nothing leaves the machine.
+ *
+ * <p>Settings are system properties, passed with {@code -D} on the Maven command line:
+ *
+ * <ul>
+ *   <li>{@code benchmark.duration}: measured time per path, default {@code PT2S}
+ *   <li>{@code benchmark.baseline}: results file of an earlier run to compare with, none by default
+ *   <li>{@code benchmark.maxRegression}: largest drop in throughput, or rise in allocation per
+ *       request, of the in-process path allowed against the baseline, default 0.2
+ * </ul>
+ *
+ * <p>Results are written to {@code target/benchmark/interception-paths.properties}; copy that file
+ * to keep it as a baseline.
+ */
+@Tag("benchmark")
+class InterceptionPathBenchmarkTest {
+  private static final Duration WARMUP = Duration.ofSeconds(1);
+
+  private static final Duration DURATION =
+      Duration.parse(System.getProperty("benchmark.duration", "PT2S"));
+
+  private static final double MAX_REGRESSION =
+      Double.parseDouble(System.getProperty("benchmark.maxRegression", "0.2"));
+
+  /** Paths of the request mix, in the proportions they are sent; the last one has no stub. */
+  private static final String[] MIX = {
+    "/small",
+    "/small",
+    "/small",
+    "/small",
+    "/small",
+    "/error/a",
+    "/error/b",
+    "/large/inline",
+    "/large/file",
+    "/not-stubbed"
+  };
+
+  private static final byte[] EMPTY = new byte[0];
+
+  /** The real service behind the in-process paths, answering as WireMock does without a stub. */
+  private static final ClientHttpRequestExecution NOT_FOUND =
+      (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.NOT_FOUND);
+
+  /** Sends a GET request for a path along one of the compared paths. */
+  @FunctionalInterface
+  interface Client {
+    ClientHttpResponse get(String path) throws IOException;
+  }
+
+  /**
+   * Measurements of one path.
+   *
+   * @param opsPerSecond requests completed per second
+   * @param latencies latency of each request, in nanoseconds
+   * @param allocatedBytesPerOp bytes allocated per request, by all threads
+   * @param cpuNanosPerOp CPU time of the process per request
+   */
+  record Result(
+      double opsPerSecond, Histogram latencies, double allocatedBytesPerOp, double cpuNanosPerOp) {}
+
+  @Test
+  void comparesInProcessSocketAndBaselinePaths() throws Exception {
+    // the request journal would grow with every request
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test")
+                .disableRequestJournal(),
+            new WireMockProperties());
+    WireMockServer server =
+        new WireMockServer(
+            WireMockConfiguration.options()
+                .dynamicPort()
+                .usingFilesUnderClasspath("wm-test")
+                .disableRequestJournal());
+    server.start();
+    String socketBase = "http://localhost:" + server.port();
+    SimpleClientHttpRequestFactory socketClient = new SimpleClientHttpRequestFactory();
+    ClientHttpRequestInterceptor noOp =
+        (request, body, execution) -> execution.execute(request, body);
+
+    Map<String, Client> clients = new LinkedHashMap<>();
+    clients.put("baseline", path -> noOp.intercept(request(path), EMPTY, NOT_FOUND));
+    clients.put("in_process", path -> interceptor.intercept(request(path), EMPTY, NOT_FOUND));
+    clients.put(
+        "socket",
+        path ->
+            socketClient.createRequest(URI.create(socketBase + path), HttpMethod.GET).execute());
+
+    Map<String, Result> results = new LinkedHashMap<>();
+    try {
+      assertSameResponses(clients.get("in_process"), clients.get("socket"));
+      for (Map.Entry<String, Client> client : clients.entrySet()) {
+        results.put(client.getKey(), run(client.getValue()));
+      }
+    } finally {
+      server.stop();
+      interceptor.close();
+    }
+
+    System.out.printf(
+        "%-12s %12s %10s %10s %10s %10s %12s %12s%n",
+        "path", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "B/op", "cpu ns/op");
+    results.forEach(
+        (path, result) ->
+            System.out.printf(
+                "%-12s %,12.0f %10.1f %10.1f %10.1f %10.1f %,12.0f %,12.0f%n",
+                path,
+                result.opsPerSecond(),
+                micros(result, 50),
+                micros(result, 90),
+                micros(result, 99),
+                micros(result, 99.9),
+                result.allocatedBytesPerOp(),
+                result.cpuNanosPerOp()));
+    Map<String, Double> flat = flatten(results);
+    writeResults(flat);
+
+    List<String> failures = new ArrayList<>();
+    if (results.get("in_process").opsPerSecond() <= results.get("socket").opsPerSecond()) {
+      failures.add("in-process interception is not faster than the socket path");
+    }
+    checkBaseline(flat, failures);
+    assertTrue(failures.isEmpty(), String.join("\n", failures));
+  }
+
+  private static MockClientHttpRequest request(String path) {
+    return new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost" + path));
+  }
+
+  /** Both paths must answer every request of the mix alike, or the comparison means nothing. */
+  private static void assertSameResponses(Client inProcess, Client socket) throws IOException {
+    for (String path : new LinkedHashSet<>(List.of(MIX))) {
+      try (ClientHttpResponse expected = socket.get(path);
+          ClientHttpResponse actual = inProcess.get(path)) {
+        assertEquals(expected.getStatusCode().value(), actual.getStatusCode().value(), path);
+        // the body WireMock returns without a stub lists near misses
+        if (expected.getStatusCode().value() != HttpStatus.NOT_FOUND.value()) {
+          assertArrayEquals(
+              expected.getBody().readAllBytes(), actual.getBody().readAllBytes(), path);
+        }
+      }
+    }
+  }
+
+  /** Sends the request mix along one path, warming it up first, and measures it. */
+  private static Result run(Client client) throws IOException {
+    int next = 0;
+    long warmupEnd = System.nanoTime() + WARMUP.toNanos();
+    while (System.nanoTime() < warmupEnd) {
+      send(client, MIX[next++ % MIX.length]);
+    }
+
+    ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+    Histogram latencies = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+    Map<Long, Long> allocatedBefore = allocatedBytes(threads);
+    long cpuBefore = os.getProcessCpuTime();
+    long start = System.nanoTime();
+    long end = start + DURATION.toNanos();
+    long now = start;
+    long ops = 0;
+    while (now < end) {
+      send(client, MIX[next++ % MIX.length]);
+      long after = System.nanoTime();
+      latencies.recordValue(after - now);
+      now = after;
+      ops++;
+    }
+    long cpu = os.getProcessCpuTime() - cpuBefore;
+    long allocated = allocatedSince(threads, allocatedBefore);
+    double seconds = (now - start) / (double) TimeUnit.SECONDS.toNanos(1);
+    return new Result(
+        ops / seconds, latencies, allocated / (double) ops, cpu < 0 ? Double.NaN : cpu / ops);
+  }
+
+  private static void send(Client client, String path) throws IOException {
+    try (ClientHttpResponse response = client.get(path);
+        InputStream in = response.getBody()) {
+      in.readAllBytes();
+    }
+  }
+
+  /** Returns the bytes allocated so far by each live thread, by thread id. */
+  private static Map<Long, Long> allocatedBytes(ThreadMXBean threads) {
+    long[] ids = threads.getAllThreadIds();
+    long[] bytes = threads.getThreadAllocatedBytes(ids);
+    Map<Long, Long> allocated = new HashMap<>(ids.length * 2);
+    for (int i = 0; i < ids.length; i++) {
+      allocated.put(ids[i], bytes[i]);
+    }
+    return allocated;
+  }
+
+  /**
+   * Returns the bytes allocated by all live threads since {@code before}. Threads that ended in
+   * between are missed; the paths keep their threads for the whole run.
+   */
+  private static long allocatedSince(ThreadMXBean threads, Map<Long, Long> before) {
+    long total = 0;
+    for (Map.Entry<Long, Long> thread : allocatedBytes(threads).entrySet()) {
+      if (thread.getValue() > 0) {
+        total += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+      }
+    }
+    return total;
+  }
+
+  private static double micros(Result result, double percentile) {
+    return result.latencies().getValueAtPercentile(percentile) / 1000.0;
+  }
+
+  private static Map<String, Double> flatten(Map<String, Result> results) {
+    Map<String, Double> flat = new LinkedHashMap<>();
+    results.forEach(
+        (path, result) -> {
+          flat.put(path + ".opsPerSecond", result.opsPerSecond());
+          flat.put(path + ".p50Nanos", (double) result.latencies().getValueAtPercentile(50));
+          flat.put(path + ".p99Nanos", (double) result.latencies().getValueAtPercentile(99));
+          flat.put(path + ".allocatedBytesPerOp", result.allocatedBytesPerOp());
+          flat.put(path + ".cpuNanosPerOp", result.cpuNanosPerOp());
+        });
+    return flat;
+  }
+
+  /** The in-process path must not get slower or allocate more than in the baseline run. */
+  private static void checkBaseline(Map<String, Double> results, List<String> failures)
+      throws IOException {
+    String baselineFile = System.getProperty("benchmark.baseline");
+    if (baselineFile == null || baselineFile.isBlank()) {
+      return;
+    }
+    Properties baseline = new Properties();
+    try (InputStream in = Files.newInputStream(Path.of(baselineFile))) {
+      baseline.load(in);
+    }
+    String throughput = baseline.getProperty("in_process.opsPerSecond");
+    double opsPerSecond = results.get("in_process.opsPerSecond");
+    if (throughput != null
+        && opsPerSecond < Double.parseDouble(throughput) * (1 - MAX_REGRESSION)) {
+      failures.add(
+          String.format(
+              "in-process throughput regressed to %.0f ops/s from %s ops/s",
+              opsPerSecond, throughput));
+    }
+    String allocation = baseline.getProperty("in_process.allocatedBytesPerOp");
+    double bytesPerOp = results.get("in_process.allocatedBytesPerOp");
+    if (allocation != null && bytesPerOp > Double.parseDouble(allocation) * (1 + MAX_REGRESSION)) {
+      failures.add(
+          String.format(
+              "in-process allocation rose to %.0f B/op from %s B/op", bytesPerOp, allocation));
+    }
+  }
+
+  private static void writeResults(Map<String, Double> results) throws IOException {
+    Properties properties = new Properties();
+    results.forEach((key, value) -> properties.setProperty(key, String.format("%.0f", value)));
+    Path dir = Files.createDirectories(Path.of("target", "benchmark"));
+    try (OutputStream out = Files.newOutputStream(dir.resolve("interception-paths.properties"))) {
+      properties.store(out, "Interception paths: throughput, latency, allocation and CPU");
+    }
+  }
+}
@@ -0,0 +1,293 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+
+/**
+ * Drives one shared interceptor from 1 to 256 platform threads and from virtual threads, with
+ * matched and pass-through traffic, and fails when throughput collapses under concurrency, when
+ * threads spend too long blocked on monitors, or when throughput regresses against a baseline.
+ * Run with {@code mvn -Pstress test}.
+ *
+ * <p>Thresholds are system properties, passed with {@code -D} on the Maven command line:
+ *
+ * <ul>
+ *   <li>{@code stress.duration}: measured time per run, default {@code PT1S}
+ *   <li>{@code stress.minCollapseRatio}: lowest throughput allowed at or above the core count, as
+ *       a fraction of the best throughput of the same traffic, default 0.5
+ *   <li>{@code stress.maxBlockedRatio}: longest time allowed blocked entering monitors, recorded
+ *       as JFR {@code jdk.JavaMonitorEnter} events, as a fraction of the total thread time,
+ *       default 0.1
+ *   <li>{@code stress.baseline}: results file of an earlier run to compare with, none by default
+ *   <li>{@code stress.maxRegression}: largest throughput drop allowed against the baseline,
+ *       default 0.2
+ * </ul>
+ *
+ * <p>Results are written to {@code target/stress/results.properties}; copy that file to keep it as
+ * a baseline.
+ */
+@Tag("stress")
+class InterceptorStressTest {
+  private static final int[] PLATFORM_THREADS = {1, 2, 4, 8, 16, 32, 64, 128, 256};
+
+  private static final int VIRTUAL_THREADS = 1024;
+
+  private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+
+  private static final String VIRTUAL_THREAD_PINNED = "jdk.VirtualThreadPinned";
+
+  private static final Duration WARMUP = Duration.ofMillis(500);
+
+  private static final Duration DURATION =
+      Duration.parse(System.getProperty("stress.duration", "PT1S"));
+
+  private static final double MIN_COLLAPSE_RATIO =
+      Double.parseDouble(System.getProperty("stress.minCollapseRatio", "0.5"));
+
+  private static final double MAX_BLOCKED_RATIO =
+      Double.parseDouble(System.getProperty("stress.maxBlockedRatio", "0.1"));
+
+  private static final double MAX_REGRESSION =
+      Double.parseDouble(System.getProperty("stress.maxRegression", "0.2"));
+
+  private static final ClientHttpRequestExecution REAL_SERVICE =
+      (request, body) -> new MockClientHttpResponse(new byte[0], HttpStatus.OK);
+
+  /** Traffic sent by each thread. */
+  enum Traffic {
+    MATCHED("/small"),
+    PASS_THROUGH("/not-stubbed");
+
+    final String path;
+
+    Traffic(String path) {
+      this.path = path;
+    }
+  }
+
+  @Test
+  void scalesWithoutCollapseOrContention() throws Exception {
+    WireMockProperties props = new WireMockProperties();
+    // the request journal would grow with every request
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration()
+                .usingFilesUnderClasspath("wm-test")
+                .disableRequestJournal(),
+            props);
+
+    Map<String, Double> results = new LinkedHashMap<>();
+    Path jfr = Files.createTempFile("stress", ".jfr");
+    double threadNanos = 0;
+    try (Recording recording = new Recording()) {
+      recording.enable(MONITOR_ENTER).withThreshold(Duration.ofMillis(1)).withStackTrace();
+      recording.enable(VIRTUAL_THREAD_PINNED).withThreshold(Duration.ofMillis(1));
+      recording.start();
+      for (Traffic traffic : Traffic.values()) {
+        for (int threads : PLATFORM_THREADS) {
+          results.put(
+              traffic + ".platform." + threads,
+              run(interceptor, traffic, threads, Executors.newFixedThreadPool(threads)));
+          threadNanos += (double) threads * DURATION.toNanos();
+        }
+        results.put(
+            traffic + ".virtual." + VIRTUAL_THREADS,
+            run(
+                interceptor,
+                traffic,
+                VIRTUAL_THREADS,
+                Executors.newVirtualThreadPerTaskExecutor()));
+        // virtual threads share the carrier threads, one per core
+        threadNanos += (double) Runtime.getRuntime().availableProcessors() * DURATION.toNanos();
+      }
+      recording.stop();
+      recording.dump(jfr);
+    }
+
+    results.forEach(
+        (run, opsPerSecond) -> System.out.printf("%-32s %,14.0f ops/s%n", run, opsPerSecond));
+    writeResults(results);
+
+    List<String> failures = new ArrayList<>();
+    checkCollapse(results, failures);
+    checkBlocked(jfr, threadNanos, failures);
+    checkBaseline(results, failures);
+    Files.deleteIfExists(jfr);
+    assertTrue(failures.isEmpty(), String.join("\n", failures));
+  }
+
+  /** Runs the traffic from the given number of threads and returns the throughput in ops/s. */
+  private static double run(
+      WMInterceptor interceptor, Traffic traffic, int threads, ExecutorService executor)
+      throws Exception {
+    LongAdder ops = new LongAdder();
+    CountDownLatch started = new CountDownLatch(threads);
+    long measureFrom = System.nanoTime() + WARMUP.toNanos();
+    long measureTo = measureFrom + DURATION.toNanos();
+    List<Future<?>> workers = new ArrayList<>(threads);
+    try (executor) {
+      for (int i = 0; i < threads; i++) {
+        workers.add(
+            executor.submit(
+                () -> {
+                  started.countDown();
+                  URI uri = URI.create("http://localhost" + traffic.path);
+                  byte[] body = new byte[0];
+                  long now;
+                  while ((now = System.nanoTime()) < measureTo) {
+                    ClientHttpResponse response =
+                        interceptor.intercept(
+                            new MockClientHttpRequest(HttpMethod.GET, uri), body, REAL_SERVICE);
+                    try (InputStream in = response.getBody()) {
+                      in.readAllBytes();
+                    }
+                    if (now >= measureFrom) {
+                      ops.increment();
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> worker : workers) {
+        worker.get();
+      }
+    }
+    return ops.sum() / (DURATION.toNanos() / (double) TimeUnit.SECONDS.toNanos(1));
+  }
+
+  /** Throughput must not drop far below the best seen once the cores are saturated. */
+  private static void checkCollapse(Map<String, Double> results, List<String> failures) {
+    int cores = Runtime.getRuntime().availableProcessors();
+    for (Traffic traffic : Traffic.values()) {
+      double best =
+          results.entrySet().stream()
+              .filter(e -> e.getKey().startsWith(traffic + "."))
+              .mapToDouble(Map.Entry::getValue)
+              .max()
+              .orElse(0);
+      for (int threads : PLATFORM_THREADS) {
+        String run = traffic + ".platform." + threads;
+        if (threads >= cores && results.get(run) < best * MIN_COLLAPSE_RATIO) {
+          failures.add(
+              String.format(
+                  "%s collapsed to %.0f ops/s, best is %.0f ops/s", run, results.get(run), best));
+        }
+      }
+      String virtual = traffic + ".virtual." + VIRTUAL_THREADS;
+      if (results.get(virtual) < best * MIN_COLLAPSE_RATIO) {
+        failures.add(
+            String.format(
+                "%s collapsed to %.0f ops/s, best is %.0f ops/s",
+                virtual, results.get(virtual), best));
+      }
+    }
+  }
+
+  /** Time spent blocked entering monitors must stay a small share of the thread time. */
+  private static void checkBlocked(Path jfr, double threadNanos, List<String> failures)
+      throws IOException {
+    Map<String, Long> blockedByMonitor = new TreeMap<>();
+    long blockedNanos = 0;
+    int pinned = 0;
+    for (RecordedEvent event : RecordingFile.readAllEvents(jfr)) {
+      if (VIRTUAL_THREAD_PINNED.equals(event.getEventType().getName())) {
+        pinned++;
+        continue;
+      }
+      long nanos = event.getDuration().toNanos();
+      blockedNanos += nanos;
+      blockedByMonitor.merge(event.getClass("monitorClass").getName(), nanos, Long::sum);
+    }
+    blockedByMonitor.forEach(
+        (monitor, nanos) ->
+            System.out.printf("blocked on %-60s %,10d ms%n", monitor, nanos / 1_000_000));
+    System.out.printf("virtual threads pinned for over 1 ms: %d times%n", pinned);
+    double ratio = blockedNanos / threadNanos;
+    if (ratio > MAX_BLOCKED_RATIO) {
+      failures.add(
+          String.format(
+              "threads were blocked on monitors %.1f%% of the time, limit is %.1f%%",
+              ratio * 100, MAX_BLOCKED_RATIO * 100));
+    }
+  }
+
+  private static void checkBaseline(Map<String, Double> results, List<String> failures)
+      throws IOException {
+    String baselineFile = System.getProperty("stress.baseline");
+    if (baselineFile == null || baselineFile.isBlank()) {
+      return;
+    }
+    Properties baseline = new Properties();
+    try (InputStream in = Files.newInputStream(Path.of(baselineFile))) {
+      baseline.load(in);
+    }
+    results.forEach(
+        (run, opsPerSecond) -> {
+          String expected = baseline.getProperty(run);
+          if (expected != null
+              && opsPerSecond < Double.parseDouble(expected) * (1 - MAX_REGRESSION)) {
+            failures.add(
+                String.format(
+                    "%s regressed to %.0f ops/s from %s ops/s", run, opsPerSecond, expected));
+          }
+        });
+  }
+
+  private static void writeResults(Map<String, Double> results) throws IOException {
+    Properties properties = new Properties();
+    results.forEach(
+        (run, opsPerSecond) -> properties.setProperty(run, String.format("%.0f", opsPerSecond)));
+    Path dir = Files.createDirectories(Path.of("target", "stress"));
+    try (OutputStream out = Files.newOutputStream(dir.resolve("results.properties"))) {
+      properties.store(out, "WMInterceptor throughput in ops/s");
+    }
+  }
+}
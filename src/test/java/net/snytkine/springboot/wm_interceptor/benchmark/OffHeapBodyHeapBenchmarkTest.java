@@ -0,0 +1,108 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.benchmark;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+/**
+ * Measures the heap retained by an interceptor whose stubs serve large {@code bodyFileName} bodies
+ * from the body store, kept on the heap or, with {@code offHeapBodyThreshold}, off it. Run with
+ * {@code mvn -Pbenchmark test}.
+ */
+@Tag("benchmark")
+class OffHeapBodyHeapBenchmarkTest {
+  private static final int STUBS = 200;
+
+  private static final int BODY_SIZE = 256 * 1024;
+
+  @TempDir static Path root;
+
+  @BeforeAll
+  static void writeMappings() throws IOException {
+    Path mappings = Files.createDirectories(root.resolve("mappings"));
+    Path files = Files.createDirectories(root.resolve("__files"));
+    String body = "x".repeat(BODY_SIZE - 8);
+    for (int i = 0; i < STUBS; i++) {
+      // bodies differ so that the on-heap store keeps one copy of each
+      Files.writeString(files.resolve("body-" + i + ".txt"), body + String.format("%08d", i));
+      Files.writeString(
+          mappings.resolve("stub-" + i + ".json"),
+          "{\"request\":{\"method\":\"GET\",\"url\":\"/body/"
+              + i
+              + "\"},\"response\":{\"status\":200,\"bodyFileName\":\"body-"
+              + i
+              + ".txt\"}}");
+    }
+  }
+
+  @Test
+  void offHeapBodiesReduceRetainedHeap() throws Exception {
+    WireMockProperties onHeapProps = new WireMockProperties();
+    // deduplication stores every body, on the heap
+    onHeapProps.setBodyDeduplicationEnabled(true);
+    WireMockProperties offHeapProps = new WireMockProperties();
+    offHeapProps.setOffHeapBodyThreshold(1024);
+
+    long onHeap = retainedHeap(onHeapProps);
+    long offHeap = retainedHeap(offHeapProps);
+
+    System.out.printf(
+        "%d stubs x %d bytes: retained heap on-heap=%d KB, off-heap=%d KB%n",
+        STUBS, BODY_SIZE, onHeap / 1024, offHeap / 1024);
+    assertTrue(offHeap < onHeap, "off-heap bodies should retain less heap");
+  }
+
+  private static long retainedHeap(WireMockProperties props) throws IOException {
+    long before = usedHeap();
+    WMInterceptor interceptor =
+        new WMInterceptor(
+            new WireMockConfiguration().usingFilesUnderDirectory(root.toString()), props);
+    long after = usedHeap();
+
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/body/7"));
+    ClientHttpResponse response =
+        interceptor.intercept(request, new byte[0], (r, b) -> fail("stub should match"));
+    assertEquals(BODY_SIZE, response.getBody().readAllBytes().length);
+
+    Reference.reachabilityFence(interceptor);
+    return after - before;
+  }
+
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2025 - 2026 Dmitri Snytkine. All rights reserved.
+ *
+ * <p>Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file
+ * except in compliance with the License. You may obtain a copy of the License at
+ *
+ * <p>http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * <p>Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied.
+ *
+ * <p>See the License for the specific language governing permissions and limitations under the
+ * License.
+ */
+package net.snytkine.springboot.wm_interceptor.benchmark;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.ok;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import net.snytkine.springboot.wm_interceptor.WMInterceptor;
+import net.snytkine.springboot.wm_interceptor.model.WireMockProperties;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.mock.http.client.MockClientHttpRequest;
+
+/**
+ * Compares the throughput of templated mock responses rendered by WireMock's transformer and by
+ * the interceptor's fast path ({@code templateFastPathEnabled}). Run with {@code mvn -Pbenchmark
+ * test}.
+ */
+@Tag("benchmark")
+class TemplateRenderBenchmarkTest {
+  private static final int WARMUP = 20_000;
+
+  private static final int MEASURED = 100_000;
+
+  private static final String TEMPLATE =
+      "{\"items\": ["
+          + "{\"id\": \"{{request.query.id}}\", \"path\": \"{{request.path}}\", \"pad\": \"xxxx\"},"
+              .repeat(40)
+          + "{}], \"agent\": \"{{request.headers.User-Agent}}\"}";
+
+  @Test
+  void fastPathOutperformsStockTransformer() throws Exception {
+    WMInterceptor stock = interceptor(false);
+    WMInterceptor fast = interceptor(true);
+    assertEquals(render(stock), render(fast));
+
+    double stockOps = throughput(stock);
+    double fastOps = throughput(fast);
+    System.out.printf(
+        "templated responses/s: stock=%.0f, fast path=%.0f (%.2fx)%n",
+        stockOps, fastOps, fastOps / stockOps);
+    stock.close();
+    fast.close();
+    assertTrue(fastOps > stockOps, "the fast path should render faster than WireMock");
+  }
+
+  private static WMInterceptor interceptor(boolean fastPath) {
+    WireMockProperties props = new WireMockProperties();
+    props.setTemplateFastPathEnabled(fastPath);
+    WireMockConfiguration config = new WireMockConfiguration().disableRequestJournal();
+    WMInterceptor interceptor = new WMInterceptor(config, props);
+    interceptor
+        .getEngine()
+        .importStubs(
+            List.of(
+                get(urlPathEqualTo("/orders"))
+                    .willReturn(ok(TEMPLATE).withTransformers("response-template"))
+                    .build()));
+    return interceptor;
+  }
+
+  private static double throughput(WMInterceptor interceptor) throws IOException {
+    for (int i = 0; i < WARMUP; i++) {
+      render(interceptor);
+    }
+    long start = System.nanoTime();
+    for (int i = 0; i < MEASURED; i++) {
+      render(interceptor);
+    }
+    return MEASURED / ((System.nanoTime() - start) / 1e9);
+  }
+
+  private static String render(WMInterceptor interceptor) throws IOException {
+    MockClientHttpRequest request =
+        new MockClientHttpRequest(HttpMethod.GET, URI.create("http://localhost/orders?id=42"));
+    request.getHeaders().add("User-Agent", "benchmark");
+    ClientHttpResponse response =
+        interceptor.intercept(request, new byte[0], (r, b) -> fail("stub should match"));
+    return new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+  }
+}
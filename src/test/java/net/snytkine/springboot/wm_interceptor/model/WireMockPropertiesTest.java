@@ -42,6 +42,40 @@ class WireMockPropertiesTest {
     assertFalse(p.isProxyPassThrough());
     assertNull(p.getMockResponseHeader());
     assertNull(p.getMockResponseHeaderValue());
+    assertNull(p.getOffHeapBodyThreshold());
+    assertFalse(p.isBodyDeduplicationEnabled());
+    assertNull(p.getCompressedBodyThreshold());
+    assertFalse(p.isPrecompressedBodiesEnabled());
+    assertFalse(p.isTemplateFastPathEnabled());
+    assertEquals(java.time.Duration.ofSeconds(10), p.getShutdownTimeout());
+    assertFalse(p.isSharedEngineEnabled());
+    assertNull(p.getLoopbackPort());
+    assertNull(p.getMatchCacheSize());
+    assertFalse(p.isExactMatchIndexEnabled());
+    assertFalse(p.isAdaptiveStubOrderEnabled());
+    assertEquals(java.time.Duration.ofSeconds(1), p.getAdaptiveStubOrderInterval());
+    assertFalse(p.isMatchDiagnosticsEnabled());
+    assertEquals(100, p.getMatchDiagnosticsCapacity());
+    assertTrue(p.getSampling().isEmpty());
+    assertNull(p.getEventLog().getFile());
+    assertEquals(WireMockProperties.EventLogFormat.JSON, p.getEventLog().getFormat());
+    assertEquals(65536, p.getEventLog().getQueueCapacity());
+    assertTrue(p.getFaker().isEnabled());
+    assertNull(p.getFaker().getPoolSize());
+    assertNull(p.getFaker().getSeed());
+    assertNull(p.getFaker().getLocale());
+    assertNull(p.getLimits().getMaxStubs());
+    assertNull(p.getLimits().getMaxJournalBytes());
+    assertNull(p.getLimits().getMaxMatchCacheBytes());
+    assertEquals(java.time.Duration.ofSeconds(10), p.getLimits().getCheckInterval());
+    assertFalse(p.getFallbackToMock().isEnabled());
+    assertEquals(java.time.Duration.ofSeconds(2), p.getFallbackToMock().getSlowCallThreshold());
+    assertEquals(0.5, p.getFallbackToMock().getFailureRateThreshold());
+    assertEquals(20, p.getFallbackToMock().getWindowSize());
+    assertEquals(java.time.Duration.ofSeconds(10), p.getFallbackToMock().getOpenDuration());
+    assertEquals(503, p.getFallbackToMock().getFallbackStatus());
+    assertTrue(p.getLatencyProfiles().isEmpty());
+    assertTrue(p.getHostLatencyProfiles().isEmpty());
   }
 
   @Test
@@ -65,6 +99,20 @@ class WireMockPropertiesTest {
     p.setProxyPassThrough(true);
     p.setMockResponseHeader("X-MOCK");
     p.setMockResponseHeaderValue("value");
+    p.setOffHeapBodyThreshold(1024);
+    p.setBodyDeduplicationEnabled(true);
+    p.setCompressedBodyThreshold(2048);
+    p.setPrecompressedBodiesEnabled(true);
+    p.setTemplateFastPathEnabled(true);
+    p.setShutdownTimeout(java.time.Duration.ofSeconds(1));
+    p.setSharedEngineEnabled(true);
+    p.setLoopbackPort(8089);
+    p.setMatchCacheSize(1000);
+    p.setExactMatchIndexEnabled(true);
+    p.setAdaptiveStubOrderEnabled(true);
+    p.setAdaptiveStubOrderInterval(java.time.Duration.ofMillis(250));
+    p.setMatchDiagnosticsEnabled(true);
+    p.setMatchDiagnosticsCapacity(10);
 
     assertTrue(p.isEnabled());
     assertEquals(5, p.getContainerThreads());
@@ -84,6 +132,39 @@ class WireMockPropertiesTest {
     assertTrue(p.isProxyPassThrough());
     assertEquals("X-MOCK", p.getMockResponseHeader());
     assertEquals("value", p.getMockResponseHeaderValue());
+    assertEquals(1024, p.getOffHeapBodyThreshold());
+    assertTrue(p.isBodyDeduplicationEnabled());
+    assertEquals(2048, p.getCompressedBodyThreshold());
+    assertTrue(p.isPrecompressedBodiesEnabled());
+    assertTrue(p.isTemplateFastPathEnabled());
+    assertEquals(java.time.Duration.ofSeconds(1), p.getShutdownTimeout());
+    assertTrue(p.isSharedEngineEnabled());
+    assertEquals(8089, p.getLoopbackPort());
+    assertEquals(1000, p.getMatchCacheSize());
+    assertTrue(p.isExactMatchIndexEnabled());
+    assertTrue(p.isAdaptiveStubOrderEnabled());
+    assertEquals(java.time.Duration.ofMillis(250), p.getAdaptiveStubOrderInterval());
+    assertTrue(p.isMatchDiagnosticsEnabled());
+    assertEquals(10, p.getMatchDiagnosticsCapacity());
+  }
+
+  @Test
+  void samplingRuleDefaults() {
+    WireMockProperties.SamplingRule rule = new WireMockProperties.SamplingRule();
+    assertNull(rule.getHost());
+    assertNull(rule.getPathPrefix());
+    assertEquals(1.0, rule.getRate());
+  }
+
+  @Test
+  void latencyProfileDefaults() {
+    WireMockProperties.LatencyProfile profile = new WireMockProperties.LatencyProfile();
+    assertNull(profile.getHistogramFile());
+    assertEquals(java.util.concurrent.TimeUnit.MICROSECONDS, profile.getHistogramUnit());
+    assertTrue(profile.getPercentiles().isEmpty());
+    assertNull(profile.getBandwidthBytesPerSecond());
+    assertEquals(0.0, profile.getErrorRate());
+    assertEquals(503, profile.getErrorStatus());
   }
 
   @Test